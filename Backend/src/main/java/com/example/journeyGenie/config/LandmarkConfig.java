@@ -0,0 +1,26 @@
+package com.example.journeyGenie.config;
+
+import com.example.journeyGenie.ml.LandmarkEngine;
+import com.example.journeyGenie.ml.LandmarkModelRegistry;
+import com.example.journeyGenie.ml.RemoteLandmarkEngine;
+import com.example.journeyGenie.util.AppEnv;
+import com.example.journeyGenie.util.Debug;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+@Configuration
+public class LandmarkConfig {
+
+    // LANDMARK_WORKER_SOCKET moves the models into a separate LandmarkWorker process
+    @Bean
+    public LandmarkEngine landmarkEngine() {
+        String socket = AppEnv.getLandmarkWorkerSocket();
+        if (!socket.isEmpty()) {
+            Debug.log("Using landmark worker at " + socket);
+            return new RemoteLandmarkEngine(Path.of(socket), AppEnv.getLandmarkWorkerConnections());
+        }
+        return new LandmarkModelRegistry();
+    }
+}
@@ -3,6 +3,7 @@ package com.example.journeyGenie.config;
 import com.example.journeyGenie.authGoogleOAuth.OAuth2LoginSuccessHandler;
 import com.example.journeyGenie.authJWT.JWTFilter;
 import com.example.journeyGenie.util.AppEnv;
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
@@ -40,8 +41,13 @@ public class SecurityConfig {
                 .cors(Customizer.withDefaults())
                 .csrf(csrf -> csrf.disable())
                 .authorizeHttpRequests(auth -> auth
+                        // the request was authorized on its first dispatch; the JWT filter does not run again
+                        // when an async controller result is written back
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
                         .requestMatchers("/test-no-auth","/user/signup", "/user/login").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/blobs/**").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/landmark/ready").permitAll()
                         .anyRequest().authenticated()
                 )
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
@@ -0,0 +1,46 @@
+package com.example.journeyGenie.config;
+
+import com.cloudinary.Cloudinary;
+import com.cloudinary.utils.ObjectUtils;
+import com.example.journeyGenie.storage.BlobStore;
+import com.example.journeyGenie.storage.CloudinaryBlobStore;
+import com.example.journeyGenie.storage.LocalBlobStore;
+import com.example.journeyGenie.util.AppEnv;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+@Configuration
+public class StorageConfig {
+
+    // fallback when CLOUDINARY_URL is not set
+    @Value("${cloudinary.cloud-name:}")
+    private String cloudName;
+
+    @Value("${cloudinary.api-key:}")
+    private String apiKey;
+
+    @Value("${cloudinary.api-secret:}")
+    private String apiSecret;
+
+    // BLOB_STORE=local keeps photos and videos on disk (offline runs, load tests)
+    @Bean
+    public BlobStore blobStore() throws IOException {
+        if ("local".equalsIgnoreCase(AppEnv.getBlobStore())) {
+            return new LocalBlobStore(Paths.get(AppEnv.getBlobLocalDir()), AppEnv.getBackendUrl());
+        }
+
+        String url = AppEnv.getCloudinary_API();
+        Cloudinary cloudinary = (url != null && !url.isBlank())
+                ? new Cloudinary(url)
+                : new Cloudinary(ObjectUtils.asMap(
+                        "cloud_name", cloudName,
+                        "api_key", apiKey,
+                        "api_secret", apiSecret
+                ));
+        return new CloudinaryBlobStore(cloudinary);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.journeyGenie.controller;
+
+import com.example.journeyGenie.service.GeocodingService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * GET /api/geocode?place=Sylhet  ->  { "name": "Sylhet", "lat": 24.89, "lon": 91.88 }
+ * GET /api/geocode/stats         ->  cache and provider figures shared by weather, route and planner
+ */
+@RestController
+@RequestMapping("/api/geocode")
+public class GeocodingController {
+
+    @Autowired
+    private GeocodingService geocodingService;
+
+    @GetMapping
+    public ResponseEntity<?> geocode(@RequestParam String place) {
+        try {
+            GeocodingService.Place geo = geocodingService.lookup(place);
+            if (geo == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Place not found: " + place));
+            }
+            return ResponseEntity.ok(geo);
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.BAD_GATEWAY)
+                    .body(Map.of("error", "Geocoding provider error", "reason", e.getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", "Interrupted"));
+        }
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<?> stats() {
+        return ResponseEntity.ok(geocodingService.stats());
+    }
+}
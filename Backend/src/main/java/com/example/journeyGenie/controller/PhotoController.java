@@ -72,4 +72,9 @@ public class PhotoController {
 
         return photoService.upload(file, dayid, request);
     }
+
+    @GetMapping("/{id}/status")
+    public ResponseEntity<?> status(@PathVariable("id") Long id, HttpServletRequest request) {
+        return photoService.getStatus(id, request);
+    }
 }
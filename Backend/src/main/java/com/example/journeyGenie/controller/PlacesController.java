@@ -0,0 +1,42 @@
+package com.example.journeyGenie.controller;
+
+import com.example.journeyGenie.service.GazetteerService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * GET /api/places/suggest?q=cox&limit=8
+ * Returns:
+ * {
+ *   "query": "cox",
+ *   "ready": true,
+ *   "results": [
+ *     { "name": "Cox's Bazar", "country": "BD", "lat": 21.45, "lon": 91.97, "population": 253788 }
+ *   ]
+ * }
+ * Served from the in-process gazetteer; "ready" is false (and results empty) until it has loaded.
+ */
+@RestController
+@RequestMapping("/api/places")
+public class PlacesController {
+
+    @Autowired
+    private GazetteerService gazetteerService;
+
+    @GetMapping("/suggest")
+    public ResponseEntity<?> suggest(@RequestParam String q, @RequestParam(defaultValue = "8") int limit) {
+        return ResponseEntity.ok(Map.of(
+                "query", q,
+                "ready", gazetteerService.isReady(),
+                "results", gazetteerService.suggest(q, limit)
+        ));
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<?> stats() {
+        return ResponseEntity.ok(gazetteerService.stats());
+    }
+}
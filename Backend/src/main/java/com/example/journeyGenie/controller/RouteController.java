@@ -1,138 +1,181 @@
 package com.example.journeyGenie.controller;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.example.journeyGenie.service.DistanceMatrixService;
+import com.example.journeyGenie.service.GeocodingService;
+import com.example.journeyGenie.service.RouteGeometry;
+import com.example.journeyGenie.service.RouteService;
+import com.example.journeyGenie.service.TourRouteService;
+import com.example.journeyGenie.util.AppEnv;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.net.URI;
+import java.io.IOException;
 import java.net.http.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @RestController
 @RequestMapping("/api/route")
 public class RouteController {
 
-    private final HttpClient http = HttpClient.newHttpClient();
-    private final ObjectMapper om = new ObjectMapper();
+    @Autowired
+    private GeocodingService geocodingService;
 
+    @Autowired
+    private RouteService routeService;
+
+    @Autowired
+    private TourRouteService tourRouteService;
+
+    @Autowired
+    private DistanceMatrixService distanceMatrixService;
+
+    /**
+     * Both geocodes go out together and the OSRM call follows as soon as they are
+     * in, all under one ROUTE_DEADLINE_MS deadline. The servlet thread is released
+     * while the upstream calls are in flight.
+     *
+     * With zoom (0-22) the line is simplified to what is visible at that map zoom;
+     * without it the full OSRM geometry is returned. format=polyline returns a
+     * Google encoded polyline in "polyline" instead of the "latlngs" array.
+     */
     @GetMapping
-    public ResponseEntity<?> getRoute(
+    public CompletableFuture<ResponseEntity<?>> getRoute(
             @RequestParam String start,   // place name
             @RequestParam String end,     // place name
-            @RequestParam(defaultValue = "driving") String mode // driving|walking|cycling
+            @RequestParam(defaultValue = "driving") String mode, // driving|walking|cycling
+            @RequestParam(required = false) Integer zoom,
+            @RequestParam(defaultValue = "latlngs") String format // latlngs|polyline
     ) {
-        try {
-            // 1) Geocode start & end (Open-Meteo Geocoding API — free, no key)
-            var startGeo = geocode(start);
-            var endGeo   = geocode(end);
-            if (startGeo == null) {
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "Start location not found"));
-            }
-            if (endGeo == null) {
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "End location not found"));
-            }
-
-            // 2) Route (OSRM public server – free, no key)
-            String profile = switch (mode.toLowerCase()) {
-                case "walking" -> "foot";
-                case "cycling" -> "bike";
-                default -> "car";
-            };
-            // OSRM expects: /route/v1/{profile}/{lon1},{lat1};{lon2},{lat2}
-            String url = String.format(
-                    "https://router.project-osrm.org/route/v1/%s/%f,%f;%f,%f?overview=full&geometries=geojson&alternatives=false&steps=false",
-                    (profile.equals("car") ? "driving" : profile.equals("foot") ? "walking" : "cycling"),
-                    startGeo.lon, startGeo.lat, endGeo.lon, endGeo.lat
-            );
-
-            HttpRequest req = HttpRequest.newBuilder(URI.create(url))
-                    .header("Accept", "application/json")
-                    .GET()
-                    .build();
-            HttpResponse<String> resp = http.send(req, HttpResponse.BodyHandlers.ofString());
-            if (resp.statusCode() != 200) {
-                return ResponseEntity.status(HttpStatus.BAD_GATEWAY)
-                        .body(Map.of("error", "Route provider error", "status", resp.statusCode(), "body", resp.body()));
-            }
-
-            JsonNode root = om.readTree(resp.body());
-            var routes = root.path("routes");
-            if (!routes.isArray() || routes.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "No route found"));
-            }
-            JsonNode r0 = routes.get(0);
-
-            double distanceM = r0.path("distance").asDouble(); // meters
-            double durationS = r0.path("duration").asDouble(); // seconds
-
-            // geometry.coordinates is [ [lon,lat], ... ]
-            var coords = r0.path("geometry").path("coordinates");
-            if (!coords.isArray() || coords.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "No geometry"));
-            }
-
-            // Convert to Leaflet-friendly [lat, lon]
-            List<List<Double>> latlngs = new ArrayList<>();
-            double minLat =  90, minLon =  180, maxLat = -90, maxLon = -180;
-            for (JsonNode p : coords) {
-                double lon = p.get(0).asDouble();
-                double lat = p.get(1).asDouble();
-                latlngs.add(List.of(lat, lon));
-                if (lat < minLat) minLat = lat;
-                if (lat > maxLat) maxLat = lat;
-                if (lon < minLon) minLon = lon;
-                if (lon > maxLon) maxLon = lon;
-            }
-
-            ObjectNode out = om.createObjectNode();
-            ObjectNode s = om.createObjectNode();
-            s.put("name", startGeo.name);
-            s.put("lat", startGeo.lat);
-            s.put("lon", startGeo.lon);
-            ObjectNode e = om.createObjectNode();
-            e.put("name", endGeo.name);
-            e.put("lat", endGeo.lat);
-            e.put("lon", endGeo.lon);
-
-            out.set("start", s);
-            out.set("end", e);
-            out.put("profile", mode.toLowerCase());
-            out.put("distanceKm", Math.round((distanceM / 1000.0) * 10.0) / 10.0);
-            out.put("durationMin", Math.round((durationS / 60.0) * 10.0) / 10.0);
-            out.set("latlngs", om.valueToTree(latlngs)); // [[lat,lon],...]
-            out.set("bounds", om.valueToTree(List.of(List.of(minLat, minLon), List.of(maxLat, maxLon)))); // [[southLat,southLon],[northLat,northLon]]
-
-            return ResponseEntity.ok(out);
-
-        } catch (Exception ex) {
-            ex.printStackTrace();
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "Failed to build route", "reason", ex.getMessage()));
+        boolean polyline = "polyline".equalsIgnoreCase(format);
+        long deadlineMs = AppEnv.getRouteDeadlineMs();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+
+        // 1) Geocode start & end concurrently (shared cache in front of the Open-Meteo Geocoding API)
+        CompletableFuture<GeocodingService.Place> startGeo = geocodingService.lookupAsync(start);
+        CompletableFuture<GeocodingService.Place> endGeo = geocodingService.lookupAsync(end);
+
+        return startGeo.thenCombine(endGeo, (s, e) -> new GeocodingService.Place[]{s, e})
+                .<ResponseEntity<?>>thenCompose(ends -> {
+                    if (ends[0] == null) {
+                        return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                                .body(Map.of("error", "Start location not found")));
+                    }
+                    if (ends[1] == null) {
+                        return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                                .body(Map.of("error", "End location not found")));
+                    }
+                    return route(ends[0], ends[1], mode, zoom, polyline, deadline);
+                })
+                .orTimeout(deadlineMs, TimeUnit.MILLISECONDS)
+                .exceptionally(RouteController::failure);
+    }
+
+    private CompletableFuture<ResponseEntity<?>> route(GeocodingService.Place startGeo, GeocodingService.Place endGeo,
+                                                       String mode, Integer zoom, boolean polyline, long deadline) {
+        // 2) Route (OSRM public server – free, no key), cached per snapped endpoint pair
+        String profile = RouteService.profile(mode);
+        long remainingMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+        return routeService.route(profile, startGeo.lat(), startGeo.lon(), endGeo.lat(), endGeo.lon(),
+                        Math.min(remainingMs, AppEnv.getUpstreamTimeoutMs()))
+                .thenApply(route -> buildRoute(startGeo, endGeo, mode, zoom, polyline, route));
+    }
+
+    private static ResponseEntity<?> buildRoute(GeocodingService.Place startGeo, GeocodingService.Place endGeo,
+                                                String mode, Integer zoom, boolean polyline,
+                                                RouteService.Route route) {
+        if (route == null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "No route found"));
+        }
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("start", Map.of("name", startGeo.name(), "lat", startGeo.lat(), "lon", startGeo.lon()));
+        out.put("end", Map.of("name", endGeo.name(), "lat", endGeo.lat(), "lon", endGeo.lon()));
+        out.put("profile", mode.toLowerCase());
+        out.put("distanceKm", Math.round((route.distanceM() / 1000.0) * 10.0) / 10.0);
+        out.put("durationMin", Math.round((route.durationS() / 60.0) * 10.0) / 10.0);
+        out.put("stale", route.stale());
+        RouteGeometry line = route.geometry();
+        if (zoom != null) {
+            line = line.simplifyForZoom(zoom);
         }
+        if (polyline) {
+            out.put("polyline", line.encodePolyline()); // Google encoded polyline, precision 5
+        } else {
+            out.put("latlngs", line); // [[lat,lon],...]
+        }
+        out.put("points", line.size());
+        if (line.size() != route.points()) out.put("sourcePoints", route.points());
+        out.put("bounds", route.bounds()); // [[southLat,southLon],[northLat,northLon]], from the full line
+
+        return ResponseEntity.ok(out);
     }
 
-    // ————— helpers —————
+    /**
+     * The whole route of one of the caller's tours: start, destination, each day's
+     * stops and the way back, with distance, duration and geometry per leg. The line
+     * is simplified for the given map zoom, which defaults to a whole-trip view.
+     */
+    @GetMapping("/tour/{tourId}")
+    public CompletableFuture<ResponseEntity<?>> getTourRoute(
+            @PathVariable Long tourId,
+            @RequestParam(defaultValue = "driving") String mode, // driving|walking|cycling
+            @RequestParam(defaultValue = "12") int zoom,
+            @RequestParam(defaultValue = "latlngs") String format, // latlngs|polyline
+            HttpServletRequest request
+    ) {
+        long deadlineMs = AppEnv.getRouteDeadlineMs();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+        return tourRouteService.route(tourId, mode, zoom, "polyline".equalsIgnoreCase(format), deadline, request)
+                .orTimeout(deadlineMs, TimeUnit.MILLISECONDS)
+                .exceptionally(RouteController::failure);
+    }
 
-    private static class Geo {
-        final String name; final double lat; final double lon;
-        Geo(String name, double lat, double lon){ this.name=name; this.lat=lat; this.lon=lon; }
+    /**
+     * Travel time and distance between every pair of stops of one day (1-based) of
+     * the caller's tour, fetched as a single table. "estimated" counts cells that
+     * are straight-line estimates because the provider was unavailable.
+     */
+    @GetMapping("/tour/{tourId}/day/{day}/matrix")
+    public CompletableFuture<ResponseEntity<?>> getDayMatrix(
+            @PathVariable Long tourId,
+            @PathVariable int day,
+            @RequestParam(defaultValue = "driving") String mode, // driving|walking|cycling
+            HttpServletRequest request
+    ) {
+        long deadlineMs = AppEnv.getRouteDeadlineMs();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+        return tourRouteService.dayMatrix(tourId, day, mode, deadline, request)
+                .orTimeout(deadlineMs, TimeUnit.MILLISECONDS)
+                .exceptionally(RouteController::failure);
     }
 
-    private Geo geocode(String place) throws Exception {
-        String url = "https://geocoding-api.open-meteo.com/v1/search?count=1&name=" + java.net.URLEncoder.encode(place, java.nio.charset.StandardCharsets.UTF_8);
-        HttpRequest req = HttpRequest.newBuilder(URI.create(url)).header("Accept", "application/json").GET().build();
-        HttpResponse<String> resp = http.send(req, HttpResponse.BodyHandlers.ofString());
-        if (resp.statusCode() != 200) return null;
-        JsonNode root = om.readTree(resp.body());
-        var results = root.path("results");
-        if (!results.isArray() || results.isEmpty()) return null;
-        JsonNode r0 = results.get(0);
-        String name = r0.path("name").asText(place);
-        double lat = r0.path("latitude").asDouble();
-        double lon = r0.path("longitude").asDouble();
-        return new Geo(name, lat, lon);
+    @GetMapping("/stats")
+    public ResponseEntity<?> stats() {
+        return ResponseEntity.ok(Map.of(
+                "routes", routeService.stats(),
+                "matrix", distanceMatrixService.stats()
+        ));
+    }
+
+    private static ResponseEntity<?> failure(Throwable t) {
+        Throwable ex = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+        if (ex instanceof TimeoutException || ex instanceof HttpTimeoutException) {
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                    .body(Map.of("error", "Route lookup timed out"));
+        }
+        if (ex instanceof IOException) {
+            return ResponseEntity.status(HttpStatus.BAD_GATEWAY)
+                    .body(Map.of("error", "Upstream provider error", "reason", String.valueOf(ex.getMessage())));
+        }
+        ex.printStackTrace();
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "Failed to build route", "reason", String.valueOf(ex.getMessage())));
     }
 }
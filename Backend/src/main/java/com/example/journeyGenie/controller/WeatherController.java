@@ -1,16 +1,13 @@
 package com.example.journeyGenie.controller;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.journeyGenie.service.ForecastService;
+import com.example.journeyGenie.service.GeocodingService;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.net.URI;
-import java.net.URLEncoder;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
+import java.net.http.HttpTimeoutException;
 import java.time.Clock;
 import java.time.LocalDate;
 import java.util.*;
@@ -23,6 +20,7 @@ import java.util.*;
  *   "latitude": 48.86,
  *   "longitude": 2.35,
  *   "note": "Forecast shown only up to 2025-08-30 (provider limit).",  // when clamped
+ *   "stale": false,   // true when some days are from the previous model run (a refresh is under way)
  *   "days": [
  *     {
  *       "date": "2025-08-20",
@@ -42,8 +40,11 @@ import java.util.*;
 @RequestMapping("/api/weather")
 public class WeatherController {
 
-    private final HttpClient httpClient = HttpClient.newHttpClient();
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    @Autowired
+    private GeocodingService geocodingService;
+
+    @Autowired
+    private ForecastService forecastService;
 
     @GetMapping
     public ResponseEntity<?> getWeather(
@@ -81,73 +82,38 @@ public class WeatherController {
             }
 
             // 1) Geocode
-            String geoUrl = "https://geocoding-api.open-meteo.com/v1/search?name="
-                    + URLEncoder.encode(place, StandardCharsets.UTF_8)
-                    + "&count=1";
-
-            HttpRequest geoReq = HttpRequest.newBuilder()
-                    .uri(URI.create(geoUrl))
-                    .GET()
-                    .build();
-
-            HttpResponse<String> geoResp = httpClient.send(geoReq, HttpResponse.BodyHandlers.ofString());
-            if (geoResp.statusCode() != 200) {
-                return ResponseEntity.status(geoResp.statusCode()).body(geoResp.body());
+            GeocodingService.Place geo;
+            try {
+                geo = geocodingService.lookup(place);
+            } catch (HttpTimeoutException e) {
+                return ResponseEntity.status(504).body("Geocoding timed out");
+            } catch (IOException e) {
+                return ResponseEntity.status(502).body("Geocoding failed: " + e.getMessage());
             }
-            JsonNode geo = objectMapper.readTree(geoResp.body());
-            JsonNode first = geo.path("results").isArray() && geo.path("results").size() > 0
-                    ? geo.path("results").get(0) : null;
-
-            if (first == null) {
+            if (geo == null) {
                 return ResponseEntity.status(404).body("Destination not found: " + place);
             }
 
-            double lat = first.path("latitude").asDouble();
-            double lon = first.path("longitude").asDouble();
-            String resolvedName = first.path("name").asText(place);
-
-            // 2) Forecast (daily)
-            String fcUrl = String.format(
-                    Locale.ROOT,
-                    "https://api.open-meteo.com/v1/forecast?latitude=%f&longitude=%f&start_date=%s&end_date=%s" +
-                            "&daily=temperature_2m_max,temperature_2m_min,precipitation_sum," +
-                            "precipitation_probability_max,wind_speed_10m_max,wind_gusts_10m_max,uv_index_max,weathercode" +
-                            "&windspeed_unit=kmh&timezone=auto",
-                    lat, lon, usedStart, usedEnd
-            );
-
-            HttpRequest fcReq = HttpRequest.newBuilder()
-                    .uri(URI.create(fcUrl))
-                    .GET()
-                    .build();
-
-            HttpResponse<String> fcResp = httpClient.send(fcReq, HttpResponse.BodyHandlers.ofString());
-            if (fcResp.statusCode() != 200) {
-                return ResponseEntity.status(fcResp.statusCode()).body(fcResp.body());
-            }
-
-            JsonNode daily = objectMapper.readTree(fcResp.body()).path("daily");
-            int n = daily.path("time").size();
-            List<Map<String, Object>> days = new ArrayList<>(n);
-            for (int i = 0; i < n; i++) {
-                Map<String, Object> row = new HashMap<>();
-                row.put("date",         daily.path("time").get(i).asText());
-                row.put("tMax",         daily.path("temperature_2m_max").get(i).asDouble());
-                row.put("tMin",         daily.path("temperature_2m_min").get(i).asDouble());
-                row.put("precipMm",     daily.path("precipitation_sum").get(i).asDouble());
-                row.put("precipProb",   daily.path("precipitation_probability_max").get(i).asDouble());
-                row.put("windMaxKph",   daily.path("wind_speed_10m_max").get(i).asDouble());
-                row.put("gustMaxKph",   daily.path("wind_gusts_10m_max").get(i).asDouble());
-                row.put("uvMax",        daily.path("uv_index_max").get(i).asDouble());
-                row.put("weatherCode",  daily.path("weathercode").get(i).asInt());
-                days.add(row);
+            double lat = geo.lat();
+            double lon = geo.lon();
+            String resolvedName = geo.name();
+
+            // 2) Forecast (daily), assembled from cached days where possible
+            ForecastService.Forecast forecast;
+            try {
+                forecast = forecastService.daily(lat, lon, usedStart, usedEnd);
+            } catch (HttpTimeoutException e) {
+                return ResponseEntity.status(504).body("Forecast provider timed out");
+            } catch (IOException e) {
+                return ResponseEntity.status(502).body("Forecast fetch failed: " + e.getMessage());
             }
 
             out.put("place", resolvedName);
             out.put("latitude", lat);
             out.put("longitude", lon);
             if (note.length() > 0) out.put("note", note.toString().trim());
-            out.put("days", days);
+            out.put("stale", forecast.stale());
+            out.put("days", forecast.days());
 
             return ResponseEntity.ok(out);
         } catch (Exception e) {
@@ -155,4 +121,12 @@ public class WeatherController {
             return ResponseEntity.status(500).body("Weather fetch failed: " + e.getMessage());
         }
     }
+
+    @GetMapping("/stats")
+    public ResponseEntity<?> stats() {
+        return ResponseEntity.ok(Map.of(
+                "geocoding", geocodingService.stats(),
+                "forecast", forecastService.stats()
+        ));
+    }
 }
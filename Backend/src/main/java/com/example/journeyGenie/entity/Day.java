@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.SQLRestriction;
 
 import java.util.List;
 
@@ -28,11 +29,15 @@ public class Day {
     @Column(nullable = false)
     private String date;
 
+    // plan order: activities are saved in the order the planner listed them
     @OneToMany(mappedBy = "day", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("id ASC")
     @JsonManagedReference
     private List<Activity> activities;
 
+    // only uploaded photos: pending and failed ones have no link yet (see PhotoIngestService)
     @OneToMany(mappedBy = "day", cascade = CascadeType.ALL, orphanRemoval = true)
+    @SQLRestriction("status = 'ready'")
     @JsonManagedReference
     private List<Photo> photos;
 }
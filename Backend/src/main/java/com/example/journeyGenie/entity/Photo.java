@@ -19,6 +19,25 @@ public class Photo {
 
     private String link;
 
+    // pending -> ready | failed (uploads are pushed to storage in the background)
+    @Column(nullable = false, columnDefinition = "VARCHAR(255) DEFAULT 'ready'")
+    private String status = "ready";
+
+    // instance (host and spool directory) holding the upload while pending, and since when
+    private String spoolOwner;
+
+    private Long pendingSince;
+
+    // best landmark match, filled in by the tour tagging job (null until tagged)
+    private String landmark;
+
+    private String landmarkLink;
+
+    // top-1 probability, 0..1
+    private Float landmarkConfidence;
+
+    private String landmarkModel;
+
     @ManyToOne(optional = false)
     @JoinColumn(name = "dayid", nullable = false)
     @JsonBackReference
@@ -46,7 +46,9 @@ public class Tour {
     @Column(name = "blog", columnDefinition = "TEXT")   // ✅ TEXT in Postgres
     private String blog;
 
+    // dates are yyyy-MM-dd, so this is calendar order; route day numbers (day/{day}/matrix) index this list
     @OneToMany(mappedBy = "tour", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("date ASC, id ASC")
     @JsonManagedReference
     private List<Day> days;
 }
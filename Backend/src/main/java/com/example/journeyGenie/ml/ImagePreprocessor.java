@@ -0,0 +1,145 @@
+package com.example.journeyGenie.ml;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.nio.FloatBuffer;
+
+/**
+ * Bilinear resize + ImageNet normalization straight from BufferedImage pixels
+ * into a CHW float buffer, replacing the resize/toTensor/normalize NDArray chain.
+ *
+ * Sampling matches NDImageUtils.resize (bilinear, half-pixel centers, no antialias).
+ * Only the two source rows needed per output row are read.
+ */
+class ImagePreprocessor {
+
+    private final int width, height;
+    private final float[] scale = new float[3];
+    private final float[] bias = new float[3];
+
+    ImagePreprocessor(int width, int height, float[] mean, float[] std) {
+        this.width = width;
+        this.height = height;
+        for (int c = 0; c < 3; c++) {
+            // (p / 255 - mean) / std  ==  p * scale + bias
+            scale[c] = 1f / (255f * std[c]);
+            bias[c] = -mean[c] / std[c];
+        }
+    }
+
+    int width() {
+        return width;
+    }
+
+    int height() {
+        return height;
+    }
+
+    /** Floats written per image: 3 * height * width. */
+    int imageSize() {
+        return 3 * height * width;
+    }
+
+    /** Writes the image as normalized RGB planes starting at dst[offset]. */
+    void write(BufferedImage img, FloatBuffer dst, int offset) {
+        int srcW = img.getWidth(), srcH = img.getHeight();
+        int plane = width * height;
+
+        // horizontal taps are the same for every row
+        int[] x0 = new int[width], x1 = new int[width];
+        float[] wx = new float[width];
+        float sx = srcW / (float) width;
+        for (int x = 0; x < width; x++) {
+            float fx = Math.max(0f, (x + 0.5f) * sx - 0.5f);
+            x0[x] = Math.min((int) fx, srcW - 1);
+            x1[x] = Math.min(x0[x] + 1, srcW - 1);
+            wx[x] = fx - (int) fx;
+        }
+
+        int[] rowA = new int[srcW], rowB = new int[srcW];
+        int loadedA = -1, loadedB = -1;
+        float sy = srcH / (float) height;
+
+        for (int y = 0; y < height; y++) {
+            float fy = Math.max(0f, (y + 0.5f) * sy - 0.5f);
+            int y0 = Math.min((int) fy, srcH - 1);
+            int y1 = Math.min(y0 + 1, srcH - 1);
+            float wy = fy - (int) fy;
+
+            if (loadedA != y0) {
+                if (loadedB == y0) {          // slide the window down instead of re-reading
+                    int[] t = rowA; rowA = rowB; rowB = t;
+                    loadedB = -1;
+                } else {
+                    readRow(img, y0, rowA);
+                }
+                loadedA = y0;
+            }
+            if (loadedB != y1) {
+                readRow(img, y1, rowB);
+                loadedB = y1;
+            }
+
+            int base = offset + y * width;
+            for (int x = 0; x < width; x++) {
+                int a = rowA[x0[x]], b = rowA[x1[x]], c = rowB[x0[x]], d = rowB[x1[x]];
+                float w = wx[x];
+                for (int ch = 0; ch < 3; ch++) {
+                    int shift = 16 - 8 * ch; // R, G, B
+                    float top = ((a >> shift) & 0xFF) + (((b >> shift) & 0xFF) - ((a >> shift) & 0xFF)) * w;
+                    float bot = ((c >> shift) & 0xFF) + (((d >> shift) & 0xFF) - ((c >> shift) & 0xFF)) * w;
+                    float v = top + (bot - top) * wy;
+                    dst.put(base + ch * plane + x, v * scale[ch] + bias[ch]);
+                }
+            }
+        }
+    }
+
+    /** Reads one row as packed 0xRRGGBB ints, reading the raster directly for the common layouts. */
+    private static void readRow(BufferedImage img, int y, int[] out) {
+        int w = img.getWidth();
+        DataBuffer buffer = img.getRaster().getDataBuffer();
+        boolean plain = img.getRaster().getParent() == null && img.getRaster().getMinX() == 0
+                && img.getRaster().getMinY() == 0;
+
+        if (plain && buffer instanceof DataBufferByte bytes && buffer.getNumBanks() == 1) {
+            byte[] data = bytes.getData();
+            switch (img.getType()) {
+                case BufferedImage.TYPE_3BYTE_BGR -> {
+                    int p = y * w * 3;
+                    for (int x = 0; x < w; x++, p += 3) {
+                        out[x] = (data[p + 2] & 0xFF) << 16 | (data[p + 1] & 0xFF) << 8 | (data[p] & 0xFF);
+                    }
+                    return;
+                }
+                case BufferedImage.TYPE_4BYTE_ABGR -> {
+                    int p = y * w * 4;
+                    for (int x = 0; x < w; x++, p += 4) {
+                        out[x] = (data[p + 3] & 0xFF) << 16 | (data[p + 2] & 0xFF) << 8 | (data[p + 1] & 0xFF);
+                    }
+                    return;
+                }
+                case BufferedImage.TYPE_BYTE_GRAY -> {
+                    int p = y * w;
+                    for (int x = 0; x < w; x++) {
+                        int g = data[p + x] & 0xFF;
+                        out[x] = g << 16 | g << 8 | g;
+                    }
+                    return;
+                }
+                default -> { }
+            }
+        }
+        if (plain && buffer instanceof DataBufferInt ints && buffer.getNumBanks() == 1) {
+            int type = img.getType();
+            if (type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB) {
+                System.arraycopy(ints.getData(), y * w, out, 0, w);
+                return;
+            }
+        }
+        // anything else (indexed, 16-bit, CMYK ...) goes through the color model
+        img.getRGB(0, y, w, 1, out, 0, w);
+    }
+}
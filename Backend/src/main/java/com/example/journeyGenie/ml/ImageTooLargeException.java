@@ -0,0 +1,9 @@
+package com.example.journeyGenie.ml;
+
+/** An upload over LANDMARK_MAX_UPLOAD_MB or LANDMARK_MAX_IMAGE_MEGAPIXELS; answered with 413. */
+public class ImageTooLargeException extends RuntimeException {
+
+    public ImageTooLargeException(String message) {
+        super(message);
+    }
+}
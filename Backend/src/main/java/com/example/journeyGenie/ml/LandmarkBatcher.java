@@ -0,0 +1,228 @@
+package com.example.journeyGenie.ml;
+
+import ai.djl.inference.Predictor;
+import com.example.journeyGenie.ml.LandmarkInferenceService.PreprocessTranslator.Batch;
+import com.example.journeyGenie.util.Debug;
+import com.example.journeyGenie.util.LatencyStats;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects concurrent prediction requests for up to maxWaitMs (or maxBatch
+ * images) and runs them as one forward pass. Each image is preprocessed
+ * straight into its slot of the dispatcher's NCHW input buffer, and the
+ * output rows are scattered back per request.
+ *
+ * One dispatcher thread runs per pooled predictor, so batches for different
+ * predictors are formed and executed in parallel. Each dispatcher owns one
+ * direct input buffer that is reused for every batch it runs.
+ */
+class LandmarkBatcher implements AutoCloseable {
+
+    // batches are tried again this long after a batched forward pass failed
+    private static final long BATCH_RETRY_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private static final class Pending {
+        final BufferedImage image;
+        final long enqueuedAt = System.nanoTime();
+        final CompletableFuture<float[]> result = new CompletableFuture<>();
+
+        Pending(BufferedImage image) {
+            this.image = image;
+        }
+    }
+
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final PredictorPool<Batch, float[][]> predictors;
+    private final ImagePreprocessor preprocessor;
+    private final int maxBatch;
+    private final long maxWaitNanos;
+    private final List<Thread> dispatchers = new ArrayList<>();
+
+    // decided once per model by probeBatching(); off until then and for models exported with a fixed batch of 1
+    private volatile boolean batchingSupported;
+    // a failed batch at runtime (ORT error, out of memory) only pauses batching until this System.nanoTime()
+    private volatile long batchingPausedUntil = System.nanoTime();
+    private volatile boolean running = true;
+
+    private final LatencyStats queueStats = new LatencyStats();
+    private final LatencyStats preprocessStats = new LatencyStats();
+    private final LatencyStats batchStats = new LatencyStats();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder images = new LongAdder();
+    private final LongAdder batchFailures = new LongAdder();
+
+    LandmarkBatcher(PredictorPool<Batch, float[][]> predictors, ImagePreprocessor preprocessor,
+                    int maxBatch, long maxWaitMs) {
+        this.predictors = predictors;
+        this.preprocessor = preprocessor;
+        this.maxBatch = Math.max(1, maxBatch);
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxWaitMs));
+        for (int i = 0; i < predictors.size(); i++) {
+            Thread t = new Thread(this::dispatchLoop, "landmark-batcher-" + (i + 1));
+            t.setDaemon(true);
+            t.start();
+            dispatchers.add(t);
+        }
+    }
+
+    CompletableFuture<float[]> submit(BufferedImage image) {
+        Pending pending = new Pending(image);
+        queue.add(pending);
+        return pending.result;
+    }
+
+    private void dispatchLoop() {
+        List<Pending> batch = new ArrayList<>(maxBatch);
+        FloatBuffer input = ByteBuffer.allocateDirect(maxBatch * preprocessor.imageSize() * Float.BYTES)
+                .order(ByteOrder.nativeOrder())
+                .asFloatBuffer();
+        while (running) {
+            try {
+                Pending first = queue.take();
+                batch.add(first);
+                long deadline = first.enqueuedAt + maxWaitNanos;
+                int limit = batching() ? maxBatch : 1;
+                while (batch.size() < limit) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                batch.removeIf(p -> p.result.isDone()); // caller already gave up
+                if (!batch.isEmpty()) {
+                    run(batch, input);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                batch.forEach(p -> p.result.completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void run(List<Pending> batch, FloatBuffer input) throws Exception {
+        long now = System.nanoTime();
+        batch.forEach(p -> queueStats.record(now - p.enqueuedAt));
+
+        // dispatchers == pool size, so this only waits while a predictor is being returned
+        Predictor<Batch, float[][]> predictor = predictors.borrow(1, TimeUnit.MINUTES);
+        try {
+            long start = System.nanoTime();
+            float[][] outputs;
+            try {
+                outputs = predictor.predict(fill(input, batch, 0, batch.size()));
+            } catch (Exception | OutOfMemoryError e) {
+                if (batch.size() == 1 || causedBy(e, InterruptedException.class)) throw e;
+                batchFailures.increment();
+                batchingPausedUntil = System.nanoTime() + BATCH_RETRY_NANOS;
+                Debug.log("Batched landmark inference failed, running single images for "
+                        + TimeUnit.NANOSECONDS.toSeconds(BATCH_RETRY_NANOS) + " s: " + e);
+                for (int i = 0; i < batch.size(); i++) {
+                    batch.get(i).result.complete(predictor.predict(fill(input, batch, i, 1))[0]);
+                }
+                return;
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result.complete(outputs[i]);
+            }
+            batchStats.recordSince(start);
+            batches.increment();
+            images.add(batch.size());
+        } finally {
+            predictors.release(predictor);
+        }
+    }
+
+    private boolean batching() {
+        return batchingSupported && System.nanoTime() - batchingPausedUntil >= 0;
+    }
+
+    /**
+     * Runs the sample twice as one forward pass and turns batching on only if the
+     * model answers with two rows. Called once while the model warms up, so a model
+     * exported with a fixed batch of 1 is found before it sees traffic.
+     */
+    boolean probeBatching(BufferedImage sample) throws Exception {
+        boolean supported = false;
+        if (maxBatch > 1) {
+            FloatBuffer input = ByteBuffer.allocateDirect(2 * preprocessor.imageSize() * Float.BYTES)
+                    .order(ByteOrder.nativeOrder())
+                    .asFloatBuffer();
+            List<Pending> probe = List.of(new Pending(sample), new Pending(sample));
+            Predictor<Batch, float[][]> predictor = predictors.borrow(1, TimeUnit.MINUTES);
+            try {
+                supported = predictor.predict(fill(input, probe, 0, 2)).length == 2;
+            } catch (Exception e) {
+                if (causedBy(e, InterruptedException.class)) throw e;
+                Debug.log("Model does not accept a batch of 2, running single images: " + e.getMessage());
+            } finally {
+                predictors.release(predictor);
+            }
+        }
+        batchingSupported = supported;
+        return supported;
+    }
+
+    private static boolean causedBy(Throwable e, Class<? extends Throwable> type) {
+        for (Throwable t = e; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (type.isInstance(t)) return true;
+        }
+        return false;
+    }
+
+    /** Preprocesses batch[from, from + count) into the head of the input buffer. */
+    private Batch fill(FloatBuffer input, List<Pending> batch, int from, int count) {
+        long start = System.nanoTime();
+        int size = preprocessor.imageSize();
+        for (int i = 0; i < count; i++) {
+            preprocessor.write(batch.get(from + i).image, input, i * size);
+        }
+        preprocessStats.recordSince(start);
+        FloatBuffer view = input.duplicate();
+        view.position(0).limit(count * size);
+        return new Batch(view.slice(), count);
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        long b = batches.sum();
+        out.put("maxBatch", maxBatch);
+        out.put("maxWaitMs", TimeUnit.NANOSECONDS.toMillis(maxWaitNanos));
+        out.put("batchingSupported", batchingSupported);
+        out.put("batchingPausedMs", Math.max(0, TimeUnit.NANOSECONDS.toMillis(batchingPausedUntil - System.nanoTime())));
+        out.put("batchFailures", batchFailures.sum());
+        out.put("queued", queue.size());
+        out.put("batches", b);
+        out.put("avgBatchSize", b == 0 ? 0 : Math.round(images.sum() * 100.0 / b) / 100.0);
+        out.put("queueWait", queueStats.snapshot());
+        out.put("preprocess", preprocessStats.snapshot());
+        out.put("forwardPass", batchStats.snapshot());
+        return out;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        dispatchers.forEach(Thread::interrupt);
+        Pending p;
+        while ((p = queue.poll()) != null) {
+            p.result.cancel(false);
+        }
+    }
+}
@@ -1,15 +1,24 @@
 package com.example.journeyGenie.ml;
 
+import com.example.journeyGenie.util.AppEnv;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/landmark")
@@ -19,16 +28,54 @@ public class LandmarkController {
     private LandmarkInferenceService inferenceService;
 
     @Autowired
-    private LandmarkMapping mapping;
+    private LandmarkEngine engine;
+
+    @Autowired
+    private LandmarkImageDecoder decoder;
+
+    @Autowired
+    private LandmarkResultCache resultCache;
+
+    @Autowired
+    private LandmarkTaggingService taggingService;
+
+    @Autowired
+    private LandmarkRetrievalService retrievalService;
 
     @PostMapping(value = "/predict", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<?> predictLandmark(HttpServletRequest request, @RequestParam("file") MultipartFile file) {
+    public ResponseEntity<?> predictLandmark(HttpServletRequest request, @RequestParam("file") MultipartFile file,
+                                             @RequestParam(value = "k", required = false) Integer k) {
         try {
-            BufferedImage bufferedImage = ImageIO.read(file.getInputStream());
+            int topK = Math.max(1, Math.min(k != null ? k : AppEnv.getLandmarkTopK(),
+                    LandmarkInferenceService.MAX_TOP_K));
+
+            decoder.checkSize(file.getSize());   // before hashing an upload we would refuse anyway
+
+            // same bytes as an earlier upload -> no decode, no inference
+            String fingerprint;
+            try (InputStream in = file.getInputStream()) {
+                fingerprint = LandmarkResultCache.fingerprint(in);
+            }
+            // default or canary version, decided once so cache and inference agree
+            String version = inferenceService.routeVersion();
+            if (version == null) {
+                return inferenceService.notReady();
+            }
+            LandmarkResult cached = resultCache.get(fingerprint, version);
+            if (cached != null) {
+                ResponseEntity<?> response = inferenceService.respond(cached, topK);
+                if (response != null) return response;
+            }
+
+            // decoded at roughly model resolution, not full size
+            BufferedImage bufferedImage = decoder.decode(file.getInputStream(), file.getSize(),
+                    LandmarkInferenceService.INPUT_SIZE);
             if (bufferedImage == null) {
                 return ResponseEntity.badRequest().body("Invalid image file.");
             }
-            return inferenceService.predict(request, bufferedImage, mapping);
+            return inferenceService.predict(request, bufferedImage, version, topK, fingerprint);
+        } catch (ImageTooLargeException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(e.getMessage());
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.status(HttpServletResponse.SC_INTERNAL_SERVER_ERROR)
@@ -36,4 +83,164 @@ public class LandmarkController {
         }
     }
 
+    /** Several photos in one request ("files" parts); answers one entry per file, in order. */
+    @PostMapping(value = "/predict/batch", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> predictBatch(@RequestParam("files") List<MultipartFile> files,
+                                          @RequestParam(value = "k", required = false) Integer k) {
+        int maxFiles = AppEnv.getLandmarkMaxBatchFiles();
+        if (files.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "No files provided"));
+        }
+        if (files.size() > maxFiles) {
+            return ResponseEntity.badRequest().body(Map.of("error", "At most " + maxFiles + " files per request"));
+        }
+        int topK = Math.max(1, Math.min(k != null ? k : AppEnv.getLandmarkTopK(),
+                LandmarkInferenceService.MAX_TOP_K));
+        return inferenceService.predictAll(files, topK);
+    }
+
+    /** Nearest reference photos in the embedding index; finds landmarks the classifier was never trained on. */
+    @PostMapping(value = "/retrieve", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> retrieve(@RequestParam("file") MultipartFile file,
+                                      @RequestParam(value = "k", required = false) Integer k) {
+        if (!retrievalService.isReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(retrievalService.stats());
+        }
+        try {
+            int topK = Math.max(1, Math.min(k != null ? k : AppEnv.getLandmarkTopK(),
+                    LandmarkInferenceService.MAX_TOP_K));
+            BufferedImage image = decoder.decode(file.getInputStream(), file.getSize(),
+                    LandmarkInferenceService.INPUT_SIZE);
+            if (image == null) {
+                return ResponseEntity.badRequest().body("Invalid image file.");
+            }
+            List<Map<String, Object>> matches = retrievalService.search(image, topK);
+            Map<String, Object> response = new LinkedHashMap<>();
+            if (!matches.isEmpty()) response.putAll(matches.get(0));
+            response.put("matches", matches);
+            return ResponseEntity.ok(response);
+        } catch (ImageTooLargeException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(e.getMessage());
+        } catch (TimeoutException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("error", "Landmark service is busy, please retry"));
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.status(HttpServletResponse.SC_INTERNAL_SERVER_ERROR)
+                    .body("Error processing image.");
+        }
+    }
+
+    /** Adds a reference photo of a landmark to the embedding index (admin). */
+    @PostMapping(value = "/index", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> addToIndex(@RequestHeader(value = "X-Admin-Token", required = false) String token,
+                                        @RequestParam("file") MultipartFile file,
+                                        @RequestParam("name") String name,
+                                        @RequestParam(value = "link", required = false) String link) {
+        return admin(token, () -> {
+            try {
+                BufferedImage image = decoder.decode(file.getInputStream(), file.getSize(),
+                        LandmarkInferenceService.INPUT_SIZE);
+                if (image == null) {
+                    return ResponseEntity.badRequest().body(Map.of("error", "Invalid image file."));
+                }
+                int entries = retrievalService.add(image, name.trim(), link);
+                return ResponseEntity.ok(Map.of("name", name.trim(), "entries", entries));
+            } catch (ImageTooLargeException e) {
+                return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of("error", e.getMessage()));
+            } catch (IllegalStateException e) {
+                throw e;
+            } catch (Exception e) {
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", String.valueOf(e.getMessage())));
+            }
+        });
+    }
+
+    /** Tags every stored photo of the tour in the background; retag=true also redoes tagged photos. */
+    @PostMapping("/tours/{tourId}/tags")
+    public ResponseEntity<?> tagTour(HttpServletRequest request, @PathVariable Long tourId,
+                                     @RequestParam(value = "retag", defaultValue = "false") boolean retag) {
+        return taggingService.start(tourId, retag, request);
+    }
+
+    @GetMapping("/tours/{tourId}/tags")
+    public ResponseEntity<?> tagStatus(HttpServletRequest request, @PathVariable Long tourId) {
+        return taggingService.status(tourId, request);
+    }
+
+    /** 200 once the model is loaded and warmed up, 503 while loading or after a failed load. */
+    @GetMapping("/ready")
+    public ResponseEntity<?> ready() {
+        return ResponseEntity.status(inferenceService.isReady() ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE)
+                .body(inferenceService.readiness());
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<?> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>(inferenceService.stats());
+        stats.put("retrieval", retrievalService.stats());
+        return ResponseEntity.ok(stats);
+    }
+
+    // ---- model management: requires the X-Admin-Token header to match LANDMARK_ADMIN_TOKEN ----
+
+    @GetMapping("/models")
+    public ResponseEntity<?> models(@RequestHeader(value = "X-Admin-Token", required = false) String token) {
+        return admin(token, () -> ResponseEntity.ok(engine.stats()));
+    }
+
+    /** Loads and warms a version in the background; activate=true makes it the default once ready. */
+    @PostMapping("/models/{version}/load")
+    public ResponseEntity<?> loadModel(@RequestHeader(value = "X-Admin-Token", required = false) String token,
+                                       @PathVariable String version,
+                                       @RequestParam(value = "activate", defaultValue = "false") boolean activate) {
+        return admin(token, () -> {
+            engine.load(version, activate);
+            return ResponseEntity.accepted().body(Map.of("message", "Loading " + version, "version", version));
+        });
+    }
+
+    @PostMapping("/models/{version}/default")
+    public ResponseEntity<?> setDefault(@RequestHeader(value = "X-Admin-Token", required = false) String token,
+                                        @PathVariable String version) {
+        return admin(token, () -> {
+            engine.setDefault(version);
+            return ResponseEntity.ok(engine.stats());
+        });
+    }
+
+    /** Routes percent of the predictions to version; percent=0 stops the canary. */
+    @PostMapping("/models/{version}/candidate")
+    public ResponseEntity<?> setCandidate(@RequestHeader(value = "X-Admin-Token", required = false) String token,
+                                          @PathVariable String version,
+                                          @RequestParam("percent") int percent) {
+        return admin(token, () -> {
+            engine.setCandidate(percent > 0 ? version : null, percent);
+            return ResponseEntity.ok(engine.stats());
+        });
+    }
+
+    @DeleteMapping("/models/{version}")
+    public ResponseEntity<?> unloadModel(@RequestHeader(value = "X-Admin-Token", required = false) String token,
+                                         @PathVariable String version) {
+        return admin(token, () -> {
+            engine.unload(version);
+            return ResponseEntity.ok(engine.stats());
+        });
+    }
+
+    private ResponseEntity<?> admin(String token, Supplier<ResponseEntity<?>> action) {
+        String expected = AppEnv.getLandmarkAdminToken();
+        if (expected.isEmpty() || token == null
+                || !MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8))) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Model management is not allowed"));
+        }
+        try {
+            return action.get();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
 }
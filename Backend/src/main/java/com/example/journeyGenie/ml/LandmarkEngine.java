@@ -0,0 +1,55 @@
+package com.example.journeyGenie.ml;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Where landmark inference runs: in this JVM ({@link LandmarkModelRegistry}) or in a
+ * separate worker process ({@link RemoteLandmarkEngine} talking to {@link LandmarkWorker}).
+ */
+public interface LandmarkEngine {
+
+    /** The version that should serve the next request (default or canary), or null while none is ready. */
+    String route();
+
+    /**
+     * Runs one image through a version and returns its top {@link LandmarkInferenceService#MAX_TOP_K} classes.
+     *
+     * @throws IllegalStateException when the version is not loaded (any more)
+     * @throws TimeoutException      when no result arrived within timeoutMs
+     */
+    LandmarkResult infer(String version, BufferedImage image, long timeoutMs) throws Exception;
+
+    /**
+     * Runs several images through a version under one deadline, in as few forward
+     * passes as the batcher allows. Entries are null for images that failed on their own.
+     *
+     * @throws IllegalStateException when the version is not loaded (any more)
+     * @throws TimeoutException      when not all results arrived within timeoutMs
+     */
+    List<LandmarkResult> inferAll(String version, List<BufferedImage> images, long timeoutMs) throws Exception;
+
+    /** Labels of a version, or null when it is not known. */
+    LandmarkMapping mapping(String version);
+
+    boolean isReady();
+
+    /** Loading state of the default version. */
+    Map<String, Object> readiness();
+
+    /** Routing plus per-version state, latency and confidence figures. */
+    Map<String, Object> stats();
+
+    // ---- model management; IllegalArgumentException for unknown versions, IllegalStateException for conflicts ----
+
+    void load(String version, boolean activate);
+
+    void setDefault(String version);
+
+    /** Sends percent of the traffic to version; a null version clears the candidate. */
+    void setCandidate(String version, int percent);
+
+    void unload(String version);
+}
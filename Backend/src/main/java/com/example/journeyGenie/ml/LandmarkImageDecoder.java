@@ -0,0 +1,78 @@
+package com.example.journeyGenie.ml;
+
+import com.example.journeyGenie.util.AppEnv;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.color.CMMException;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * Decodes uploads for the landmark model without materialising full-size photos.
+ *
+ * The header is read first to get the dimensions, then the image is decoded with
+ * source subsampling so both sides stay just above the model input size
+ * (a 4000x3000 phone photo is decoded at 308x231 instead of 12M pixels).
+ */
+@Component
+public class LandmarkImageDecoder {
+
+    private final long maxBytes = AppEnv.getLandmarkMaxUploadBytes();
+    private final long maxPixels = AppEnv.getLandmarkMaxImagePixels();
+
+    /**
+     * @return the decoded image, or null when the payload is not a readable image
+     * @throws ImageTooLargeException when the upload or the declared image size is over the limits
+     */
+    public BufferedImage decode(InputStream in, long size, int targetSize) throws IOException {
+        checkSize(size);
+
+        try (ImageInputStream iis = ImageIO.createImageInputStream(in)) {
+            if (iis == null) return null;
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+            if (!readers.hasNext()) return null;   // not an image format we know
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(iis, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if (width <= 0 || height <= 0) return null;
+                if ((long) width * height > maxPixels) {
+                    throw new ImageTooLargeException("Image dimensions too large (" + width + "x" + height + ")");
+                }
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = subsampling(width, height, targetSize);
+                if (step > 1) {
+                    param.setSourceSubsampling(step, step, 0, 0);
+                }
+                return reader.read(0, param);
+            } catch (IIOException | IllegalArgumentException | CMMException e) {
+                // corrupt or unsupported variant: CMYK JPEG, broken ICC profile, odd band layout
+                return null;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /** Rejects an upload over LANDMARK_MAX_UPLOAD_MB before any of it is read. */
+    public void checkSize(long size) {
+        if (size > maxBytes) {
+            throw new ImageTooLargeException("Image too large (" + size + " bytes, limit " + maxBytes + ")");
+        }
+    }
+
+    /** Largest step that keeps both sides at or above the target size. */
+    static int subsampling(int width, int height, int targetSize) {
+        return Math.max(1, Math.min(width / targetSize, height / targetSize));
+    }
+}
@@ -1,113 +1,108 @@
 package com.example.journeyGenie.ml;
 
-import ai.djl.modality.cv.Image;
-import ai.djl.modality.cv.ImageFactory;
-import ai.djl.modality.cv.util.NDImageUtils;
 import ai.djl.ndarray.NDArray;
 import ai.djl.ndarray.NDList;
 import ai.djl.ndarray.NDManager;
-import ai.djl.repository.zoo.Criteria;
-import ai.djl.repository.zoo.ZooModel;
+import ai.djl.ndarray.types.Shape;
+import ai.djl.translate.Batchifier;
 import ai.djl.translate.Translator;
 import ai.djl.translate.TranslatorContext;
+import com.example.journeyGenie.util.AppEnv;
 import com.example.journeyGenie.util.Debug;
-import jakarta.annotation.PreDestroy;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
 
 import java.awt.image.BufferedImage;
-import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-
-import org.springframework.core.io.ClassPathResource;
+import java.util.concurrent.TimeoutException;
 
 @Service
 public class LandmarkInferenceService {
 
-    private final ZooModel<Image, float[]> model;
+    /** Side length of the square model input. */
+    public static final int INPUT_SIZE = 224;
 
-    public LandmarkInferenceService() {
-        ZooModel<Image, float[]> tempModel = null;
-        try {
-            // Load model from resources (inside JAR)
-            ClassPathResource resource = new ClassPathResource("models/landmark_resnet18_v2.onnx");
+    /** Largest k served; results are ranked (and cached) this deep. */
+    public static final int MAX_TOP_K = 20;
 
-            // Create a temp file because DJL's Criteria.optModelPath() expects a Path
-            File tempFile = File.createTempFile("landmark_resnet18", ".onnx");
-            try (InputStream is = resource.getInputStream()) {
-                Files.copy(is, tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-            }
+    private final long predictTimeoutMs = AppEnv.getLandmarkPredictTimeoutMs();
+    private final float lowConfidence = AppEnv.getLandmarkLowConfidence();
 
-            Path modelPath = tempFile.toPath();
+    // in-process models, or a client for the out-of-process worker
+    @Autowired
+    private LandmarkEngine engine;
 
-            Criteria<Image, float[]> criteria = Criteria.builder()
-                    .setTypes(Image.class, float[].class)
-                    .optEngine("OnnxRuntime")
-                    .optModelPath(modelPath)  // now points to a real file
-                    .optTranslator(new PreprocessTranslator(
-                            224, 224,
-                            new float[]{0.485f, 0.456f, 0.406f},
-                            new float[]{0.229f, 0.224f, 0.225f},
-                            true))
-                    .build();
+    @Autowired
+    private LandmarkResultCache resultCache;
 
-            tempModel = criteria.loadModel();
-        } catch (Exception e) {
-            System.err.println("Error loading model: " + e.getMessage());
-            e.printStackTrace();
-        }
-        this.model = tempModel;
+    @Autowired
+    private LandmarkImageDecoder decoder;
+
+    /**
+     * The version that should serve the next request (default or canary),
+     * or null while no model is ready.
+     */
+    public String routeVersion() {
+        return engine.route();
     }
 
-    @PreDestroy
-    public void close() {
-        if (model != null) {
-            model.close();
-        }
+    public boolean isReady() {
+        return engine.isReady();
     }
 
-    /**
-     * Predict landmark and send standardized JSON response
-     */
-    public ResponseEntity<?> predict(HttpServletRequest request, BufferedImage buffered, LandmarkMapping mapping) {
-        if (model == null) {
+    /** Loading state for /api/landmark/ready. */
+    public Map<String, Object> readiness() {
+        return engine.readiness();
+    }
+
+    /** 503 while the model is still loading, 500 once loading has failed. */
+    public ResponseEntity<?> notReady() {
+        if ("failed".equals(engine.readiness().get("state"))) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", "Model is not loaded"));
         }
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(Map.of("error", "Model is loading, please retry"));
+    }
 
-        Debug.log("Model loaded successfully, starting prediction...");
+    /**
+     * Predict landmark with the given model version and send standardized JSON response.
+     * The ranked result is cached under the upload fingerprint (when given).
+     */
+    public ResponseEntity<?> predict(HttpServletRequest request, BufferedImage buffered, String version,
+                                     int k, String fingerprint) {
+        LandmarkMapping mapping = engine.mapping(version);
+        if (mapping == null) {
+            return notReady();
+        }
 
         try {
-            Image img = ImageFactory.getInstance().fromImage(buffered);
-            Debug.log("Image converted to DJL format, running prediction...");
-
-            try (var predictor = model.newPredictor()) {
-                float[] probs = predictor.predict(img);
-
-                Debug.log("Prediction completed, processing results...");
-                int idx = argmax(probs);
-                String fullLink = mapping.getCategory(idx);
-
-                Debug.log("Predicted index: " + idx);
-                Debug.log("Predicted category: " + fullLink);
-
-                // Extract location name after "Category:"
-                String location = fullLink.contains("Category:") ?
-                        fullLink.substring(fullLink.indexOf("Category:") + 9) :
-                        fullLink;
-
-                return ResponseEntity.ok(Map.of(
-                        "location", location,
-                        "link", fullLink
-                ));
+            // concurrent requests are stacked into one forward pass by the batcher
+            LandmarkResult result = engine.infer(version, buffered, predictTimeoutMs);
+            Debug.log("Prediction completed, processing results...");
+            if (fingerprint != null) {
+                resultCache.put(fingerprint, result);
             }
 
+            Debug.log("Predicted index: " + result.classIds()[0]);
+            return respond(result, mapping, k);
+
+        } catch (IllegalStateException e) {     // unloaded between routing and inference
+            return notReady();
+        } catch (TimeoutException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("error", "Landmark service is busy, please retry"));
         } catch (Exception e) {
             System.err.println("Error during prediction: " + e.getMessage());
             e.printStackTrace();
@@ -116,53 +111,198 @@ public class LandmarkInferenceService {
         }
     }
 
-    private static int argmax(float[] a) {
-        int best = 0;
-        float bestVal = Float.NEGATIVE_INFINITY;
-        for (int i = 0; i < a.length; i++) {
-            if (a[i] > bestVal) {
-                bestVal = a[i];
-                best = i;
+    /**
+     * Builds the JSON response for a cached result, labelled with the map of the
+     * version that produced it; null when that version is no longer loaded.
+     */
+    public ResponseEntity<?> respond(LandmarkResult result, int k) {
+        LandmarkMapping mapping = engine.mapping(result.modelVersion());
+        return mapping == null ? null : respond(result, mapping, k);
+    }
+
+    /** Builds the JSON response from the first k ranks of a (fresh or cached) result. */
+    private ResponseEntity<?> respond(LandmarkResult result, LandmarkMapping mapping, int k) {
+        return ResponseEntity.ok(describe(result, mapping, k));
+    }
+
+    /**
+     * Predicts several uploads in one call. Each file is answered from the result
+     * cache when possible; the rest are decoded and sent to the model together so
+     * they share forward passes. Files that can't be read get an error entry
+     * instead of failing the whole request.
+     */
+    public ResponseEntity<?> predictAll(List<MultipartFile> files, int k) {
+        // one version for the whole request so all entries are comparable
+        String version = engine.route();
+        LandmarkMapping mapping = version == null ? null : engine.mapping(version);
+        if (mapping == null) {
+            return notReady();
+        }
+
+        List<Map<String, Object>> entries = new ArrayList<>(files.size());
+        List<Integer> pendingIndex = new ArrayList<>();
+        List<BufferedImage> pendingImages = new ArrayList<>();
+        List<String> pendingFingerprints = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            MultipartFile file = files.get(i);
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("file", file.getOriginalFilename());
+            entries.add(entry);
+            try {
+                decoder.checkSize(file.getSize());
+                String fingerprint;
+                try (InputStream in = file.getInputStream()) {
+                    fingerprint = LandmarkResultCache.fingerprint(in);
+                }
+                LandmarkResult cached = resultCache.get(fingerprint, version);
+                if (cached != null) {
+                    entry.putAll(describe(cached, mapping, k));
+                    continue;
+                }
+                BufferedImage image = decoder.decode(file.getInputStream(), file.getSize(), INPUT_SIZE);
+                if (image == null) {
+                    entry.put("error", "Invalid image file.");
+                    continue;
+                }
+                pendingIndex.add(i);
+                pendingImages.add(image);
+                pendingFingerprints.add(fingerprint);
+            } catch (ImageTooLargeException e) {
+                entry.put("error", e.getMessage());
+            } catch (IOException e) {
+                entry.put("error", "Could not read file.");
+            }
+        }
+
+        if (!pendingImages.isEmpty()) {
+            try {
+                List<LandmarkResult> results = engine.inferAll(version, pendingImages, predictTimeoutMs);
+                for (int j = 0; j < results.size(); j++) {
+                    Map<String, Object> entry = entries.get(pendingIndex.get(j));
+                    LandmarkResult result = results.get(j);
+                    if (result == null) {
+                        entry.put("error", "Error processing image.");
+                        continue;
+                    }
+                    resultCache.put(pendingFingerprints.get(j), result);
+                    entry.putAll(describe(result, mapping, k));
+                }
+            } catch (IllegalStateException e) {
+                return notReady();
+            } catch (TimeoutException e) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .body(Map.of("error", "Landmark service is busy, please retry"));
+            } catch (Exception e) {
+                System.err.println("Error during batch prediction: " + e.getMessage());
+                e.printStackTrace();
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body(Map.of("error", String.valueOf(e.getMessage())));
             }
         }
-        return best;
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("modelVersion", version);
+        response.put("count", entries.size());
+        response.put("results", entries);
+        return ResponseEntity.ok(response);
+    }
+
+    /** Top-k labels of a result with the best one flattened to the top level. */
+    Map<String, Object> describe(LandmarkResult result, LandmarkMapping mapping, int k) {
+        int n = Math.min(k, result.size());
+        List<Map<String, Object>> predictions = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int id = result.classIds()[i];
+            predictions.add(Map.of(
+                    "location", mapping.getName(id),
+                    "link", mapping.getCategory(id),
+                    "confidence", percent(result.probabilities()[i]),
+                    "classId", result.classIds()[i]
+            ));
+        }
+
+        int best = result.classIds()[0];
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("location", mapping.getName(best));
+        response.put("link", mapping.getCategory(best));
+        response.put("confidence", percent(result.probabilities()[0]));
+        response.put("lowConfidence", result.probabilities()[0] < lowConfidence);
+        response.put("modelVersion", result.modelVersion());
+        response.put("predictions", predictions);
+        return response;
     }
 
-    /** Minimal translator: Image -> float[] probabilities */
-    static class PreprocessTranslator implements Translator<Image, float[]> {
+    /** Model registry, result cache and per-version latency figures for /api/landmark/stats. */
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("modelLoaded", engine.isReady());
+        out.put("resultCache", resultCache.stats());
+        out.put("models", engine.stats());
+        return out;
+    }
+
+    // probability as a percentage with 2 decimals
+    private static double percent(float p) {
+        return Math.round(p * 10000.0) / 100.0;
+    }
+
+    /**
+     * Minimal translator: preprocessed NCHW batch -> float[] probabilities per image.
+     * Preprocessing happens in ImagePreprocessor and softmax runs on the float[]
+     * rows, so no NDArray operations are needed besides creating the input tensor.
+     */
+    static class PreprocessTranslator implements Translator<PreprocessTranslator.Batch, float[][]> {
+
+        /** size images of 3 x height x width floats, packed back to back in data. */
+        record Batch(FloatBuffer data, int size) {}
+
         private final int width, height;
-        private final float[] mean, std;
         private final boolean applySoftmax;
 
-        PreprocessTranslator(int width, int height, float[] mean, float[] std, boolean applySoftmax) {
+        PreprocessTranslator(int width, int height, boolean applySoftmax) {
             this.width = width;
             this.height = height;
-            this.mean = mean;
-            this.std = std;
             this.applySoftmax = applySoftmax;
         }
 
         @Override
-        public NDList processInput(TranslatorContext ctx, Image input) {
+        public NDList processInput(TranslatorContext ctx, Batch input) {
             NDManager manager = ctx.getNDManager();
-            NDArray array = input.toNDArray(manager, Image.Flag.COLOR);
-            array = NDImageUtils.resize(array, width, height);
-            array = NDImageUtils.toTensor(array);   // returns (1, 3, H, W)
-            array = NDImageUtils.normalize(array, mean, std);
-            Debug.log("Final input shape: " + array.getShape());
-            return new NDList(array);
+            return new NDList(manager.create(input.data(), new Shape(input.size(), 3, height, width)));
         }
 
         @Override
-        public float[] processOutput(TranslatorContext ctx, NDList list) {
+        public float[][] processOutput(TranslatorContext ctx, NDList list) {
             NDArray out = list.singletonOrThrow();
-            if (out.getShape().dimension() == 2 && out.getShape().get(0) == 1) {
-                out = out.squeeze(0);
+            int rows = (int) out.getShape().get(0);
+            float[] flat = out.toFloatArray();
+            int classes = flat.length / rows;
+            float[][] result = new float[rows][];
+            for (int r = 0; r < rows; r++) {
+                float[] row = Arrays.copyOfRange(flat, r * classes, (r + 1) * classes);
+                if (applySoftmax) {
+                    softmax(row);
+                }
+                result[r] = row;
             }
-            if (applySoftmax) {
-                out = out.softmax(0);
+            return result;
+        }
+
+        @Override
+        public Batchifier getBatchifier() {
+            return null; // inputs arrive already batched
+        }
+
+        private static void softmax(float[] a) {
+            float max = Float.NEGATIVE_INFINITY;
+            for (float v : a) max = Math.max(max, v);
+            double sum = 0;
+            for (int i = 0; i < a.length; i++) {
+                a[i] = (float) Math.exp(a[i] - max);
+                sum += a[i];
             }
-            return out.toFloatArray();
+            float inv = (float) (1.0 / sum);
+            for (int i = 0; i < a.length; i++) a[i] *= inv;
         }
     }
 }
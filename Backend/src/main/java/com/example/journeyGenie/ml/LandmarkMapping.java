@@ -1,40 +1,284 @@
 package com.example.journeyGenie.ml;
 
+import com.example.journeyGenie.util.AppEnv;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
 import org.springframework.core.io.ClassPathResource;
-import org.springframework.stereotype.Component;
 
-import jakarta.annotation.PostConstruct;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
-@Component
+/**
+ * Class id -> category link and display name for one model version.
+ *
+ * Labels live in one compact table indexed by class id rather than a map of
+ * boxed ids to full URLs: the shared URL prefixes ("http://commons.wikimedia.org/wiki/Category:")
+ * are stored once, and each slot keeps only its title plus the display name
+ * extracted and URL-decoded at build time. The same layout is the on-disk
+ * .labels format, so a prebuilt file is memory-mapped instead of parsed.
+ *
+ * Layout (big-endian):
+ *   int magic, int slots, int prefixCount, int blobLength
+ *   int[prefixCount + 1]  prefix offsets into the blob
+ *   byte[slots]           prefix index per slot, -1 for ids without a label
+ *   int[2 * slots + 1]    per slot: title start, name start (name ends at the next title start)
+ *   byte[blobLength]      UTF-8 prefixes, titles and names
+ */
 public class LandmarkMapping {
 
-    private Map<Integer, String> idToCategory = new HashMap<>();
-
-    // CSV is stored at src/main/resources/datasets/train_label_to_category.csv
-    private static final String CSV_RESOURCE = "datasets/train_label_to_category_v2.csv";
-
-    @PostConstruct
-    public void init() throws Exception {
-        try (Reader reader = new InputStreamReader(new ClassPathResource(CSV_RESOURCE).getInputStream())) {
-            CSVParser csvParser = new CSVParser(reader, CSVFormat.DEFAULT
-                    .withHeader("landmark_id", "category")
-                    .withSkipHeaderRecord(true));
-            for (CSVRecord record : csvParser) {
-                int id = Integer.parseInt(record.get("landmark_id"));
-                String category = record.get("category");
-                idToCategory.put(id, category);
+    /** Suffix of dynamically quantized (INT8) exports of a model version. */
+    static final String QUANTIZED_SUFFIX = "_int8";
+
+    private static final int MAGIC = 0x4A474C31; // "JGL1"
+    private static final String UNKNOWN = "Unknown";
+    private static final String CATEGORY = "Category:";
+
+    private final ByteBuffer table;
+    private final int slots;
+    private final int labels;
+    private final String[] prefixes;
+    private final int prefixIndexAt;
+    private final int offsetsAt;
+    private final int blobAt;
+
+    private LandmarkMapping(ByteBuffer table) throws IOException {
+        this.table = table;
+        if (table.remaining() < 16 || table.getInt(0) != MAGIC) {
+            throw new IOException("Not a landmark label file");
+        }
+        slots = table.getInt(4);
+        int prefixCount = table.getInt(8);
+        int blobLength = table.getInt(12);
+        prefixIndexAt = 16 + 4 * (prefixCount + 1);
+        offsetsAt = prefixIndexAt + slots;
+        blobAt = offsetsAt + 4 * (2 * slots + 1);
+        if (slots < 0 || prefixCount < 0 || blobAt + (long) blobLength > table.capacity()) {
+            throw new IOException("Truncated landmark label file");
+        }
+
+        prefixes = new String[prefixCount];
+        for (int i = 0; i < prefixCount; i++) {
+            prefixes[i] = utf8(table.getInt(16 + 4 * i), table.getInt(16 + 4 * (i + 1)));
+        }
+        int present = 0;
+        for (int id = 0; id < slots; id++) {
+            if (table.get(prefixIndexAt + id) >= 0) present++;
+        }
+        labels = present;
+    }
+
+    /** Parses a landmark_id,category CSV into the compact table. */
+    static LandmarkMapping fromCsv(Reader reader) throws IOException {
+        return new LandmarkMapping(ByteBuffer.wrap(build(reader)));
+    }
+
+    /** Memory-maps a .labels file written by LandmarkLabelsTool (src/test). */
+    static LandmarkMapping fromBinary(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new LandmarkMapping(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Labels for a model version: {LANDMARK_MODEL_DIR}/{version}.labels or .csv
+     * when present, else the bundled datasets/train_label_to_category_{suffix}.csv,
+     * where suffix is the last "_" part of the version (landmark_resnet18_v2 -> v2).
+     * A quantized export (landmark_resnet18_v2_int8) uses its base version's labels.
+     */
+    static LandmarkMapping forVersion(String version) throws IOException {
+        String base = baseVersion(version);
+        String dir = AppEnv.getLandmarkModelDir();
+        if (!dir.isEmpty()) {
+            for (String name : new String[]{version, base}) {
+                Path binary = Path.of(dir, name + ".labels");
+                if (Files.isRegularFile(binary)) {
+                    return fromBinary(binary);
+                }
+                Path csv = Path.of(dir, name + ".csv");
+                if (Files.isRegularFile(csv)) {
+                    try (Reader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+                        return fromCsv(reader);
+                    }
+                }
             }
         }
+        String suffix = base.substring(base.lastIndexOf('_') + 1);
+        ClassPathResource resource = new ClassPathResource("datasets/train_label_to_category_" + suffix + ".csv");
+        try (Reader reader = new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8)) {
+            return fromCsv(reader);
+        }
+    }
+
+    /** The version without a quantization suffix: landmark_resnet18_v2_int8 -> landmark_resnet18_v2. */
+    static String baseVersion(String version) {
+        return version.endsWith(QUANTIZED_SUFFIX)
+                ? version.substring(0, version.length() - QUANTIZED_SUFFIX.length())
+                : version;
     }
 
+    /** Number of class ids that have a label. */
+    public int size() {
+        return labels;
+    }
+
+    /** Full category link, e.g. http://commons.wikimedia.org/wiki/Category:Angkor_Wat. */
     public String getCategory(int id) {
-        return idToCategory.getOrDefault(id, "Unknown");
+        int prefix = prefixOf(id);
+        if (prefix < 0) return UNKNOWN;
+        return prefixes[prefix].concat(utf8(titleStart(id), nameStart(id)));
+    }
+
+    /** Display name, e.g. "Angkor Wat" for the link above. */
+    public String getName(int id) {
+        if (prefixOf(id) < 0) return UNKNOWN;
+        return utf8(nameStart(id), titleStart(id + 1));
+    }
+
+    private int prefixOf(int id) {
+        return id < 0 || id >= slots ? -1 : table.get(prefixIndexAt + id);
+    }
+
+    private int titleStart(int id) {
+        return table.getInt(offsetsAt + 8 * id);
+    }
+
+    private int nameStart(int id) {
+        return table.getInt(offsetsAt + 8 * id + 4);
+    }
+
+    private String utf8(int from, int to) {
+        int length = to - from;
+        if (table.hasArray()) {
+            return new String(table.array(), table.arrayOffset() + blobAt + from, length, StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[length];
+        table.get(blobAt + from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // ---- building ----
+
+    /** The .labels table for a label CSV; also what LandmarkLabelsTool writes to disk. */
+    static byte[] build(Reader reader) throws IOException {
+        Map<Integer, String> rows = new HashMap<>();
+        int maxId = -1;
+        CSVParser csvParser = new CSVParser(reader, CSVFormat.DEFAULT
+                .withHeader("landmark_id", "category")
+                .withSkipHeaderRecord(true));
+        for (CSVRecord record : csvParser) {
+            int id = Integer.parseInt(record.get("landmark_id").trim());
+            if (id < 0) continue;
+            rows.put(id, record.get("category"));
+            maxId = Math.max(maxId, id);
+        }
+
+        int slots = maxId + 1;
+        List<String> prefixes = new ArrayList<>();
+        Map<String, Integer> prefixIds = new HashMap<>();
+        byte[] prefixOf = new byte[slots];
+        int[] offsets = new int[2 * slots + 1];
+        ByteArrayOutputStream titles = new ByteArrayOutputStream();
+
+        for (int id = 0; id < slots; id++) {
+            offsets[2 * id] = titles.size();
+            String link = rows.get(id);
+            if (link == null) {
+                prefixOf[id] = -1;
+                offsets[2 * id + 1] = titles.size();
+                continue;
+            }
+            int split = splitPoint(link);
+            String prefix = link.substring(0, split);
+            Integer p = prefixIds.get(prefix);
+            if (p == null && prefixes.size() < Byte.MAX_VALUE) {
+                p = prefixes.size();
+                prefixes.add(prefix);
+                prefixIds.put(prefix, p);
+            }
+            if (p == null) {            // out of prefix slots: keep the whole link as the title
+                p = prefixIds.computeIfAbsent("", k -> {
+                    prefixes.add("");
+                    return prefixes.size() - 1;
+                });
+                split = 0;
+            }
+            prefixOf[id] = p.byteValue();
+            titles.writeBytes(link.substring(split).getBytes(StandardCharsets.UTF_8));
+            offsets[2 * id + 1] = titles.size();
+            titles.writeBytes(displayName(link).getBytes(StandardCharsets.UTF_8));
+        }
+        offsets[2 * slots] = titles.size();
+
+        ByteArrayOutputStream blob = new ByteArrayOutputStream();
+        int[] prefixOffsets = new int[prefixes.size() + 1];
+        for (int i = 0; i < prefixes.size(); i++) {
+            prefixOffsets[i] = blob.size();
+            blob.writeBytes(prefixes.get(i).getBytes(StandardCharsets.UTF_8));
+        }
+        prefixOffsets[prefixes.size()] = blob.size();
+        int titlesAt = blob.size();
+        titles.writeTo(blob);
+
+        ByteBuffer out = ByteBuffer.allocate(16 + 4 * prefixOffsets.length + slots + 4 * offsets.length + blob.size());
+        out.putInt(MAGIC).putInt(slots).putInt(prefixes.size()).putInt(blob.size());
+        for (int o : prefixOffsets) out.putInt(o);
+        out.put(prefixOf);
+        for (int o : offsets) out.putInt(titlesAt + o);
+        out.put(blob.toByteArray());
+        return out.array();
+    }
+
+    // prefix ends after "Category:" (or the last '/'), so the title is what varies per row
+    private static int splitPoint(String link) {
+        int category = link.lastIndexOf(CATEGORY);
+        if (category >= 0) return category + CATEGORY.length();
+        return link.lastIndexOf('/') + 1;
+    }
+
+    /** "…/Category:Isa_Khan_Niyazi%27s_tomb" -> "Isa Khan Niyazi's tomb"; other links are kept as they are. */
+    static String displayName(String link) {
+        int category = link.indexOf(CATEGORY);
+        if (category < 0) return link;
+        return percentDecode(link.substring(category + CATEGORY.length())).replace('_', ' ').trim();
+    }
+
+    // like URLDecoder, but '+' stays a plus (it is literal in wiki titles) and bad escapes are left alone
+    private static String percentDecode(String s) {
+        if (s.indexOf('%') < 0) return s;
+        StringBuilder out = new StringBuilder(s.length());
+        ByteArrayOutputStream escaped = new ByteArrayOutputStream();
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            int hi, lo;
+            if (c == '%' && i + 2 < s.length()
+                    && (hi = Character.digit(s.charAt(i + 1), 16)) >= 0
+                    && (lo = Character.digit(s.charAt(i + 2), 16)) >= 0) {
+                escaped.write(hi << 4 | lo);    // runs of escapes form one UTF-8 sequence
+                i += 2;
+                continue;
+            }
+            if (escaped.size() > 0) {
+                out.append(escaped.toString(StandardCharsets.UTF_8));
+                escaped.reset();
+            }
+            out.append(c);
+        }
+        if (escaped.size() > 0) {
+            out.append(escaped.toString(StandardCharsets.UTF_8));
+        }
+        return out.toString();
     }
 }
@@ -0,0 +1,213 @@
+package com.example.journeyGenie.ml;
+
+import ai.djl.Device;
+import ai.djl.Model;
+import com.example.journeyGenie.ml.LandmarkInferenceService.PreprocessTranslator;
+import com.example.journeyGenie.ml.LandmarkInferenceService.PreprocessTranslator.Batch;
+import com.example.journeyGenie.util.AppEnv;
+import com.example.journeyGenie.util.Debug;
+import com.example.journeyGenie.util.LatencyStats;
+
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One loaded model version: the ONNX model with its predictor pool, batcher
+ * and label map, plus the latency and confidence figures for that version.
+ */
+class LandmarkModel implements AutoCloseable {
+
+    static {
+        // every tensor op we need is native to ORT; never pull in a second engine for fallbacks
+        if (System.getProperty("ai.djl.onnx.disable_alternative") == null) {
+            System.setProperty("ai.djl.onnx.disable_alternative", "true");
+        }
+    }
+
+    private static final OrtSessionTuning TUNING = new OrtSessionTuning();
+
+    private final String version;
+    private final LandmarkMapping mapping;
+    private final Model model;
+    private final OrtSessionTuning.Session session;
+    private final PredictorPool<Batch, float[][]> predictors;
+    private final LandmarkBatcher batcher;
+    private final LatencyStats inferenceStats = new LatencyStats();
+    private final LongAdder served = new LongAdder();
+    private final LongAdder lowConfidence = new LongAdder();
+    private final DoubleAdder confidenceSum = new DoubleAdder();
+
+    private LandmarkModel(String version, LandmarkMapping mapping, Model model,
+                          OrtSessionTuning.Session session, boolean softmax) {
+        this.version = version;
+        this.mapping = mapping;
+        this.model = model;
+        this.session = session;
+        this.predictors = new PredictorPool<>(model,
+                new PreprocessTranslator(LandmarkInferenceService.INPUT_SIZE, LandmarkInferenceService.INPUT_SIZE, softmax),
+                AppEnv.getLandmarkPredictorPoolSize());
+        ImagePreprocessor preprocessor = new ImagePreprocessor(
+                LandmarkInferenceService.INPUT_SIZE, LandmarkInferenceService.INPUT_SIZE,
+                new float[]{0.485f, 0.456f, 0.406f},
+                new float[]{0.229f, 0.224f, 0.225f});
+        this.batcher = new LandmarkBatcher(predictors, preprocessor,
+                AppEnv.getLandmarkMaxBatch(), AppEnv.getLandmarkBatchWaitMs());
+        Debug.log("Landmark model " + version + " ready with " + predictors.size() + " predictor(s)");
+    }
+
+    static LandmarkModel load(String version, Path modelPath, LandmarkMapping mapping) throws Exception {
+        return load(version, modelPath, mapping, true);
+    }
+
+    /**
+     * An embedding model: same preprocessing and batching, but the raw output rows
+     * (the penultimate-layer features) are returned instead of class probabilities.
+     */
+    static LandmarkModel loadEmbedding(String version, Path modelPath) throws Exception {
+        return load(version, modelPath, null, false);
+    }
+
+    private static LandmarkModel load(String version, Path modelPath, LandmarkMapping mapping,
+                                      boolean softmax) throws Exception {
+        OrtSessionTuning.Session session = TUNING.prepare(version, modelPath, true);
+        if (session.fromCache) {
+            try {
+                return open(version, mapping, session, softmax);
+            } catch (Exception e) {
+                Debug.log("Cached optimized graph for " + version + " failed to load, re-optimizing: " + e.getMessage());
+                session.discard();
+                session = TUNING.prepare(version, modelPath, false);
+            }
+        }
+        return open(version, mapping, session, softmax);
+    }
+
+    private static LandmarkModel open(String version, LandmarkMapping mapping,
+                                      OrtSessionTuning.Session session, boolean softmax) throws Exception {
+        // Criteria only forwards string options, so the session options go straight to Model.load
+        Model model = Model.newInstance(version, Device.cpu(), "OnnxRuntime");
+        try {
+            model.load(session.modelPath, null, Map.of("sessionOptions", session.options));
+            session.commit();
+            Debug.log("Landmark model " + version + " loaded from "
+                    + (session.fromCache ? "cached optimized graph " : "") + session.modelPath);
+            return new LandmarkModel(version, mapping, model, session, softmax);
+        } catch (Exception e) {
+            model.close();
+            session.discard();
+            session.close();
+            throw e;
+        }
+    }
+
+    String version() {
+        return version;
+    }
+
+    LandmarkMapping mapping() {
+        return mapping;
+    }
+
+    /** Top-1 probability of a fresh prediction, for the per-version confidence figures. */
+    void recordConfidence(float top1, boolean low) {
+        served.increment();
+        confidenceSum.add(top1);
+        if (low) lowConfidence.increment();
+    }
+
+    /** Runs one image through the batcher; probabilities over all classes. */
+    float[] infer(BufferedImage image, long timeoutMs) throws Exception {
+        CompletableFuture<float[]> pending = batcher.submit(image);
+        try {
+            long start = System.nanoTime();
+            float[] probs = pending.get(timeoutMs, TimeUnit.MILLISECONDS);
+            inferenceStats.recordSince(start);
+            return probs;
+        } finally {
+            pending.cancel(false);
+        }
+    }
+
+    /**
+     * Queues all images at once so the batcher can fill whole forward passes, then
+     * waits for them under one deadline. A null row marks an image whose forward
+     * pass failed; running out of time fails the whole call.
+     */
+    float[][] inferAll(List<BufferedImage> images, long timeoutMs) throws Exception {
+        List<CompletableFuture<float[]>> pending = new ArrayList<>(images.size());
+        images.forEach(image -> pending.add(batcher.submit(image)));
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        float[][] out = new float[images.size()][];
+        try {
+            for (int i = 0; i < out.length; i++) {
+                try {
+                    out[i] = pending.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (ExecutionException e) {
+                    Debug.log("Landmark inference failed for one image: " + e.getCause());
+                }
+            }
+            inferenceStats.recordSince(start);
+            return out;
+        } finally {
+            pending.forEach(p -> p.cancel(false));
+        }
+    }
+
+    /**
+     * Checks once whether the model takes batches, then pushes synthetic images
+     * through every predictor, single and full-batch, so ORT's lazy allocations
+     * and the JIT are done before real traffic arrives.
+     */
+    void warmUp(int runs) throws Exception {
+        BufferedImage blank = new BufferedImage(LandmarkInferenceService.INPUT_SIZE,
+                LandmarkInferenceService.INPUT_SIZE, BufferedImage.TYPE_3BYTE_BGR);
+        if (!batcher.probeBatching(blank)) {
+            Debug.log("Landmark model " + version + " runs without batching");
+        }
+        int concurrent = predictors.size() * AppEnv.getLandmarkMaxBatch();
+        for (int r = 0; r < runs; r++) {
+            List<CompletableFuture<float[]>> pending = new ArrayList<>(concurrent);
+            for (int i = 0; i < concurrent; i++) {
+                pending.add(batcher.submit(blank));
+            }
+            for (CompletableFuture<float[]> p : pending) {
+                p.get(1, TimeUnit.MINUTES);
+            }
+            batcher.submit(blank).get(1, TimeUnit.MINUTES);
+        }
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        long n = served.sum();
+        out.put("version", version);
+        if (mapping != null) out.put("classes", mapping.size());
+        out.put("inference", inferenceStats.snapshot());
+        out.put("predictions", n);
+        out.put("meanConfidence", n == 0 ? 0 : Math.round(confidenceSum.sum() * 10000.0 / n) / 100.0);
+        out.put("lowConfidenceRate", n == 0 ? 0 : Math.round(lowConfidence.sum() * 10000.0 / n) / 100.0);
+        out.put("session", TUNING.stats());
+        out.put("optimizedGraphCached", session.fromCache);
+        out.put("predictorPool", predictors.stats());
+        out.put("batching", batcher.stats());
+        return out;
+    }
+
+    @Override
+    public void close() {
+        batcher.close();
+        predictors.close();
+        model.close();
+        session.close();
+    }
+}
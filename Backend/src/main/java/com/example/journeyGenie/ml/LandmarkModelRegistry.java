@@ -0,0 +1,340 @@
+package com.example.journeyGenie.ml;
+
+import com.example.journeyGenie.util.AppEnv;
+import com.example.journeyGenie.util.Debug;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.core.io.ClassPathResource;
+
+import java.awt.image.BufferedImage;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * The landmark model versions currently in memory and which of them serve traffic.
+ *
+ * Versions are loaded and warmed up one at a time on a background thread. The
+ * routing (default version plus an optional candidate taking a percentage of
+ * requests) is one immutable record swapped atomically, so a switch never
+ * exposes a half-updated state and requests already running keep the model
+ * they picked.
+ *
+ * This is the in-process {@link LandmarkEngine}; {@link LandmarkWorker} hosts one
+ * in a separate process when inference is moved out of the API JVM.
+ */
+public class LandmarkModelRegistry implements LandmarkEngine {
+
+    record Routing(String defaultVersion, String candidateVersion, int candidatePercent) {}
+
+    private static final class Slot {
+        volatile String state = "loading";
+        volatile String error;
+        volatile long loadMillis = -1;
+        volatile LandmarkModel model;
+    }
+
+    // version names end up in file paths
+    private static final Pattern VERSION = Pattern.compile("[A-Za-z0-9._-]+");
+
+    private final Map<String, Slot> slots = new ConcurrentHashMap<>();
+    private final float lowConfidence = AppEnv.getLandmarkLowConfidence();
+    private volatile Routing routing;
+
+    // one load at a time keeps the peak memory to a single extra model
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "landmark-model-loader");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @PostConstruct
+    public void init() {
+        List<String> versions = AppEnv.getLandmarkModelVersions();
+        String candidate = AppEnv.getLandmarkCandidateVersion();
+        routing = new Routing(versions.get(0), candidate.isEmpty() ? null : candidate,
+                Math.max(0, Math.min(100, AppEnv.getLandmarkCandidatePercent())));
+        versions.forEach(v -> load(v, false));
+        if (!candidate.isEmpty() && !versions.contains(candidate)) {
+            load(candidate, false);
+        }
+    }
+
+    /**
+     * Starts loading a version in the background. With activate set it becomes
+     * the default as soon as it has been warmed up.
+     */
+    @Override
+    public void load(String version, boolean activate) {
+        if (version == null || !VERSION.matcher(version).matches()) {
+            throw new IllegalArgumentException("Invalid model version: " + version);
+        }
+        Slot slot = new Slot();
+        Slot existing = slots.putIfAbsent(version, slot);
+        if (existing != null) {
+            if (!"failed".equals(existing.state) || !slots.replace(version, existing, slot)) {
+                throw new IllegalStateException("Model " + version + " is already " + existing.state);
+            }
+        }
+        loader.execute(() -> {
+            loadInto(version, slot);
+            if (activate && slot.model != null) {
+                setDefault(version);
+            }
+        });
+    }
+
+    private void loadInto(String version, Slot slot) {
+        long start = System.nanoTime();
+        Path tempFile = null;
+        try {
+            LandmarkMapping mapping = LandmarkMapping.forVersion(version);
+            Path modelPath = externalModel(version);
+            if (modelPath == null) {
+                // ORT loads models from a real file, so copy the JAR resource out
+                tempFile = Files.createTempFile("landmark_" + version, ".onnx");
+                try (InputStream is = new ClassPathResource("models/" + version + ".onnx").getInputStream()) {
+                    Files.copy(is, tempFile, StandardCopyOption.REPLACE_EXISTING);
+                }
+                modelPath = tempFile;
+            }
+            Debug.log("Loading landmark model from " + modelPath);
+
+            LandmarkModel loaded = LandmarkModel.load(version, modelPath, mapping);
+            try {
+                loaded.warmUp(AppEnv.getLandmarkWarmupRuns());
+            } catch (Exception e) {
+                loaded.close();
+                throw e;
+            }
+            if (slots.get(version) != slot) {   // unloaded while we were loading
+                loaded.close();
+                return;
+            }
+            slot.model = loaded;
+            slot.loadMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            slot.state = "ready";
+            Debug.log("Landmark model " + version + " warmed up in " + slot.loadMillis + " ms");
+        } catch (Exception e) {
+            slot.error = e.getMessage();
+            slot.state = "failed";
+            System.err.println("Error loading model " + version + ": " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            deleteTemp(tempFile);
+        }
+    }
+
+    /** {LANDMARK_MODEL_DIR}/{version}.onnx when configured and present, else null. */
+    static Path externalModel(String version) {
+        String dir = AppEnv.getLandmarkModelDir();
+        if (dir.isEmpty()) return null;
+        Path path = Path.of(dir, version + ".onnx");
+        if (Files.isRegularFile(path)) return path;
+        Debug.log("No " + path + ", falling back to the bundled model");
+        return null;
+    }
+
+    // the ORT session has read the file by now, so the copy is no longer needed
+    private static void deleteTemp(Path tempFile) {
+        if (tempFile == null) return;
+        try {
+            Files.deleteIfExists(tempFile);
+        } catch (Exception e) {
+            tempFile.toFile().deleteOnExit();
+        }
+    }
+
+    /** The loaded, warmed-up model for a version, or null. */
+    LandmarkModel get(String version) {
+        Slot slot = version == null ? null : slots.get(version);
+        return slot == null ? null : slot.model;
+    }
+
+    /** Picks the version for one request: the candidate for its share of traffic, else the default. */
+    @Override
+    public String route() {
+        Routing r = routing;
+        if (r.candidateVersion() != null && r.candidatePercent() > 0
+                && ThreadLocalRandom.current().nextInt(100) < r.candidatePercent()
+                && get(r.candidateVersion()) != null) {
+            return r.candidateVersion();
+        }
+        return get(r.defaultVersion()) != null ? r.defaultVersion() : null;
+    }
+
+    @Override
+    public LandmarkResult infer(String version, BufferedImage image, long timeoutMs) throws Exception {
+        LandmarkModel m = get(version);
+        if (m == null) {
+            throw new IllegalStateException("Model " + version + " is not loaded");
+        }
+        return rank(m, m.infer(image, timeoutMs));
+    }
+
+    @Override
+    public List<LandmarkResult> inferAll(String version, List<BufferedImage> images, long timeoutMs) throws Exception {
+        LandmarkModel m = get(version);
+        if (m == null) {
+            throw new IllegalStateException("Model " + version + " is not loaded");
+        }
+        float[][] probs = m.inferAll(images, timeoutMs);
+        List<LandmarkResult> out = new ArrayList<>(probs.length);
+        for (float[] p : probs) {
+            out.add(p == null ? null : rank(m, p));
+        }
+        return out;
+    }
+
+    private LandmarkResult rank(LandmarkModel m, float[] probs) {
+        // keep enough ranks for any k a later cache hit may ask for
+        int[] top = TopK.select(probs, LandmarkInferenceService.MAX_TOP_K);
+        float[] topProbs = new float[top.length];
+        for (int i = 0; i < top.length; i++) topProbs[i] = probs[top[i]];
+        m.recordConfidence(topProbs[0], topProbs[0] < lowConfidence);
+        return new LandmarkResult(m.version(), top, topProbs);
+    }
+
+    @Override
+    public LandmarkMapping mapping(String version) {
+        LandmarkModel m = get(version);
+        return m == null ? null : m.mapping();
+    }
+
+    public String defaultVersion() {
+        return routing.defaultVersion();
+    }
+
+    Routing routing() {
+        return routing;
+    }
+
+    /** Versions that are loaded and warmed up. */
+    List<String> readyVersions() {
+        return slots.entrySet().stream()
+                .filter(e -> e.getValue().model != null)
+                .map(Map.Entry::getKey)
+                .sorted()
+                .toList();
+    }
+
+    @Override
+    public boolean isReady() {
+        return get(routing.defaultVersion()) != null;
+    }
+
+    @Override
+    public synchronized void setDefault(String version) {
+        requireReady(version);
+        Routing r = routing;
+        String candidate = version.equals(r.candidateVersion()) ? null : r.candidateVersion();
+        routing = new Routing(version, candidate, candidate == null ? 0 : r.candidatePercent());
+        Debug.log("Landmark default model is now " + version);
+    }
+
+    @Override
+    public synchronized void setCandidate(String version, int percent) {
+        Routing r = routing;
+        if (version == null) {
+            routing = new Routing(r.defaultVersion(), null, 0);
+            return;
+        }
+        requireReady(version);
+        if (version.equals(r.defaultVersion())) {
+            throw new IllegalStateException(version + " is already the default model");
+        }
+        routing = new Routing(r.defaultVersion(), version, Math.max(0, Math.min(100, percent)));
+    }
+
+    /**
+     * Drops a version that is neither the default nor loading. Its sessions are
+     * closed after the predict timeout so requests that already picked it finish.
+     */
+    @Override
+    public synchronized void unload(String version) {
+        Routing r = routing;
+        if (version.equals(r.defaultVersion())) {
+            throw new IllegalStateException("Cannot unload the default model");
+        }
+        Slot slot = slots.get(version);
+        if (slot == null) {
+            throw new IllegalArgumentException("Unknown model version: " + version);
+        }
+        if (version.equals(r.candidateVersion())) {
+            routing = new Routing(r.defaultVersion(), null, 0);
+        }
+        slots.remove(version);
+        LandmarkModel m = slot.model;
+        if (m != null) {
+            long grace = 2 * AppEnv.getLandmarkPredictTimeoutMs();
+            CompletableFuture.runAsync(m::close, CompletableFuture.delayedExecutor(grace, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    private void requireReady(String version) {
+        Slot slot = slots.get(version);
+        if (slot == null) {
+            throw new IllegalArgumentException("Unknown model version: " + version);
+        }
+        if (slot.model == null) {
+            throw new IllegalStateException("Model " + version + " is " + slot.state);
+        }
+    }
+
+    @Override
+    public Map<String, Object> readiness() {
+        String version = routing.defaultVersion();
+        Slot slot = slots.get(version);
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("ready", isReady());
+        out.put("state", slot == null ? "missing" : slot.state);
+        out.put("modelVersion", version);
+        if (slot != null && slot.loadMillis >= 0) out.put("loadMs", slot.loadMillis);
+        if (slot != null && slot.error != null) out.put("error", slot.error);
+        return out;
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        Routing r = routing;
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("defaultVersion", r.defaultVersion());
+        out.put("candidateVersion", r.candidateVersion());
+        out.put("candidatePercent", r.candidatePercent());
+        Map<String, Object> versions = new LinkedHashMap<>();
+        slots.forEach((version, slot) -> {
+            Map<String, Object> v = new LinkedHashMap<>();
+            v.put("state", slot.state);
+            if (slot.loadMillis >= 0) v.put("loadMs", slot.loadMillis);
+            if (slot.error != null) v.put("error", slot.error);
+            LandmarkModel m = slot.model;
+            if (m != null) v.putAll(m.stats());
+            versions.put(version, v);
+        });
+        out.put("versions", versions);
+        return out;
+    }
+
+    @PreDestroy
+    public void close() {
+        loader.shutdownNow();
+        slots.values().forEach(slot -> {
+            LandmarkModel m = slot.model;
+            slot.model = null;
+            if (m != null) m.close();
+        });
+        slots.clear();
+    }
+}
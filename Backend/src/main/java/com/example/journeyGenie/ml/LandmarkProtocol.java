@@ -0,0 +1,94 @@
+package com.example.journeyGenie.ml;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Wire format between {@link RemoteLandmarkEngine} and {@link LandmarkWorker}.
+ *
+ * Each connection starts with the client sending MAGIC and VERSION and the worker
+ * echoing them. After that the client sends one request at a time and reads its
+ * response; all numbers are big-endian, strings are an int length plus UTF-8.
+ *
+ *   PREDICT      version, long timeoutMs, int width, int height, width*height*3 BGR bytes
+ *                -> OK, version, int n, n * (int classId, float probability)
+ *   PREDICT_ALL  version, long timeoutMs, int count, count * (int width, int height, BGR bytes)
+ *                -> OK, version, int count, count * (int n, n * (int classId, float probability)),
+ *                   n = -1 for an image that failed
+ *   STATUS       boolean withStats -> OK, JSON
+ *   CONTROL      command, version, int argument -> OK, JSON
+ *
+ * Any other outcome is a non-OK status byte followed by a message.
+ */
+final class LandmarkProtocol {
+
+    static final int MAGIC = 0x4A474C57; // "JGLW"
+    static final int VERSION = 2;
+
+    static final byte PREDICT = 1;
+    static final byte STATUS = 2;
+    static final byte CONTROL = 3;
+    static final byte PREDICT_ALL = 4;
+
+    static final byte OK = 0;
+    static final byte NOT_LOADED = 1;
+    static final byte BUSY = 2;
+    static final byte BAD_REQUEST = 3;
+    static final byte CONFLICT = 4;
+    static final byte ERROR = 5;
+
+    // a decoded upload is only a little above model resolution; this just bounds a bad frame
+    static final int MAX_PIXELS = 4096 * 4096;
+    static final int MAX_IMAGES = 256;
+    private static final int MAX_STRING = 16 * 1024 * 1024;
+
+    private LandmarkProtocol() {
+    }
+
+    static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = (s == null ? "" : s).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_STRING) {
+            throw new IOException("Bad string length " + length);
+        }
+        return new String(in.readNBytes(length), StandardCharsets.UTF_8);
+    }
+
+    /** Sends the pixels as packed BGR, the layout ImagePreprocessor reads fastest. */
+    static void writeImage(DataOutputStream out, BufferedImage image) throws IOException {
+        BufferedImage bgr = image;
+        if (image.getType() != BufferedImage.TYPE_3BYTE_BGR
+                || ((DataBufferByte) image.getRaster().getDataBuffer()).getData().length
+                        != image.getWidth() * image.getHeight() * 3) {
+            bgr = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
+            Graphics2D g = bgr.createGraphics();
+            g.drawImage(image, 0, 0, null);
+            g.dispose();
+        }
+        out.writeInt(bgr.getWidth());
+        out.writeInt(bgr.getHeight());
+        out.write(((DataBufferByte) bgr.getRaster().getDataBuffer()).getData());
+    }
+
+    /** Reads the pixels straight into the raster of a new TYPE_3BYTE_BGR image. */
+    static BufferedImage readImage(DataInputStream in) throws IOException {
+        int width = in.readInt();
+        int height = in.readInt();
+        if (width <= 0 || height <= 0 || (long) width * height > MAX_PIXELS) {
+            throw new IOException("Bad image size " + width + "x" + height);
+        }
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        in.readFully(((DataBufferByte) image.getRaster().getDataBuffer()).getData());
+        return image;
+    }
+}
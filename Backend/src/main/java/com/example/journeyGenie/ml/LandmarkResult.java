@@ -0,0 +1,12 @@
+package com.example.journeyGenie.ml;
+
+/**
+ * Ranked model output for one image: class ids with their probabilities,
+ * highest first, tagged with the model version that produced them.
+ */
+public record LandmarkResult(String modelVersion, int[] classIds, float[] probabilities) {
+
+    public int size() {
+        return classIds.length;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.journeyGenie.ml;
+
+import com.example.journeyGenie.util.AppEnv;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded LRU of landmark results keyed by a fingerprint of the uploaded bytes,
+ * so re-uploads of the same photo skip decoding and inference. Entries from
+ * another model version are treated as misses.
+ */
+@Component
+public class LandmarkResultCache {
+
+    private final int capacity = AppEnv.getLandmarkCacheSize();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private final Map<String, LandmarkResult> entries = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, LandmarkResult> eldest) {
+            return size() > capacity;
+        }
+    };
+
+    public LandmarkResult get(String fingerprint, String modelVersion) {
+        LandmarkResult result;
+        synchronized (entries) {
+            result = entries.get(fingerprint);
+        }
+        if (result == null || !result.modelVersion().equals(modelVersion)) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return result;
+    }
+
+    public void put(String fingerprint, LandmarkResult result) {
+        if (capacity <= 0) return;
+        synchronized (entries) {
+            entries.put(fingerprint, result);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return Map.of(
+                "capacity", capacity,
+                "size", size,
+                "hits", hits.sum(),
+                "misses", misses.sum()
+        );
+    }
+
+    /**
+     * SHA-256 of the stream as hex. The cache is shared between users, so the key
+     * has to resist crafted collisions, not just accidental ones; hashing costs
+     * far less than the decode and inference a hit saves.
+     */
+    public static String fingerprint(InputStream in) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);   // required of every JRE
+        }
+        byte[] chunk = new byte[64 * 1024];
+        int n;
+        while ((n = in.read(chunk)) != -1) {
+            digest.update(chunk, 0, n);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -0,0 +1,269 @@
+package com.example.journeyGenie.ml;
+
+import com.example.journeyGenie.util.AppEnv;
+import com.example.journeyGenie.util.Debug;
+import com.example.journeyGenie.util.LatencyStats;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Service;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Landmark lookup by image similarity instead of a fixed set of classes.
+ *
+ * An embedding model (LANDMARK_EMBEDDING_MODEL, a network cut before its classifier
+ * head) turns a photo into a feature vector, and the nearest reference photos in a
+ * {@link VectorIndex} decide the landmark. New landmarks are added by indexing a few
+ * photos of them, without retraining anything.
+ *
+ * The index and its label table live in LANDMARK_INDEX_DIR and are written back
+ * within a minute of a change and on shutdown. Retrieval always runs in this JVM,
+ * also when classification is delegated to a landmark worker.
+ */
+@Service
+public class LandmarkRetrievalService {
+
+    private static final String INDEX_FILE = "landmarks.hnsw";
+    private static final String LABELS_FILE = "landmarks.labels";
+    private static final int LABELS_MAGIC = 0x4A474C42; // "JGLB"
+
+    private final String modelVersion = AppEnv.getLandmarkEmbeddingModel();
+    private final String indexDirSetting = AppEnv.getLandmarkIndexDir();
+    private final Path indexDir = indexDirSetting.isEmpty() ? null : Path.of(indexDirSetting);
+    private final int efSearch = AppEnv.getLandmarkIndexEfSearch();
+    private final long timeoutMs = AppEnv.getLandmarkPredictTimeoutMs();
+
+    private volatile String state = "disabled";
+    private volatile String error;
+    private volatile LandmarkModel model;
+    private volatile VectorIndex index;
+
+    // label id -> name and link; guarded by this
+    private final List<String[]> labels = new ArrayList<>();
+    private final Map<String, Integer> labelIds = new HashMap<>();
+
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final LatencyStats searchStats = new LatencyStats();
+    private final LatencyStats embedStats = new LatencyStats();
+
+    private final ScheduledExecutorService background = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "landmark-retrieval");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @PostConstruct
+    public void init() {
+        if (modelVersion.isEmpty()) return;
+        state = "loading";
+        background.execute(this::load);
+        background.scheduleWithFixedDelay(this::saveIfDirty, 1, 1, TimeUnit.MINUTES);
+    }
+
+    private void load() {
+        try {
+            if (indexDir == null) {
+                throw new IOException("Set LANDMARK_INDEX_DIR (or LANDMARK_MODEL_DIR) to keep the reference index");
+            }
+            Path modelPath = LandmarkModelRegistry.externalModel(modelVersion);
+            if (modelPath == null) {
+                throw new IOException("No " + modelVersion + ".onnx in LANDMARK_MODEL_DIR");
+            }
+            LandmarkModel loaded = LandmarkModel.loadEmbedding(modelVersion, modelPath);
+            loaded.warmUp(AppEnv.getLandmarkWarmupRuns());
+            int dim = loaded.infer(new BufferedImage(LandmarkInferenceService.INPUT_SIZE,
+                    LandmarkInferenceService.INPUT_SIZE, BufferedImage.TYPE_3BYTE_BGR), timeoutMs).length;
+
+            VectorIndex loadedIndex = null;
+            Path indexFile = indexDir.resolve(INDEX_FILE);
+            if (Files.isRegularFile(indexFile)) {
+                loadedIndex = VectorIndex.load(indexFile);
+                readLabels(indexDir.resolve(LABELS_FILE));
+                if (loadedIndex.dim() != dim) {
+                    // a different embedding model; its vectors are meaningless here
+                    Debug.log("Landmark index has " + loadedIndex.dim() + " dimensions, model has " + dim
+                            + "; starting an empty index");
+                    loadedIndex = null;
+                    synchronized (this) {
+                        labels.clear();
+                        labelIds.clear();
+                    }
+                }
+            }
+            if (loadedIndex == null) {
+                loadedIndex = new VectorIndex(dim, AppEnv.getLandmarkIndexM(), AppEnv.getLandmarkIndexEfConstruction());
+            }
+            index = loadedIndex;
+            model = loaded;
+            state = "ready";
+            Debug.log("Landmark retrieval ready: " + loadedIndex.size() + " reference photo(s), " + dim + " dimensions");
+        } catch (Exception e) {
+            error = e.getMessage();
+            state = "failed";
+            System.err.println("Error loading landmark embedding model: " + e.getMessage());
+        }
+    }
+
+    public boolean isReady() {
+        return model != null;
+    }
+
+    /**
+     * The k most similar landmarks, best first. Several reference photos of one
+     * landmark count once, with the similarity of the closest.
+     */
+    public List<Map<String, Object>> search(BufferedImage image, int k) throws Exception {
+        float[] query = embed(image);
+        long start = System.nanoTime();
+        // over-fetch so k distinct landmarks survive the merge
+        VectorIndex.Hits hits = index.search(query, 4 * k, Math.max(efSearch, 4 * k));
+        searchStats.recordSince(start);
+
+        List<Map<String, Object>> out = new ArrayList<>(k);
+        boolean[] seen = new boolean[labelCount()];
+        for (int i = 0; i < hits.size() && out.size() < k; i++) {
+            int label = hits.labels()[i];
+            if (label >= seen.length || seen[label]) continue;
+            seen[label] = true;
+            String[] l = label(label);
+            Map<String, Object> match = new LinkedHashMap<>();
+            match.put("location", l[0]);
+            match.put("link", l[1]);
+            match.put("similarity", Math.round(hits.scores()[i] * 10000.0) / 100.0);
+            out.add(match);
+        }
+        return out;
+    }
+
+    /** Adds a reference photo for a landmark; the same name and link share one label. */
+    public int add(BufferedImage image, String name, String link) throws Exception {
+        float[] vector = embed(image);
+        int label;
+        synchronized (this) {
+            String key = name + '\n' + (link == null ? "" : link);
+            Integer existing = labelIds.get(key);
+            if (existing == null) {
+                existing = labels.size();
+                labels.add(new String[]{name, link == null ? "" : link});
+                labelIds.put(key, existing);
+            }
+            label = existing;
+        }
+        index.add(vector, label);
+        dirty.set(true);
+        return index.size();
+    }
+
+    private float[] embed(BufferedImage image) throws Exception {
+        LandmarkModel m = model;
+        if (m == null) {
+            throw new IllegalStateException("Landmark retrieval is " + state);
+        }
+        long start = System.nanoTime();
+        float[] v = m.infer(image, timeoutMs);
+        embedStats.recordSince(start);
+        double norm = 0;
+        for (float x : v) norm += x * x;
+        float scale = norm == 0 ? 0 : (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < v.length; i++) v[i] *= scale;
+        return v;
+    }
+
+    private synchronized int labelCount() {
+        return labels.size();
+    }
+
+    private synchronized String[] label(int id) {
+        return labels.get(id);
+    }
+
+    // ---- persistence ----
+
+    private void saveIfDirty() {
+        VectorIndex current = index;
+        if (current == null || !dirty.getAndSet(false)) return;
+        try {
+            Files.createDirectories(indexDir);
+            // labels are registered before their vectors, so a table written after
+            // the index covers every label the saved index refers to
+            current.save(indexDir.resolve(INDEX_FILE));
+            writeLabels(indexDir.resolve(LABELS_FILE));
+            Debug.log("Landmark index saved: " + current.size() + " reference photo(s)");
+        } catch (IOException e) {
+            dirty.set(true);
+            Debug.exception("Saving landmark index failed: " + e.getMessage());
+        }
+    }
+
+    private synchronized void writeLabels(Path file) throws IOException {
+        Path part = file.resolveSibling(file.getFileName() + ".part");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(part)))) {
+            out.writeInt(LABELS_MAGIC);
+            out.writeInt(labels.size());
+            for (String[] l : labels) {
+                out.writeUTF(l[0]);
+                out.writeUTF(l[1]);
+            }
+        }
+        Files.move(part, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private synchronized void readLabels(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != LABELS_MAGIC) {
+                throw new IOException("Not a landmark label file: " + file);
+            }
+            int n = in.readInt();
+            for (int i = 0; i < n; i++) {
+                String[] l = {in.readUTF(), in.readUTF()};
+                labelIds.put(l[0] + '\n' + l[1], labels.size());
+                labels.add(l);
+            }
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("state", state);
+        if (error != null) out.put("error", error);
+        if (modelVersion.isEmpty()) return out;
+        out.put("embeddingModel", modelVersion);
+        VectorIndex current = index;
+        if (current != null) {
+            out.put("dimensions", current.dim());
+            out.put("entries", current.size());
+            out.put("landmarks", labelCount());
+            out.put("offHeapMB", Math.round(current.offHeapBytes() / (1024.0 * 1024.0) * 10) / 10.0);
+        }
+        out.put("embed", embedStats.snapshot());
+        out.put("search", searchStats.snapshot());
+        return out;
+    }
+
+    @PreDestroy
+    public void close() {
+        background.shutdownNow();
+        saveIfDirty();
+        LandmarkModel m = model;
+        model = null;
+        if (m != null) m.close();
+    }
+}
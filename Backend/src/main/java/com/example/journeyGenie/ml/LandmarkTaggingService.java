@@ -0,0 +1,287 @@
+package com.example.journeyGenie.ml;
+
+import com.example.journeyGenie.authJWT.JWTService;
+import com.example.journeyGenie.entity.Photo;
+import com.example.journeyGenie.entity.Tour;
+import com.example.journeyGenie.repository.PhotoRepository;
+import com.example.journeyGenie.repository.TourRepository;
+import com.example.journeyGenie.service.PhotoIngestService;
+import com.example.journeyGenie.storage.BlobStore;
+import com.example.journeyGenie.util.AppEnv;
+import com.example.journeyGenie.util.Debug;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.awt.image.BufferedImage;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Background job that recognizes the landmark on every stored photo of a tour
+ * and saves the best match on the Photo row, so galleries and blogs can show it
+ * without calling the model per photo.
+ *
+ * Photos are handled in chunks: the thumbnails of a chunk are fetched and decoded
+ * in parallel while the previous chunk is with the model, and each chunk goes to
+ * the engine as one call so it fills whole batches. Jobs run one at a time so
+ * tagging never takes more than its share of the model from interactive requests.
+ */
+@Service
+public class LandmarkTaggingService {
+
+    public static final String STATE_QUEUED = "queued";
+    public static final String STATE_RUNNING = "running";
+    public static final String STATE_DONE = "done";
+    public static final String STATE_FAILED = "failed";
+
+    // fetched at twice the model input so the decoder can still subsample
+    private static final int THUMBNAIL_SIDE = 2 * LandmarkInferenceService.INPUT_SIZE;
+
+    private static final class Job {
+        final boolean retag;
+        volatile String state = STATE_QUEUED;
+        volatile String modelVersion;
+        volatile String error;
+        volatile int total;
+        volatile long startedAt;
+        volatile long finishedAt;
+        final AtomicInteger tagged = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+
+        Job(boolean retag) {
+            this.retag = retag;
+        }
+
+        boolean active() {
+            return STATE_QUEUED.equals(state) || STATE_RUNNING.equals(state);
+        }
+    }
+
+    /** The tour when the caller owns it, otherwise the response to send instead. */
+    private record Owned(Tour tour, ResponseEntity<?> denied) {}
+
+    @Autowired
+    private PhotoRepository photoRepository;
+
+    @Autowired
+    private TourRepository tourRepository;
+
+    @Autowired
+    private JWTService jwtService;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private LandmarkEngine engine;
+
+    @Autowired
+    private LandmarkImageDecoder decoder;
+
+    private final int chunkSize = AppEnv.getLandmarkTagChunk();
+    private final long predictTimeoutMs = AppEnv.getLandmarkPredictTimeoutMs();
+
+    // latest job per tour id
+    private final Map<Long, Job> jobs = new ConcurrentHashMap<>();
+
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "landmark-tagger");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final ExecutorService fetchers;
+
+    public LandmarkTaggingService() {
+        AtomicInteger n = new AtomicInteger();
+        fetchers = Executors.newFixedThreadPool(AppEnv.getLandmarkTagFetchThreads(), r -> {
+            Thread t = new Thread(r, "landmark-tag-fetch-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        runner.shutdownNow();
+        fetchers.shutdownNow();
+    }
+
+    /**
+     * Queues a tagging job for the tour. Photos that already carry a landmark are
+     * skipped unless retag is set. A job already queued or running is reported
+     * instead of starting a second one.
+     */
+    public ResponseEntity<?> start(Long tourId, boolean retag, HttpServletRequest request) {
+        Owned owned = checkOwner(tourId, request);
+        if (owned.denied() != null) return owned.denied();
+
+        Job created = new Job(retag);
+        Job job = jobs.compute(tourId, (id, existing) ->
+                existing != null && existing.active() ? existing : created);
+        if (job == created) {
+            runner.execute(() -> run(tourId, job));
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(describe(tourId, job));
+    }
+
+    public ResponseEntity<?> status(Long tourId, HttpServletRequest request) {
+        Owned owned = checkOwner(tourId, request);
+        if (owned.denied() != null) return owned.denied();
+
+        Job job = jobs.get(tourId);
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of(
+                    "success", false,
+                    "message", "No tagging job for tour " + tourId
+            ));
+        }
+        return ResponseEntity.ok(describe(tourId, job));
+    }
+
+    private Owned checkOwner(Long tourId, HttpServletRequest request) {
+        String email = jwtService.getEmailFromRequest(request);
+        if (email == null) {
+            return denied(HttpStatus.UNAUTHORIZED, "Unauthorized - please login again");
+        }
+        Tour tour = tourRepository.findById(tourId).orElse(null);
+        if (tour == null) {
+            return denied(HttpStatus.NOT_FOUND, "Tour not found with id: " + tourId);
+        }
+        if (!email.equals(tour.getUser().getEmail())) {
+            return denied(HttpStatus.FORBIDDEN, "Forbidden");
+        }
+        return new Owned(tour, null);
+    }
+
+    private static Owned denied(HttpStatus status, String message) {
+        return new Owned(null, ResponseEntity.status(status).body(Map.of(
+                "success", false,
+                "message", message
+        )));
+    }
+
+    private void run(Long tourId, Job job) {
+        job.startedAt = System.currentTimeMillis();
+        job.state = STATE_RUNNING;
+        try {
+            String version = engine.route();
+            LandmarkMapping mapping = version == null ? null : engine.mapping(version);
+            if (mapping == null) {
+                throw new IllegalStateException("Model is not loaded");
+            }
+            job.modelVersion = version;
+
+            List<Photo> photos = new ArrayList<>();
+            for (Photo p : photoRepository.findByDayTourIdAndStatus(tourId, PhotoIngestService.STATUS_READY)) {
+                if (p.getLink() != null && (job.retag || p.getLandmarkModel() == null)) {
+                    photos.add(p);
+                }
+            }
+            job.total = photos.size();
+            Debug.log("Tagging " + photos.size() + " photo(s) of tour " + tourId + " with " + version);
+
+            List<CompletableFuture<BufferedImage>> next = fetch(photos, 0);
+            for (int from = 0; from < photos.size(); from += chunkSize) {
+                List<Photo> chunk = photos.subList(from, Math.min(from + chunkSize, photos.size()));
+                List<CompletableFuture<BufferedImage>> current = next;
+                next = fetch(photos, from + chunkSize);   // overlaps with this chunk's inference
+                tag(job, version, mapping, chunk, current);
+            }
+            job.state = STATE_DONE;
+        } catch (Exception e) {
+            job.error = e.getMessage();
+            job.state = STATE_FAILED;
+            Debug.exception("Tagging tour " + tourId + " failed: " + e.getMessage());
+        } finally {
+            job.finishedAt = System.currentTimeMillis();
+            Debug.log("Tagging tour " + tourId + " " + job.state + ": " + job.tagged + " tagged, "
+                    + job.failed + " failed in " + (job.finishedAt - job.startedAt) + " ms");
+        }
+    }
+
+    /** Starts fetching and decoding the chunk that begins at from; empty past the end. */
+    private List<CompletableFuture<BufferedImage>> fetch(List<Photo> photos, int from) {
+        List<CompletableFuture<BufferedImage>> out = new ArrayList<>();
+        for (int i = from; i < Math.min(from + chunkSize, photos.size()); i++) {
+            String link = photos.get(i).getLink();
+            out.add(CompletableFuture.supplyAsync(() -> {
+                try (InputStream in = blobStore.openThumbnail(link, THUMBNAIL_SIDE)) {
+                    return decoder.decode(in, 0, LandmarkInferenceService.INPUT_SIZE);
+                } catch (Exception e) {
+                    Debug.log("Could not fetch " + link + " for tagging: " + e.getMessage());
+                    return null;
+                }
+            }, fetchers));
+        }
+        return out;
+    }
+
+    private void tag(Job job, String version, LandmarkMapping mapping, List<Photo> chunk,
+                     List<CompletableFuture<BufferedImage>> images) throws Exception {
+        List<Photo> decoded = new ArrayList<>(chunk.size());
+        List<BufferedImage> batch = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            BufferedImage image = images.get(i).join();
+            if (image == null) {
+                job.failed.incrementAndGet();
+            } else {
+                decoded.add(chunk.get(i));
+                batch.add(image);
+            }
+        }
+        if (batch.isEmpty()) return;
+
+        List<LandmarkResult> results;
+        try {
+            results = engine.inferAll(version, batch, predictTimeoutMs);
+        } catch (TimeoutException e) {
+            // the model is busy with interactive traffic; give up on this chunk only
+            job.failed.addAndGet(batch.size());
+            return;
+        }
+        for (int i = 0; i < results.size(); i++) {
+            LandmarkResult result = results.get(i);
+            if (result == null) {
+                job.failed.incrementAndGet();
+                continue;
+            }
+            int best = result.classIds()[0];
+            photoRepository.updateLandmark(decoded.get(i).getId(), mapping.getName(best), mapping.getCategory(best),
+                    result.probabilities()[0], result.modelVersion());
+            job.tagged.incrementAndGet();
+        }
+    }
+
+    private static Map<String, Object> describe(Long tourId, Job job) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("success", !STATE_FAILED.equals(job.state));
+        out.put("tourId", tourId);
+        out.put("state", job.state);
+        out.put("retag", job.retag);
+        out.put("total", job.total);
+        out.put("tagged", job.tagged.get());
+        out.put("failed", job.failed.get());
+        if (job.modelVersion != null) out.put("modelVersion", job.modelVersion);
+        if (job.error != null) out.put("error", job.error);
+        if (job.startedAt > 0) {
+            long end = job.finishedAt > 0 ? job.finishedAt : System.currentTimeMillis();
+            out.put("elapsedMs", end - job.startedAt);
+        }
+        out.put("statusUrl", "/api/landmark/tours/" + tourId + "/tags");
+        return out;
+    }
+}
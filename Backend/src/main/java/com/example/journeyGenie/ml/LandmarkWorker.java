@@ -0,0 +1,258 @@
+package com.example.journeyGenie.ml;
+
+import com.example.journeyGenie.util.AppEnv;
+import com.example.journeyGenie.util.Debug;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Standalone landmark inference process. Hosts a {@link LandmarkModelRegistry}
+ * and serves it over a Unix domain socket ({@link LandmarkProtocol}), so native
+ * memory, crashes and inference threads stay out of the API JVM. The API talks
+ * to it through {@link RemoteLandmarkEngine} when LANDMARK_WORKER_SOCKET is set.
+ *
+ *   java -cp app.jar -Dloader.main=com.example.journeyGenie.ml.LandmarkWorker \
+ *        org.springframework.boot.loader.launch.PropertiesLauncher [socketPath]
+ *
+ * Model settings (LANDMARK_MODEL_VERSIONS, LANDMARK_ORT_*, pool and batch sizes)
+ * are read from the same environment as the API. LANDMARK_WORKER_MAX_CONNECTIONS
+ * caps the open connections, each served by its own thread.
+ */
+public class LandmarkWorker {
+
+    private final LandmarkModelRegistry registry;
+    private final Path socketPath;
+    private final ObjectMapper json = new ObjectMapper();
+    // one thread per open connection, up to maxConnections; further connections are refused
+    private final int maxConnections;
+    private final Semaphore open;
+    private final ExecutorService connections;
+
+    LandmarkWorker(LandmarkModelRegistry registry, Path socketPath, int maxConnections) {
+        this.registry = registry;
+        this.socketPath = socketPath;
+        this.maxConnections = maxConnections;
+        this.open = new Semaphore(maxConnections);
+        this.connections = Executors.newFixedThreadPool(maxConnections, r -> {
+            Thread t = new Thread(r, "landmark-worker-conn");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static void main(String[] args) throws IOException {
+        String socket = args.length > 0 ? args[0] : AppEnv.getLandmarkWorkerSocket();
+        if (socket.isEmpty()) {
+            System.err.println("Usage: LandmarkWorker <socketPath> (or set LANDMARK_WORKER_SOCKET)");
+            System.exit(2);
+        }
+        LandmarkModelRegistry registry = new LandmarkModelRegistry();
+        registry.init();
+        new LandmarkWorker(registry, Path.of(socket), AppEnv.getLandmarkWorkerMaxConnections()).serve();
+    }
+
+    void serve() throws IOException {
+        Files.deleteIfExists(socketPath);   // left behind by a previous run that crashed
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socketPath));
+            try {
+                // only this user's processes may submit work
+                Files.setPosixFilePermissions(socketPath, PosixFilePermissions.fromString("rw-------"));
+            } catch (UnsupportedOperationException ignored) {
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                registry.close();
+                try {
+                    Files.deleteIfExists(socketPath);
+                } catch (IOException ignored) {
+                }
+            }));
+            Debug.log("Landmark worker listening on " + socketPath + " (max " + maxConnections + " connections)");
+
+            while (true) {
+                SocketChannel channel = server.accept();
+                if (!open.tryAcquire()) {
+                    // the client sees the handshake fail and reports the error instead of queueing here
+                    Debug.log("Landmark worker refused a connection: " + maxConnections + " already open");
+                    channel.close();
+                    continue;
+                }
+                connections.execute(() -> {
+                    try {
+                        handle(channel);
+                    } finally {
+                        open.release();
+                    }
+                });
+            }
+        }
+    }
+
+    private void handle(SocketChannel channel) {
+        try (channel) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 64 * 1024));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 8 * 1024));
+
+            if (in.readInt() != LandmarkProtocol.MAGIC || in.readInt() != LandmarkProtocol.VERSION) {
+                return;
+            }
+            out.writeInt(LandmarkProtocol.MAGIC);
+            out.writeInt(LandmarkProtocol.VERSION);
+            out.flush();
+
+            while (true) {
+                byte op;
+                try {
+                    op = in.readByte();
+                } catch (EOFException e) {
+                    return;                     // client closed the connection
+                }
+                switch (op) {
+                    case LandmarkProtocol.PREDICT -> predict(in, out);
+                    case LandmarkProtocol.PREDICT_ALL -> predictAll(in, out);
+                    case LandmarkProtocol.STATUS -> status(in, out);
+                    case LandmarkProtocol.CONTROL -> control(in, out);
+                    default -> {
+                        return;                 // out of sync; drop the connection
+                    }
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            Debug.log("Landmark worker connection closed: " + e.getMessage());
+        }
+    }
+
+    private void predict(DataInputStream in, DataOutputStream out) throws IOException {
+        String version = LandmarkProtocol.readString(in);
+        long timeoutMs = in.readLong();
+        BufferedImage image = LandmarkProtocol.readImage(in);
+        LandmarkResult result;
+        try {
+            result = registry.infer(version, image, timeoutMs);
+        } catch (IllegalStateException e) {
+            fail(out, LandmarkProtocol.NOT_LOADED, e.getMessage());
+            return;
+        } catch (TimeoutException e) {
+            fail(out, LandmarkProtocol.BUSY, "Landmark service is busy, please retry");
+            return;
+        } catch (Exception e) {
+            fail(out, LandmarkProtocol.ERROR, String.valueOf(e.getMessage()));
+            return;
+        }
+        out.writeByte(LandmarkProtocol.OK);
+        LandmarkProtocol.writeString(out, result.modelVersion());
+        writeRanks(out, result);
+    }
+
+    private void predictAll(DataInputStream in, DataOutputStream out) throws IOException {
+        String version = LandmarkProtocol.readString(in);
+        long timeoutMs = in.readLong();
+        int count = in.readInt();
+        if (count < 0 || count > LandmarkProtocol.MAX_IMAGES) {
+            throw new IOException("Bad image count " + count);
+        }
+        List<BufferedImage> images = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            images.add(LandmarkProtocol.readImage(in));
+        }
+        List<LandmarkResult> results;
+        try {
+            results = registry.inferAll(version, images, timeoutMs);
+        } catch (IllegalStateException e) {
+            fail(out, LandmarkProtocol.NOT_LOADED, e.getMessage());
+            return;
+        } catch (TimeoutException e) {
+            fail(out, LandmarkProtocol.BUSY, "Landmark service is busy, please retry");
+            return;
+        } catch (Exception e) {
+            fail(out, LandmarkProtocol.ERROR, String.valueOf(e.getMessage()));
+            return;
+        }
+        out.writeByte(LandmarkProtocol.OK);
+        LandmarkProtocol.writeString(out, version);
+        out.writeInt(results.size());
+        for (LandmarkResult result : results) {
+            if (result == null) {
+                out.writeInt(-1);
+            } else {
+                writeRanks(out, result);
+            }
+        }
+    }
+
+    private static void writeRanks(DataOutputStream out, LandmarkResult result) throws IOException {
+        out.writeInt(result.size());
+        for (int i = 0; i < result.size(); i++) {
+            out.writeInt(result.classIds()[i]);
+            out.writeFloat(result.probabilities()[i]);
+        }
+    }
+
+    private void status(DataInputStream in, DataOutputStream out) throws IOException {
+        boolean withStats = in.readBoolean();
+        LandmarkModelRegistry.Routing routing = registry.routing();
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("readiness", registry.readiness());
+        status.put("defaultVersion", routing.defaultVersion());
+        status.put("candidateVersion", routing.candidateVersion());
+        status.put("candidatePercent", routing.candidatePercent());
+        status.put("readyVersions", registry.readyVersions());
+        if (withStats) {
+            status.put("stats", registry.stats());
+        }
+        out.writeByte(LandmarkProtocol.OK);
+        LandmarkProtocol.writeString(out, json.writeValueAsString(status));
+    }
+
+    private void control(DataInputStream in, DataOutputStream out) throws IOException {
+        String command = LandmarkProtocol.readString(in);
+        String version = LandmarkProtocol.readString(in);
+        int argument = in.readInt();
+        try {
+            switch (command) {
+                case "load" -> registry.load(version, argument != 0);
+                case "default" -> registry.setDefault(version);
+                case "candidate" -> registry.setCandidate(version.isEmpty() ? null : version, argument);
+                case "unload" -> registry.unload(version);
+                default -> throw new IllegalArgumentException("Unknown command " + command);
+            }
+        } catch (IllegalArgumentException e) {
+            fail(out, LandmarkProtocol.BAD_REQUEST, e.getMessage());
+            return;
+        } catch (IllegalStateException e) {
+            fail(out, LandmarkProtocol.CONFLICT, e.getMessage());
+            return;
+        }
+        out.writeByte(LandmarkProtocol.OK);
+        LandmarkProtocol.writeString(out, json.writeValueAsString(registry.stats()));
+    }
+
+    private static void fail(DataOutputStream out, byte status, String message) throws IOException {
+        out.writeByte(status);
+        LandmarkProtocol.writeString(out, message);
+    }
+}
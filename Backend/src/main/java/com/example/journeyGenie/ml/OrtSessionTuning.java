@@ -0,0 +1,159 @@
+package com.example.journeyGenie.ml;
+
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession.SessionOptions;
+import ai.onnxruntime.OrtSession.SessionOptions.ExecutionMode;
+import ai.onnxruntime.OrtSession.SessionOptions.OptLevel;
+import com.example.journeyGenie.util.AppEnv;
+import com.example.journeyGenie.util.Debug;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ONNX Runtime session options for the landmark models, from the LANDMARK_ORT_*
+ * settings, plus an on-disk cache of optimized graphs.
+ *
+ * The first load of a model writes the graph ORT produced after optimization to
+ * the cache dir; later loads of the same source file (same bytes, ORT version,
+ * optimization level and CPU architecture) open that graph with optimizations
+ * disabled, which skips the optimization pass at startup.
+ *
+ * DJL's string options for ORT cannot set the optimized-model path, so a full
+ * SessionOptions is passed to Model.load under the "sessionOptions" key.
+ */
+class OrtSessionTuning {
+
+    /** Options plus the file to load for one model; commit() once the session is created. */
+    static final class Session implements AutoCloseable {
+        final Path modelPath;
+        final SessionOptions options;
+        final boolean fromCache;
+        private final Path pending;
+        private final Path target;
+
+        private Session(Path modelPath, SessionOptions options, boolean fromCache, Path pending, Path target) {
+            this.modelPath = modelPath;
+            this.options = options;
+            this.fromCache = fromCache;
+            this.pending = pending;
+            this.target = target;
+        }
+
+        /** Publishes the optimized graph ORT just wrote, if any. */
+        void commit() {
+            if (pending == null || !Files.isRegularFile(pending)) return;
+            try {
+                Files.move(pending, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                Debug.log("Saved optimized landmark graph to " + target);
+            } catch (IOException e) {
+                Debug.log("Could not save optimized graph: " + e.getMessage());
+                discard();
+            }
+        }
+
+        /** Drops a cached graph that failed to load, so the next attempt re-optimizes. */
+        void discard() {
+            try {
+                if (pending != null) Files.deleteIfExists(pending);
+                if (fromCache) Files.deleteIfExists(modelPath);
+            } catch (IOException ignored) {
+            }
+        }
+
+        @Override
+        public void close() {
+            options.close();
+        }
+    }
+
+    private final int intraOpThreads = AppEnv.getOrtIntraOpThreads();
+    private final int interOpThreads = AppEnv.getOrtInterOpThreads();
+    private final OptLevel optLevel = parse(OptLevel.class, AppEnv.getOrtOptLevel(), OptLevel.ALL_OPT);
+    private final ExecutionMode executionMode =
+            parse(ExecutionMode.class, AppEnv.getOrtExecutionMode(), ExecutionMode.SEQUENTIAL);
+    private final boolean cpuArena = AppEnv.isOrtCpuArenaEnabled();
+    private final boolean memoryPattern = AppEnv.isOrtMemoryPatternEnabled();
+    private final String cacheDir = AppEnv.getOrtCacheDir();
+
+    /**
+     * Options for loading the model at source, or its cached optimized graph.
+     * With useCache false the source is always loaded (used after a cached graph failed).
+     */
+    Session prepare(String version, Path source, boolean useCache) throws IOException, OrtException {
+        Path target = useCache ? cachedGraph(version, source) : null;
+        SessionOptions options = baseOptions();
+        try {
+            if (target != null && Files.isRegularFile(target)) {
+                options.setOptimizationLevel(OptLevel.NO_OPT);
+                return new Session(target, options, true, null, null);
+            }
+            options.setOptimizationLevel(optLevel);
+            Path pending = null;
+            if (target != null && optLevel != OptLevel.NO_OPT) {
+                // written while the session is created, published by commit()
+                pending = target.resolveSibling(target.getFileName() + ".part.onnx");
+                options.setOptimizedModelFilePath(pending.toString());
+            }
+            return new Session(source, options, false, pending, target);
+        } catch (OrtException | RuntimeException e) {
+            options.close();
+            throw e;
+        }
+    }
+
+    private SessionOptions baseOptions() throws OrtException {
+        SessionOptions options = new SessionOptions();
+        try {
+            options.setIntraOpNumThreads(intraOpThreads);
+            options.setInterOpNumThreads(interOpThreads);
+            options.setExecutionMode(executionMode);
+            options.setCPUArenaAllocator(cpuArena);
+            options.setMemoryPatternOptimization(memoryPattern);
+            return options;
+        } catch (OrtException e) {
+            options.close();
+            throw e;
+        }
+    }
+
+    /** Cache file for this source and configuration, or null when the cache is off. */
+    private Path cachedGraph(String version, Path source) throws IOException {
+        if (cacheDir.isEmpty() || "off".equalsIgnoreCase(cacheDir)) return null;
+        String digest;
+        try (InputStream in = Files.newInputStream(source)) {
+            digest = LandmarkResultCache.fingerprint(in).substring(0, 16);
+        }
+        String ortVersion = OrtEnvironment.getEnvironment().getVersion();
+        Path dir = Path.of(cacheDir);
+        Files.createDirectories(dir);
+        return dir.resolve(version + "-" + digest + "-" + optLevel + "-ort" + ortVersion
+                + "-" + System.getProperty("os.arch") + ".onnx");
+    }
+
+    private static <E extends Enum<E>> E parse(Class<E> type, String value, E defaultValue) {
+        try {
+            return Enum.valueOf(type, value);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid " + type.getSimpleName() + " " + value + ", defaulting to " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("intraOpThreads", intraOpThreads);
+        out.put("interOpThreads", interOpThreads);
+        out.put("optLevel", optLevel.name());
+        out.put("executionMode", executionMode.name());
+        out.put("cpuArena", cpuArena);
+        out.put("memoryPattern", memoryPattern);
+        return out;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.journeyGenie.ml;
+
+import ai.djl.inference.Predictor;
+import ai.djl.Model;
+import ai.djl.translate.Translator;
+import com.example.journeyGenie.util.LatencyStats;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed set of warm predictors for one model. Predictors are not thread-safe,
+ * so each request borrows one exclusively and hands it back when done.
+ */
+class PredictorPool<I, O> implements AutoCloseable {
+
+    private final BlockingQueue<Predictor<I, O>> idle;
+    private final List<Predictor<I, O>> all = new ArrayList<>();
+    private final LatencyStats waitStats = new LatencyStats();
+    private final LongAdder timeouts = new LongAdder();
+
+    PredictorPool(Model model, Translator<I, O> translator, int size) {
+        this.idle = new ArrayBlockingQueue<>(size);
+        for (int i = 0; i < size; i++) {
+            Predictor<I, O> predictor = model.newPredictor(translator);
+            all.add(predictor);
+            idle.add(predictor);
+        }
+    }
+
+    Predictor<I, O> borrow(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+        long start = System.nanoTime();
+        Predictor<I, O> predictor = idle.poll(timeout, unit);
+        waitStats.recordSince(start);
+        if (predictor == null) {
+            timeouts.increment();
+            throw new TimeoutException("No predictor available within " + unit.toMillis(timeout) + " ms");
+        }
+        return predictor;
+    }
+
+    void release(Predictor<I, O> predictor) {
+        idle.offer(predictor);
+    }
+
+    int size() {
+        return all.size();
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("size", all.size());
+        out.put("idle", idle.size());
+        out.put("timeouts", timeouts.sum());
+        out.put("wait", waitStats.snapshot());
+        return out;
+    }
+
+    @Override
+    public void close() {
+        idle.clear();
+        all.forEach(Predictor::close);
+        all.clear();
+    }
+}
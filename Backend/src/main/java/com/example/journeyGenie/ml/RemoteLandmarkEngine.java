@@ -0,0 +1,396 @@
+package com.example.journeyGenie.ml;
+
+import com.example.journeyGenie.util.Debug;
+import com.example.journeyGenie.util.LatencyStats;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thin client for a {@link LandmarkWorker} on the same host. Keeps a small pool
+ * of Unix socket connections, each carrying one request at a time; concurrent
+ * requests over different connections are still batched by the worker.
+ *
+ * Routing is decided here from the worker's last reported status (refreshed at
+ * most once a second) so the result cache and the inference agree on the version.
+ * Labels are loaded on this side, so only class ids and probabilities cross the socket.
+ */
+public class RemoteLandmarkEngine implements LandmarkEngine, AutoCloseable {
+
+    private static final long STATUS_TTL_MS = 1000;
+    private static final long CONTROL_TIMEOUT_MS = 10_000;
+    private static final TypeReference<Map<String, Object>> MAP = new TypeReference<>() {};
+
+    private static final class Connection {
+        final SocketChannel channel;
+        final DataInputStream in;
+        final DataOutputStream out;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+            this.in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 8 * 1024));
+            this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Exchange<T> {
+        T run(DataInputStream in, DataOutputStream out) throws Exception;
+    }
+
+    private final UnixDomainSocketAddress address;
+    private final BlockingQueue<Connection> idle;
+    private final Semaphore permits;
+    private final int size;
+    private final ObjectMapper json = new ObjectMapper();
+    private final Map<String, LandmarkMapping> mappings = new ConcurrentHashMap<>();
+
+    // closes a connection whose call ran past its deadline, which unblocks the caller
+    private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "landmark-worker-watchdog");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final LatencyStats rpcStats = new LatencyStats();
+    private final LongAdder failures = new LongAdder();
+
+    private volatile Map<String, Object> status;
+    private volatile long statusAt;
+    private volatile String statusError;
+    private final Semaphore refreshing = new Semaphore(1);
+
+    public RemoteLandmarkEngine(Path socketPath, int connections) {
+        this.address = UnixDomainSocketAddress.of(socketPath);
+        this.size = connections;
+        this.idle = new ArrayBlockingQueue<>(connections);
+        this.permits = new Semaphore(connections);
+    }
+
+    // ---- routing and status ----
+
+    @Override
+    public String route() {
+        Map<String, Object> s = status();
+        if (s == null) return null;
+        List<?> ready = (List<?>) s.get("readyVersions");
+        Object candidate = s.get("candidateVersion");
+        int percent = ((Number) s.get("candidatePercent")).intValue();
+        if (candidate != null && percent > 0 && ready.contains(candidate)
+                && ThreadLocalRandom.current().nextInt(100) < percent) {
+            return (String) candidate;
+        }
+        Object defaultVersion = s.get("defaultVersion");
+        return ready.contains(defaultVersion) ? (String) defaultVersion : null;
+    }
+
+    @Override
+    public boolean isReady() {
+        Map<String, Object> s = status();
+        return s != null && ((List<?>) s.get("readyVersions")).contains(s.get("defaultVersion"));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> readiness() {
+        Map<String, Object> s = status();
+        if (s == null) {
+            Map<String, Object> out = new LinkedHashMap<>();
+            out.put("ready", false);
+            out.put("state", "unreachable");
+            out.put("error", statusError);
+            return out;
+        }
+        return (Map<String, Object>) s.get("readiness");
+    }
+
+    /** Last worker status, refreshed by one caller at a time once it is older than STATUS_TTL_MS. */
+    private Map<String, Object> status() {
+        if (System.currentTimeMillis() - statusAt > STATUS_TTL_MS && refreshing.tryAcquire()) {
+            try {
+                status = fetchStatus(false);
+                statusError = null;
+            } catch (Exception e) {
+                status = null;
+                statusError = e.getMessage();
+            } finally {
+                statusAt = System.currentTimeMillis();
+                refreshing.release();
+            }
+        }
+        return status;
+    }
+
+    private Map<String, Object> fetchStatus(boolean withStats) throws Exception {
+        String body = call(CONTROL_TIMEOUT_MS, (in, out) -> {
+            out.writeByte(LandmarkProtocol.STATUS);
+            out.writeBoolean(withStats);
+            out.flush();
+            return readOk(in);
+        });
+        return json.readValue(body, MAP);
+    }
+
+    // ---- inference ----
+
+    @Override
+    public LandmarkResult infer(String version, BufferedImage image, long timeoutMs) throws Exception {
+        long start = System.nanoTime();
+        LandmarkResult result = call(timeoutMs, (in, out) -> {
+            out.writeByte(LandmarkProtocol.PREDICT);
+            LandmarkProtocol.writeString(out, version);
+            out.writeLong(timeoutMs);
+            LandmarkProtocol.writeImage(out, image);
+            out.flush();
+
+            readStatus(in);
+            String served = LandmarkProtocol.readString(in);
+            return readRanks(in, served, in.readInt());
+        });
+        rpcStats.recordSince(start);
+        return result;
+    }
+
+    /** Sends the whole list in one request so the worker can batch it. */
+    @Override
+    public List<LandmarkResult> inferAll(String version, List<BufferedImage> images, long timeoutMs) throws Exception {
+        long start = System.nanoTime();
+        List<LandmarkResult> results = call(timeoutMs, (in, out) -> {
+            out.writeByte(LandmarkProtocol.PREDICT_ALL);
+            LandmarkProtocol.writeString(out, version);
+            out.writeLong(timeoutMs);
+            out.writeInt(images.size());
+            for (BufferedImage image : images) {
+                LandmarkProtocol.writeImage(out, image);
+            }
+            out.flush();
+
+            readStatus(in);
+            String served = LandmarkProtocol.readString(in);
+            int count = in.readInt();
+            List<LandmarkResult> ranked = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int n = in.readInt();
+                ranked.add(n < 0 ? null : readRanks(in, served, n));
+            }
+            return ranked;
+        });
+        rpcStats.recordSince(start);
+        return results;
+    }
+
+    private static void readStatus(DataInputStream in) throws Exception {
+        byte code = in.readByte();
+        if (code != LandmarkProtocol.OK) {
+            String message = LandmarkProtocol.readString(in);
+            switch (code) {
+                case LandmarkProtocol.NOT_LOADED -> throw new IllegalStateException(message);
+                case LandmarkProtocol.BUSY -> throw new TimeoutException(message);
+                default -> throw new IOException("Landmark worker error: " + message);
+            }
+        }
+    }
+
+    private static LandmarkResult readRanks(DataInputStream in, String version, int n) throws IOException {
+        int[] ids = new int[n];
+        float[] probs = new float[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = in.readInt();
+            probs[i] = in.readFloat();
+        }
+        return new LandmarkResult(version, ids, probs);
+    }
+
+    /** Labels are read locally (memory-mapped when a .labels file exists) for versions the worker has ready. */
+    @Override
+    public LandmarkMapping mapping(String version) {
+        LandmarkMapping mapping = mappings.get(version);
+        if (mapping != null) return mapping;
+        Map<String, Object> s = status();
+        if (s == null || !((List<?>) s.get("readyVersions")).contains(version)) return null;
+        return mappings.computeIfAbsent(version, v -> {
+            try {
+                return LandmarkMapping.forVersion(v);
+            } catch (IOException e) {
+                Debug.log("Could not load labels for " + v + ": " + e.getMessage());
+                return null;
+            }
+        });
+    }
+
+    // ---- model management, forwarded to the worker ----
+
+    @Override
+    public void load(String version, boolean activate) {
+        control("load", version, activate ? 1 : 0);
+    }
+
+    @Override
+    public void setDefault(String version) {
+        control("default", version, 0);
+    }
+
+    @Override
+    public void setCandidate(String version, int percent) {
+        control("candidate", version, percent);
+    }
+
+    @Override
+    public void unload(String version) {
+        control("unload", version, 0);
+        mappings.remove(version);
+    }
+
+    private void control(String command, String version, int argument) {
+        try {
+            call(CONTROL_TIMEOUT_MS, (in, out) -> {
+                out.writeByte(LandmarkProtocol.CONTROL);
+                LandmarkProtocol.writeString(out, command);
+                LandmarkProtocol.writeString(out, version);
+                out.writeInt(argument);
+                out.flush();
+
+                byte code = in.readByte();
+                String body = LandmarkProtocol.readString(in);
+                if (code == LandmarkProtocol.BAD_REQUEST) throw new IllegalArgumentException(body);
+                if (code == LandmarkProtocol.CONFLICT) throw new IllegalStateException(body);
+                if (code != LandmarkProtocol.OK) throw new IOException(body);
+                return body;
+            });
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Landmark worker unavailable: " + e.getMessage());
+        } finally {
+            statusAt = 0;   // pick up the new routing on the next request
+        }
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("mode", "worker");
+        out.put("socket", address.getPath().toString());
+        out.put("connections", size);
+        out.put("idleConnections", idle.size());
+        out.put("failures", failures.sum());
+        out.put("rpc", rpcStats.snapshot());
+        try {
+            Map<String, Object> s = fetchStatus(true);
+            out.put("worker", s.get("stats"));
+        } catch (Exception e) {
+            out.put("worker", Map.of("error", String.valueOf(e.getMessage())));
+        }
+        return out;
+    }
+
+    // ---- connection pool ----
+
+    private static String readOk(DataInputStream in) throws IOException {
+        byte code = in.readByte();
+        String body = LandmarkProtocol.readString(in);
+        if (code != LandmarkProtocol.OK) throw new IOException(body);
+        return body;
+    }
+
+    /**
+     * Runs one request/response on a pooled connection. A connection that fails or
+     * runs past the deadline is closed instead of being returned to the pool.
+     */
+    private <T> T call(long timeoutMs, Exchange<T> exchange) throws Exception {
+        if (!permits.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS)) {
+            throw new TimeoutException("No landmark worker connection available");
+        }
+        Connection conn = null;
+        boolean reusable = false;
+        try {
+            conn = idle.poll();
+            if (conn == null) conn = connect();
+            Connection c = conn;
+            // the worker enforces timeoutMs itself; this only catches a hung worker
+            ScheduledFuture<?> guard = watchdog.schedule(c::close, timeoutMs + 1000, TimeUnit.MILLISECONDS);
+            try {
+                T result = exchange.run(c.in, c.out);
+                reusable = true;
+                return result;
+            } catch (IllegalStateException | IllegalArgumentException | TimeoutException e) {
+                reusable = true;            // a well-formed error reply; the stream is still in sync
+                throw e;
+            } catch (IOException e) {
+                failures.increment();
+                if (guard.isDone()) {
+                    throw new TimeoutException("Landmark worker did not answer within " + timeoutMs + " ms");
+                }
+                throw e;
+            } finally {
+                guard.cancel(false);
+            }
+        } finally {
+            if (conn != null) {
+                if (reusable && conn.channel.isOpen()) idle.offer(conn);
+                else conn.close();
+            }
+            permits.release();
+        }
+    }
+
+    private Connection connect() throws IOException {
+        SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            channel.connect(address);
+            Connection conn = new Connection(channel);
+            conn.out.writeInt(LandmarkProtocol.MAGIC);
+            conn.out.writeInt(LandmarkProtocol.VERSION);
+            conn.out.flush();
+            if (conn.in.readInt() != LandmarkProtocol.MAGIC || conn.in.readInt() != LandmarkProtocol.VERSION) {
+                throw new IOException("Landmark worker speaks a different protocol");
+            }
+            return conn;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        watchdog.shutdownNow();
+        Connection conn;
+        while ((conn = idle.poll()) != null) {
+            conn.close();
+        }
+    }
+}
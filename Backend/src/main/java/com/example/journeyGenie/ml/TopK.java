@@ -0,0 +1,69 @@
+package com.example.journeyGenie.ml;
+
+/**
+ * Top-k selection over a float[] using a fixed-size min-heap of indices.
+ * O(n log k) with k tiny, so effectively one pass over the scores; no boxing,
+ * no full sort of the class indices.
+ */
+final class TopK {
+
+    private TopK() {
+    }
+
+    /** Indices of the k largest scores, highest first. */
+    static int[] select(float[] scores, int k) {
+        k = Math.min(k, scores.length);
+        if (k <= 0) return new int[0];
+
+        int[] heap = new int[k]; // heap[0] is the smallest of the current top k
+        int size = 0;
+        for (int i = 0; i < scores.length; i++) {
+            float v = scores[i];
+            if (size < k) {
+                heap[size] = i;
+                siftUp(heap, scores, size++);
+            } else if (v > scores[heap[0]]) {
+                heap[0] = i;
+                siftDown(heap, scores, 0, k);
+            }
+        }
+
+        // pop the min repeatedly, filling from the back -> descending order
+        int[] out = new int[k];
+        for (int n = k; n > 0; n--) {
+            out[n - 1] = heap[0];
+            heap[0] = heap[n - 1];
+            siftDown(heap, scores, 0, n - 1);
+        }
+        return out;
+    }
+
+    private static void siftUp(int[] heap, float[] s, int i) {
+        int idx = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!less(s, idx, heap[parent])) break;
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = idx;
+    }
+
+    private static void siftDown(int[] heap, float[] s, int i, int size) {
+        int idx = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            if (child + 1 < size && less(s, heap[child + 1], heap[child])) child++;
+            if (!less(s, heap[child], idx)) break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = idx;
+    }
+
+    // ties broken by index so the lower class id ranks higher, like argmax
+    private static boolean less(float[] s, int a, int b) {
+        return s[a] < s[b] || (s[a] == s[b] && a > b);
+    }
+}
@@ -0,0 +1,597 @@
+package com.example.journeyGenie.ml;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Approximate nearest-neighbour index (HNSW) over L2-normalized float vectors,
+ * scored by dot product, i.e. cosine similarity.
+ *
+ * The vectors and the level-0 neighbour lists, which are nearly all of the memory,
+ * live in direct buffers allocated in fixed-size chunks, so the index grows without
+ * copying and stays out of the Java heap. The few nodes on upper levels keep plain
+ * arrays. Searches share a read lock and adds take the write lock, so a search
+ * never sees a half-linked node.
+ *
+ * Each vector carries an int label chosen by the caller; nothing is ever removed.
+ */
+class VectorIndex {
+
+    /** The best matches of a search, most similar first. */
+    record Hits(int[] labels, float[] scores) {
+        int size() {
+            return labels.length;
+        }
+    }
+
+    private static final int MAGIC = 0x4A47484E; // "JGHN"
+    private static final int CHUNK_BITS = 12;    // 4096 nodes per buffer chunk
+    private static final int CHUNK = 1 << CHUNK_BITS;
+
+    private final int dim;
+    private final int m;
+    private final int m0;
+    private final int efConstruction;
+    private final double levelFactor;
+
+    private final List<ByteBuffer> vectorChunks = new ArrayList<>();
+    private final List<ByteBuffer> linkChunks = new ArrayList<>();   // per node: count, then m0 ids
+    private int[][][] upper = new int[CHUNK][][];                     // per node and level >= 1: count, then m ids
+    private int[] labels = new int[CHUNK];
+    private int size;
+    private int entry = -1;
+    private int maxLevel = -1;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<FloatBuffer> vectorFloats = new ArrayList<>();  // float views of vectorChunks
+    private final ThreadLocal<Visited> visited = ThreadLocal.withInitial(Visited::new);
+    private final ThreadLocal<Scratch> scratch;
+
+    /**
+     * @param m              links per node on the upper levels (twice that on level 0)
+     * @param efConstruction candidate list size while linking a new node
+     */
+    VectorIndex(int dim, int m, int efConstruction) {
+        this.dim = dim;
+        this.m = Math.max(2, m);
+        this.m0 = 2 * this.m;
+        this.efConstruction = Math.max(this.m, efConstruction);
+        this.levelFactor = 1 / Math.log(this.m);
+        this.scratch = ThreadLocal.withInitial(() -> new Scratch(dim));
+    }
+
+    int dim() {
+        return dim;
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Bytes held outside the heap by vectors and level-0 links. */
+    long offHeapBytes() {
+        lock.readLock().lock();
+        try {
+            return (long) vectorChunks.size() * CHUNK * dim * Float.BYTES
+                    + (long) linkChunks.size() * CHUNK * (1 + m0) * Integer.BYTES;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ---- search ----
+
+    /** Up to k nodes closest to the (normalized) query, exploring ef candidates on level 0. */
+    Hits search(float[] query, int k, int ef) {
+        lock.readLock().lock();
+        try {
+            if (size == 0) return new Hits(new int[0], new float[0]);
+            int ep = entry;
+            for (int level = maxLevel; level > 0; level--) {
+                ep = greedy(query, ep, level);
+            }
+            Heap found = searchLayer(query, ep, dot(query, ep), Math.max(ef, k), 0);
+
+            int n = Math.min(k, found.size);
+            int[] ids = new int[found.size];
+            float[] scores = new float[found.size];
+            for (int i = found.size - 1; i >= 0; i--) {   // worst is on top of the min-heap
+                scores[i] = found.topScore();
+                ids[i] = found.pop();
+            }
+            int[] outLabels = new int[n];
+            for (int i = 0; i < n; i++) outLabels[i] = labels[ids[i]];
+            return new Hits(outLabels, Arrays.copyOf(scores, n));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Walks a level towards the query, always moving to the best neighbour. */
+    private int greedy(float[] query, int ep, int level) {
+        float best = dot(query, ep);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int[] links = upper[ep][level - 1];
+            for (int i = 1; i <= links[0]; i++) {
+                float s = dot(query, links[i]);
+                if (s > best) {
+                    best = s;
+                    ep = links[i];
+                    changed = true;
+                }
+            }
+        }
+        return ep;
+    }
+
+    /** Best-first search of one level; returns up to ef nodes in a min-heap (worst on top). */
+    private Heap searchLayer(float[] query, int ep, float epScore, int ef, int level) {
+        Visited seen = visited.get();
+        float[] buffer = scratch.get().a;
+        seen.reset(size);
+        seen.mark(ep);
+        Heap candidates = new Heap(ef, false);
+        Heap found = new Heap(ef + 1, true);
+        candidates.push(ep, epScore);
+        found.push(ep, epScore);
+
+        while (candidates.size > 0) {
+            float score = candidates.topScore();
+            if (found.size >= ef && score < found.topScore()) break;
+            int node = candidates.pop();
+
+            int count = linkCount(node, level);
+            for (int i = 1; i <= count; i++) {
+                int next = link(node, level, i);
+                if (!seen.mark(next)) continue;
+                float s = dot(query, next, buffer);
+                if (found.size < ef || s > found.topScore()) {
+                    candidates.push(next, s);
+                    found.push(next, s);
+                    if (found.size > ef) found.pop();
+                }
+            }
+        }
+        return found;
+    }
+
+    // ---- insert ----
+
+    /** Adds a normalized vector with its label; returns the node id. */
+    int add(float[] vector, int label) {
+        if (vector.length != dim) {
+            throw new IllegalArgumentException("Expected " + dim + " dimensions, got " + vector.length);
+        }
+        lock.writeLock().lock();
+        try {
+            int id = allocate(label, randomLevel());
+            vectorFloats.get(id >>> CHUNK_BITS).put((id & (CHUNK - 1)) * dim, vector, 0, dim);
+            link(id, vector);
+            return id;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addVectorChunk() {
+        ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK * dim * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        vectorChunks.add(chunk);
+        vectorFloats.add(chunk.asFloatBuffer());
+    }
+
+    private int allocate(int label, int level) {
+        int id = size;
+        if ((id & (CHUNK - 1)) == 0 && (id >>> CHUNK_BITS) == vectorChunks.size()) {
+            addVectorChunk();
+            linkChunks.add(ByteBuffer.allocateDirect(CHUNK * (1 + m0) * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN));
+        }
+        if (id == labels.length) {
+            labels = Arrays.copyOf(labels, labels.length * 2);
+            upper = Arrays.copyOf(upper, upper.length * 2);
+        }
+        labels[id] = label;
+        if (level > 0) {
+            upper[id] = new int[level][1 + m];
+        }
+        size++;
+        return id;
+    }
+
+    private void link(int id, float[] vector) {
+        int level = upper[id] == null ? 0 : upper[id].length;
+        if (entry < 0) {
+            entry = id;
+            maxLevel = level;
+            return;
+        }
+        int ep = entry;
+        for (int l = maxLevel; l > level; l--) {
+            ep = greedy(vector, ep, l);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            Heap found = searchLayer(vector, ep, dot(vector, ep), efConstruction, l);
+            int[] ids = new int[found.size];
+            float[] scores = new float[found.size];
+            for (int i = found.size - 1; i >= 0; i--) {
+                scores[i] = found.topScore();
+                ids[i] = found.pop();
+            }
+            int[] neighbours = select(ids, scores, ids.length, m);
+            setLinks(id, l, neighbours, neighbours.length);
+            for (int n : neighbours) {
+                addLink(n, l, id);
+            }
+            ep = ids[0];
+        }
+        if (level > maxLevel) {
+            entry = id;
+            maxLevel = level;
+        }
+    }
+
+    /** Links target to id, re-pruning target's list when it is full. */
+    private void addLink(int target, int level, int id) {
+        int max = level == 0 ? m0 : m;
+        int count = linkCount(target, level);
+        if (count < max) {
+            setLink(target, level, count + 1, id);
+            setLinkCount(target, level, count + 1);
+            return;
+        }
+        int[] ids = new int[count + 1];
+        float[] scores = new float[count + 1];
+        for (int i = 0; i < count; i++) {
+            ids[i] = link(target, level, i + 1);
+        }
+        ids[count] = id;
+        for (int i = 0; i <= count; i++) scores[i] = dot(target, ids[i]);
+        sortDescending(ids, scores);
+        int[] kept = select(ids, scores, ids.length, max);
+        setLinks(target, level, kept, kept.length);
+    }
+
+    /**
+     * HNSW neighbour heuristic: walks candidates from most to least similar and keeps
+     * one only if it is closer to the base than to every neighbour kept so far, which
+     * spreads links across directions instead of clustering them.
+     */
+    private int[] select(int[] ids, float[] scores, int n, int max) {
+        int[] kept = new int[Math.min(n, max)];
+        int k = 0;
+        for (int i = 0; i < n && k < kept.length; i++) {
+            boolean diverse = true;
+            for (int j = 0; j < k; j++) {
+                if (dot(ids[i], kept[j]) > scores[i]) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) kept[k++] = ids[i];
+        }
+        return Arrays.copyOf(kept, k);
+    }
+
+    private int randomLevel() {
+        double r = ThreadLocalRandom.current().nextDouble();
+        return (int) (-Math.log(Math.max(r, 1e-12)) * levelFactor);
+    }
+
+    // ---- storage ----
+
+    // a bulk copy into a scratch array plus a plain array loop beats dim bounds-checked buffer reads
+    private float dot(float[] query, int node) {
+        return dot(query, node, scratch.get().a);
+    }
+
+    private float dot(float[] query, int node, float[] buffer) {
+        vectorFloats.get(node >>> CHUNK_BITS).get((node & (CHUNK - 1)) * dim, buffer, 0, dim);
+        return dot(query, buffer);
+    }
+
+    private float dot(int a, int b) {
+        Scratch s = scratch.get();
+        vectorFloats.get(a >>> CHUNK_BITS).get((a & (CHUNK - 1)) * dim, s.a, 0, dim);
+        vectorFloats.get(b >>> CHUNK_BITS).get((b & (CHUNK - 1)) * dim, s.b, 0, dim);
+        return dot(s.a, s.b);
+    }
+
+    // four independent sums: a single float accumulator serializes on the add latency
+    private float dot(float[] x, float[] y) {
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (int end = dim & ~3; i < end; i += 4) {
+            s0 += x[i] * y[i];
+            s1 += x[i + 1] * y[i + 1];
+            s2 += x[i + 2] * y[i + 2];
+            s3 += x[i + 3] * y[i + 3];
+        }
+        for (; i < dim; i++) {
+            s0 += x[i] * y[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    private int linkCount(int node, int level) {
+        if (level > 0) return upper[node][level - 1][0];
+        return linkChunks.get(node >>> CHUNK_BITS).getInt((node & (CHUNK - 1)) * (1 + m0) * Integer.BYTES);
+    }
+
+    private void setLinkCount(int node, int level, int count) {
+        if (level > 0) {
+            upper[node][level - 1][0] = count;
+        } else {
+            linkChunks.get(node >>> CHUNK_BITS).putInt((node & (CHUNK - 1)) * (1 + m0) * Integer.BYTES, count);
+        }
+    }
+
+    /** The i-th link (1-based) of a node on a level. */
+    private int link(int node, int level, int i) {
+        if (level > 0) return upper[node][level - 1][i];
+        return linkChunks.get(node >>> CHUNK_BITS).getInt(((node & (CHUNK - 1)) * (1 + m0) + i) * Integer.BYTES);
+    }
+
+    private void setLink(int node, int level, int i, int target) {
+        if (level > 0) {
+            upper[node][level - 1][i] = target;
+        } else {
+            linkChunks.get(node >>> CHUNK_BITS).putInt(((node & (CHUNK - 1)) * (1 + m0) + i) * Integer.BYTES, target);
+        }
+    }
+
+    private void setLinks(int node, int level, int[] targets, int n) {
+        for (int i = 0; i < n; i++) setLink(node, level, i + 1, targets[i]);
+        setLinkCount(node, level, n);
+    }
+
+    private static void sortDescending(int[] ids, float[] scores) {
+        // lists are at most 2m + 1 long, insertion sort is fine
+        for (int i = 1; i < ids.length; i++) {
+            int id = ids[i];
+            float s = scores[i];
+            int j = i - 1;
+            while (j >= 0 && scores[j] < s) {
+                ids[j + 1] = ids[j];
+                scores[j + 1] = scores[j];
+                j--;
+            }
+            ids[j + 1] = id;
+            scores[j + 1] = s;
+        }
+    }
+
+    // ---- persistence ----
+
+    /**
+     * Writes the index to a temporary file and renames it over the target.
+     * Layout (little-endian): MAGIC, dim, m, efConstruction, size, entry, maxLevel,
+     * size labels, size*dim floats, size*(1+2m) level-0 ints, then per node its
+     * number of upper levels followed by (1+m) ints per level.
+     */
+    void save(Path file) throws IOException {
+        lock.readLock().lock();
+        try {
+            Path part = file.resolveSibling(file.getFileName() + ".part");
+            try (FileChannel ch = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer header = ints(7);
+                header.putInt(MAGIC).putInt(dim).putInt(m).putInt(efConstruction)
+                        .putInt(size).putInt(entry).putInt(maxLevel).flip();
+                writeFully(ch, header);
+
+                ByteBuffer labelBuf = ints(size);
+                for (int i = 0; i < size; i++) labelBuf.putInt(labels[i]);
+                writeFully(ch, labelBuf.flip());
+
+                writeChunks(ch, vectorChunks, dim * Float.BYTES);
+                writeChunks(ch, linkChunks, (1 + m0) * Integer.BYTES);
+
+                ByteBuffer levels = ints(CHUNK * (1 + m));
+                for (int i = 0; i < size; i++) {
+                    int[][] u = upper[i];
+                    int need = 1 + (u == null ? 0 : u.length * (1 + m));
+                    if (levels.remaining() < need * Integer.BYTES) {
+                        writeFully(ch, levels.flip());
+                        levels = ints(Math.max(CHUNK * (1 + m), need));
+                    }
+                    levels.putInt(u == null ? 0 : u.length);
+                    if (u != null) {
+                        for (int[] l : u) for (int v : l) levels.putInt(v);
+                    }
+                }
+                writeFully(ch, levels.flip());
+                ch.force(false);
+            }
+            Files.move(part, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static VectorIndex load(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = readFully(ch, ints(7));
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a vector index: " + file);
+            }
+            VectorIndex index = new VectorIndex(header.getInt(), header.getInt(), header.getInt());
+            int size = header.getInt();
+            int entry = header.getInt();
+            int maxLevel = header.getInt();
+
+            int capacity = Math.max(CHUNK, Integer.highestOneBit(Math.max(1, size - 1)) << 1);
+            index.labels = new int[capacity];
+            index.upper = new int[capacity][][];
+            ByteBuffer labelBuf = readFully(ch, ints(size));
+            for (int i = 0; i < size; i++) index.labels[i] = labelBuf.getInt();
+
+            int chunks = (size + CHUNK - 1) >>> CHUNK_BITS;
+            for (int c = 0; c < chunks; c++) {
+                index.addVectorChunk();
+                index.linkChunks.add(ByteBuffer.allocateDirect(CHUNK * (1 + index.m0) * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN));
+            }
+            readChunks(ch, index.vectorChunks, size, index.dim * Float.BYTES);
+            readChunks(ch, index.linkChunks, size, (1 + index.m0) * Integer.BYTES);
+
+            ByteBuffer rest = readFully(ch, ByteBuffer.allocate((int) (ch.size() - ch.position())).order(ByteOrder.LITTLE_ENDIAN));
+            for (int i = 0; i < size; i++) {
+                int levels = rest.getInt();
+                if (levels == 0) continue;
+                int[][] u = new int[levels][1 + index.m];
+                for (int[] l : u) for (int j = 0; j < l.length; j++) l[j] = rest.getInt();
+                index.upper[i] = u;
+            }
+            index.size = size;
+            index.entry = entry;
+            index.maxLevel = maxLevel;
+            return index;
+        }
+    }
+
+    private void writeChunks(FileChannel ch, List<ByteBuffer> chunks, int bytesPerNode) throws IOException {
+        for (int c = 0; c < chunks.size(); c++) {
+            int nodes = Math.min(CHUNK, size - c * CHUNK);
+            ByteBuffer view = chunks.get(c).duplicate();
+            view.position(0).limit(nodes * bytesPerNode);
+            writeFully(ch, view);
+        }
+    }
+
+    private static void readChunks(FileChannel ch, List<ByteBuffer> chunks, int size, int bytesPerNode) throws IOException {
+        for (int c = 0; c < chunks.size(); c++) {
+            int nodes = Math.min(CHUNK, size - c * CHUNK);
+            ByteBuffer view = chunks.get(c).duplicate();
+            view.position(0).limit(nodes * bytesPerNode);
+            readFully(ch, view);
+        }
+    }
+
+    private static ByteBuffer ints(int n) {
+        return ByteBuffer.allocate(n * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) ch.write(buf);
+    }
+
+    private static ByteBuffer readFully(FileChannel ch, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            if (ch.read(buf) < 0) throw new IOException("Truncated vector index");
+        }
+        return buf.flip();
+    }
+
+    // ---- helpers ----
+
+    /** Binary heap of (node, score); a min-heap keeps the worst on top, a max-heap the best. */
+    private static final class Heap {
+        private int[] ids;
+        private float[] scores;
+        private final boolean min;
+        int size;
+
+        Heap(int capacity, boolean min) {
+            this.ids = new int[Math.max(4, capacity)];
+            this.scores = new float[ids.length];
+            this.min = min;
+        }
+
+        void push(int id, float score) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!above(score, scores[parent])) break;
+                ids[i] = ids[parent];
+                scores[i] = scores[parent];
+                i = parent;
+            }
+            ids[i] = id;
+            scores[i] = score;
+        }
+
+        float topScore() {
+            return scores[0];
+        }
+
+        int pop() {
+            int top = ids[0];
+            size--;
+            int id = ids[size];
+            float score = scores[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) break;
+                if (child + 1 < size && above(scores[child + 1], scores[child])) child++;
+                if (!above(scores[child], score)) break;
+                ids[i] = ids[child];
+                scores[i] = scores[child];
+                i = child;
+            }
+            ids[i] = id;
+            scores[i] = score;
+            return top;
+        }
+
+        private boolean above(float a, float b) {
+            return min ? a < b : a > b;
+        }
+    }
+
+    /** Per-thread copies of stored vectors for the distance loop. */
+    private static final class Scratch {
+        final float[] a;
+        final float[] b;
+
+        Scratch(int dim) {
+            a = new float[dim];
+            b = new float[dim];
+        }
+    }
+
+    /** Visited marks reused across searches on one thread; a new generation clears them. */
+    private static final class Visited {
+        private int[] marks = new int[0];
+        private int generation;
+
+        void reset(int size) {
+            if (marks.length < size) {
+                marks = new int[Math.max(size, marks.length * 2)];
+                generation = 0;
+            }
+            if (++generation == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                generation = 1;
+            }
+        }
+
+        /** Marks the node; false when it was already marked. */
+        boolean mark(int node) {
+            if (marks[node] == generation) return false;
+            marks[node] = generation;
+            return true;
+        }
+    }
+}
@@ -1,7 +1,24 @@
 package com.example.journeyGenie.repository;
 
 import com.example.journeyGenie.entity.Photo;
+import jakarta.transaction.Transactional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
 
 public interface PhotoRepository extends JpaRepository<Photo, Long> {
+    List<Photo> findByStatus(String status);
+
+    List<Photo> findByDayTourIdAndStatus(Long tourId, String status);
+
+    // a targeted update, so a photo deleted while the tagging job ran is not re-inserted
+    @Modifying
+    @Transactional
+    @Query("update Photo p set p.landmark = :landmark, p.landmarkLink = :link, "
+            + "p.landmarkConfidence = :confidence, p.landmarkModel = :model where p.id = :id")
+    int updateLandmark(@Param("id") Long id, @Param("landmark") String landmark, @Param("link") String link,
+                       @Param("confidence") Float confidence, @Param("model") String model);
 }
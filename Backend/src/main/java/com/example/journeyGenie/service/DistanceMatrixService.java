@@ -0,0 +1,247 @@
+package com.example.journeyGenie.service;
+
+import com.example.journeyGenie.util.AppEnv;
+import com.example.journeyGenie.util.Debug;
+import com.example.journeyGenie.util.LatencyStats;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pairwise travel times and distances between a set of stops, from OSRM's table
+ * service: one upstream call for the whole set instead of one route per pair.
+ *
+ * Cells are cached by (profile, origin, destination) with both points snapped to
+ * the {@link RouteService} grid, so a day whose plan changed by one stop only asks
+ * OSRM for the rows that involve uncached pairs. When OSRM fails or times out the
+ * missing cells are filled from expired cache entries, or else estimated from the
+ * straight-line distance; the matrix never fails on the upstream alone.
+ */
+@Service
+public class DistanceMatrixService {
+
+    // the public OSRM server rejects larger tables
+    public static final int MAX_POINTS = 100;
+
+    private static final String TABLE_URL = "https://router.project-osrm.org/table/v1/%s/%s?annotations=duration,distance";
+    // road distance over straight-line distance, typical for mixed town and country driving
+    private static final double DETOUR_FACTOR = 1.3;
+
+    /**
+     * Durations in seconds and distances in metres, [from][to]. NaN where OSRM found
+     * no route; estimated counts the cells that are straight-line guesses.
+     */
+    public record Matrix(double[][] durationsS, double[][] distancesM, int estimated) {}
+
+    private record Key(String profile, int lat1, int lon1, int lat2, int lon2) {}
+
+    private record Cell(double durationS, double distanceM, long freshUntil) {}
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private final int capacity = AppEnv.getDistanceCacheCells();
+    private final long ttlMs = TimeUnit.HOURS.toMillis(AppEnv.getRouteCacheTtlHours());
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder tables = new LongAdder();
+    private final LongAdder staleCells = new LongAdder();
+    private final LongAdder estimatedCells = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder upstreamErrors = new LongAdder();
+    private final LatencyStats upstream = new LatencyStats();
+
+    private final Map<Key, Cell> cells = new LinkedHashMap<>(1024, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Cell> eldest) {
+            if (size() <= capacity) return false;
+            evictions.increment();
+            return true;
+        }
+    };
+
+    /**
+     * The travel matrix between points ({lat, lon} each) for an OSRM profile. Only
+     * fails for more than MAX_POINTS points; upstream trouble yields estimates.
+     */
+    public CompletableFuture<Matrix> matrix(String profile, double[][] points, long timeoutMs) {
+        int n = points.length;
+        if (n > MAX_POINTS) {
+            throw new IllegalArgumentException("At most " + MAX_POINTS + " points per matrix");
+        }
+        int[] lat = new int[n], lon = new int[n];
+        for (int i = 0; i < n; i++) {
+            lat[i] = snap(points[i][0]);
+            lon[i] = snap(points[i][1]);
+        }
+
+        double[][] durations = new double[n][n], distances = new double[n][n];
+        // per source row with uncached pairs: which cells are missing, and any expired value for them
+        boolean[][] missing = new boolean[n][];
+        Cell[][] expired = new Cell[n][];
+        int missingRows = 0;
+        long now = System.currentTimeMillis();
+        synchronized (cells) {
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    if (lat[i] == lat[j] && lon[i] == lon[j]) continue;   // same cell, including i == j
+                    Cell c = cells.get(new Key(profile, lat[i], lon[i], lat[j], lon[j]));
+                    if (c != null && c.freshUntil() > now) {
+                        durations[i][j] = c.durationS();
+                        distances[i][j] = c.distanceM();
+                        hits.increment();
+                        continue;
+                    }
+                    misses.increment();
+                    if (missing[i] == null) {
+                        missing[i] = new boolean[n];
+                        expired[i] = new Cell[n];
+                        missingRows++;
+                    }
+                    missing[i][j] = true;
+                    expired[i][j] = c;
+                }
+            }
+        }
+        if (missingRows == 0) {
+            return CompletableFuture.completedFuture(new Matrix(durations, distances, 0));
+        }
+
+        int[] sources = new int[missingRows];
+        for (int i = 0, k = 0; i < n; i++) {
+            if (missing[i] != null) sources[k++] = i;
+        }
+        return fetch(profile, lat, lon, sources, timeoutMs).handle((table, error) -> {
+            if (error != null) {
+                upstreamErrors.increment();
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                Debug.log("Distance matrix falling back to estimates: " + cause);
+            }
+            long freshUntil = System.currentTimeMillis() + ttlMs;
+            int estimated = 0;
+            synchronized (cells) {
+                for (int k = 0; k < sources.length; k++) {
+                    int i = sources[k];
+                    for (int j = 0; j < n; j++) {
+                        if (lat[i] == lat[j] && lon[i] == lon[j]) continue;
+                        if (error == null) {
+                            // the row is re-read in full; cells that were still fresh are refreshed too
+                            durations[i][j] = table.durations()[k][j];
+                            distances[i][j] = table.distances()[k][j];
+                            cells.put(new Key(profile, lat[i], lon[i], lat[j], lon[j]),
+                                    new Cell(durations[i][j], distances[i][j], freshUntil));
+                        } else if (!missing[i][j]) {
+                            continue;
+                        } else if (expired[i][j] != null) {
+                            durations[i][j] = expired[i][j].durationS();
+                            distances[i][j] = expired[i][j].distanceM();
+                            staleCells.increment();
+                        } else {
+                            double km = RouteGeometry.haversineKm(points[i][0], points[i][1], points[j][0], points[j][1])
+                                    * DETOUR_FACTOR;
+                            distances[i][j] = km * 1000;
+                            durations[i][j] = km / speedKmh(profile) * 3600;
+                            estimated++;
+                        }
+                    }
+                }
+            }
+            estimatedCells.add(estimated);
+            return new Matrix(durations, distances, estimated);
+        });
+    }
+
+    /** One table call for the given source rows; package-private so tests can stand in for OSRM. */
+    CompletableFuture<OsrmTable> fetch(String profile, int[] lat, int[] lon, int[] sources, long timeoutMs) {
+        StringBuilder coords = new StringBuilder(lat.length * 24);
+        for (int i = 0; i < lat.length; i++) {
+            if (i > 0) coords.append(';');
+            coords.append(String.format(Locale.ROOT, "%.6f,%.6f",
+                    lon[i] * RouteService.GRID_DEGREES, lat[i] * RouteService.GRID_DEGREES));
+        }
+        String url = String.format(Locale.ROOT, TABLE_URL, profile, coords);
+        if (sources.length < lat.length) {
+            StringBuilder s = new StringBuilder("&sources=");
+            for (int k = 0; k < sources.length; k++) {
+                if (k > 0) s.append(';');
+                s.append(sources[k]);
+            }
+            url += s;
+        }
+        HttpRequest req = HttpRequest.newBuilder(URI.create(url))
+                .header("Accept", "application/json")
+                .timeout(Duration.ofMillis(Math.max(1, timeoutMs)))
+                .GET()
+                .build();
+        tables.increment();
+        long start = System.nanoTime();
+        return http.sendAsync(req, HttpResponse.BodyHandlers.ofByteArray()).thenApply(resp -> {
+            upstream.recordSince(start);
+            if (resp.statusCode() != 200) {
+                throw new CompletionException(new IOException("Table provider returned " + resp.statusCode()));
+            }
+            try {
+                OsrmTable table = OsrmTable.parse(resp.body());
+                if (!"Ok".equals(table.code()) || table.durations() == null || table.distances() == null
+                        || table.durations().length != sources.length || table.distances().length != sources.length) {
+                    throw new IOException("Table provider returned " + table.code());
+                }
+                for (int k = 0; k < sources.length; k++) {
+                    if (table.durations()[k].length != lat.length || table.distances()[k].length != lat.length) {
+                        throw new IOException("Table provider returned a short row");
+                    }
+                }
+                return table;
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    private static int snap(double degrees) {
+        return (int) Math.round(degrees / RouteService.GRID_DEGREES);
+    }
+
+    private static double speedKmh(String profile) {
+        return switch (profile) {
+            case "walking" -> 4.5;
+            case "cycling" -> 15;
+            default -> 40;   // door to door, town and highway together
+        };
+    }
+
+    public Map<String, Object> stats() {
+        int size;
+        synchronized (cells) {
+            size = cells.size();
+        }
+        long h = hits.sum(), m = misses.sum();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("capacity", capacity);
+        out.put("cells", size);
+        out.put("hits", h);
+        out.put("misses", m);
+        out.put("hitRate", h + m == 0 ? 0 : Math.round(h * 10000.0 / (h + m)) / 100.0);
+        out.put("tables", tables.sum());
+        out.put("staleCells", staleCells.sum());
+        out.put("estimatedCells", estimatedCells.sum());
+        out.put("evictions", evictions.sum());
+        out.put("upstreamErrors", upstreamErrors.sum());
+        out.put("upstream", upstream.snapshot());
+        return out;
+    }
+}
@@ -0,0 +1,336 @@
+package com.example.journeyGenie.service;
+
+import com.example.journeyGenie.util.AppEnv;
+import com.example.journeyGenie.util.LatencyStats;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Daily Open-Meteo forecasts, cached per grid cell and date.
+ *
+ * Coordinates are snapped to a GRID_DEGREES grid (about the resolution of the
+ * forecast models), so nearby places and differently spelled destinations share
+ * one cell. A request is assembled from the cell's cached days and only the
+ * missing span is fetched; a request whose missing days are already being fetched
+ * for someone else waits for that fetch instead of starting its own.
+ *
+ * Cached days are fresh until the next model update boundary (WEATHER_MODEL_UPDATE_HOURS,
+ * aligned to UTC), when the provider may have newer numbers. After that they are
+ * still served, marked stale, for up to WEATHER_MAX_STALE_HOURS while a background
+ * refresh fetches the new run, so a slow provider only delays the refresh and not
+ * the user. Days past that bound are dropped and fetched in the foreground.
+ */
+@Service
+public class ForecastService {
+
+    static final double GRID_DEGREES = 0.1;
+
+    private static final String FORECAST_URL = "https://api.open-meteo.com/v1/forecast?latitude=%.4f&longitude=%.4f"
+            + "&start_date=%s&end_date=%s"
+            + "&daily=temperature_2m_max,temperature_2m_min,precipitation_sum,"
+            + "precipitation_probability_max,wind_speed_10m_max,wind_gusts_10m_max,uv_index_max,weathercode"
+            + "&windspeed_unit=kmh&timezone=auto";
+
+    /** Rows in date order; stale when at least one of them is past its model run. */
+    public record Forecast(List<Map<String, Object>> days, boolean stale) {}
+
+    private record Day(Map<String, Object> row, long freshUntil, long staleUntil) {}
+
+    /** A fetch in progress for [from, to] of one cell; background refreshes run on a longer timeout. */
+    private static final class Pending {
+        final LocalDate from;
+        final LocalDate to;
+        final boolean refresh;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Pending(LocalDate from, LocalDate to, boolean refresh) {
+            this.from = from;
+            this.to = to;
+            this.refresh = refresh;
+        }
+
+        boolean covers(LocalDate d) {
+            return !d.isBefore(from) && !d.isAfter(to);
+        }
+    }
+
+    /** Cached days of one grid cell; guarded by itself. */
+    private static final class Cell {
+        final double lat;
+        final double lon;
+        final Map<LocalDate, Day> days = new HashMap<>();
+        final List<Pending> pending = new ArrayList<>();
+
+        Cell(double lat, double lon) {
+            this.lat = lat;
+            this.lon = lon;
+        }
+    }
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final ObjectMapper om = new ObjectMapper();
+
+    private final int capacity = AppEnv.getWeatherCacheCells();
+    private final long updateIntervalMs = TimeUnit.HOURS.toMillis(AppEnv.getWeatherModelUpdateHours());
+    private final long maxStaleMs = TimeUnit.HOURS.toMillis(AppEnv.getWeatherMaxStaleHours());
+    private final long timeoutMs = AppEnv.getUpstreamTimeoutMs();
+    // refreshes nobody waits for may take longer than a user would
+    private final long refreshTimeoutMs = 4 * timeoutMs;
+
+    private final ExecutorService refresher = Executors.newFixedThreadPool(2, r -> {
+        Thread t = new Thread(r, "forecast-refresh");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final LongAdder cachedDays = new LongAdder();
+    private final LongAdder staleDays = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder fetchedDays = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder upstreamErrors = new LongAdder();
+    private final LatencyStats upstream = new LatencyStats();
+
+    private final Map<Long, Cell> cells = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Cell> eldest) {
+            return size() > capacity;
+        }
+    };
+
+    /**
+     * Daily rows for [from, to] in the place's local dates. Days the provider has
+     * no forecast for are left out.
+     *
+     * @throws IOException when the provider could not be reached or answered with an error
+     */
+    public Forecast daily(double lat, double lon, LocalDate from, LocalDate to)
+            throws IOException, InterruptedException {
+        Cell cell = cell(lat, lon);
+        List<Pending> waitFor = new ArrayList<>();
+        Pending own = null, refresh = null;
+        synchronized (cell) {
+            long now = System.currentTimeMillis();
+            cell.days.values().removeIf(d -> d.staleUntil() <= now);
+            LocalDate first = null, last = null, staleFirst = null, staleLast = null;
+            for (LocalDate d = from; !d.isAfter(to); d = d.plusDays(1)) {
+                Day day = cell.days.get(d);
+                if (day != null) {
+                    cachedDays.increment();
+                    if (day.freshUntil() <= now) {
+                        staleDays.increment();
+                        if (covering(cell, d, false) == null) {
+                            if (staleFirst == null) staleFirst = d;
+                            staleLast = d;
+                        }
+                    }
+                    continue;
+                }
+                // only wait on fetches that answer within our own timeout; a refresh may take longer
+                Pending p = covering(cell, d, true);
+                if (p != null) {
+                    if (!waitFor.contains(p)) waitFor.add(p);
+                    continue;
+                }
+                if (first == null) first = d;
+                last = d;
+            }
+            if (first != null) {
+                // one upstream call for the whole gap, even if some days inside it are cached
+                own = new Pending(first, last, false);
+                cell.pending.add(own);
+            }
+            if (staleFirst != null && (own == null || !own.covers(staleFirst) || !own.covers(staleLast))) {
+                refresh = new Pending(staleFirst, staleLast, true);
+                cell.pending.add(refresh);
+            }
+        }
+
+        if (refresh != null) {
+            Pending r = refresh;
+            refreshes.increment();
+            refresher.execute(() -> {
+                try {
+                    load(cell, r, refreshTimeoutMs);
+                } catch (Exception e) {
+                    // the stale days stay until their bound; the next request retries
+                }
+            });
+        }
+        if (own != null) {
+            load(cell, own, timeoutMs);
+        }
+        for (Pending p : waitFor) {
+            coalesced.increment();
+            await(p);
+        }
+
+        List<Map<String, Object>> out = new ArrayList<>();
+        boolean stale = false;
+        synchronized (cell) {
+            long now = System.currentTimeMillis();
+            for (LocalDate d = from; !d.isAfter(to); d = d.plusDays(1)) {
+                Day day = cell.days.get(d);
+                if (day == null) continue;
+                out.add(day.row());
+                stale |= day.freshUntil() <= now;
+            }
+        }
+        return new Forecast(out, stale);
+    }
+
+    /** Fetches p's span into the cell and settles p; waiters see the same outcome. */
+    private void load(Cell cell, Pending p, long timeout) throws IOException, InterruptedException {
+        try {
+            Map<LocalDate, Map<String, Object>> rows = fetch(cell.lat, cell.lon, p.from, p.to, timeout);
+            long freshUntil = nextModelUpdate();
+            synchronized (cell) {
+                rows.forEach((d, row) -> cell.days.put(d, new Day(row, freshUntil, freshUntil + maxStaleMs)));
+            }
+            fetchedDays.add(rows.size());
+            p.done.complete(null);
+        } catch (Throwable e) {
+            // settle p whatever went wrong, or its waiters sit out their whole timeout
+            if (e instanceof InterruptedException) {
+                p.done.completeExceptionally(new IOException("Forecast fetch was interrupted", e));
+            } else {
+                upstreamErrors.increment();
+                p.done.completeExceptionally(e);
+            }
+            throw e;
+        } finally {
+            synchronized (cell) {
+                cell.pending.remove(p);
+            }
+        }
+    }
+
+    private static Pending covering(Cell cell, LocalDate d, boolean foregroundOnly) {
+        for (Pending p : cell.pending) {
+            if (p.covers(d) && !(foregroundOnly && p.refresh)) return p;
+        }
+        return null;
+    }
+
+    private void await(Pending p) throws IOException, InterruptedException {
+        try {
+            p.done.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            throw new IOException(cause.getMessage(), cause);
+        } catch (TimeoutException e) {
+            throw new HttpTimeoutException("Timed out waiting for the forecast provider");
+        }
+    }
+
+    private Cell cell(double lat, double lon) {
+        long latIdx = Math.round(lat / GRID_DEGREES);
+        long lonIdx = Math.round(lon / GRID_DEGREES);
+        long key = latIdx * 100_000L + lonIdx;
+        synchronized (cells) {
+            return cells.computeIfAbsent(key, k -> new Cell(latIdx * GRID_DEGREES, lonIdx * GRID_DEGREES));
+        }
+    }
+
+    /** Start of the next model update interval, in UTC epoch millis. */
+    private long nextModelUpdate() {
+        long now = System.currentTimeMillis();
+        return (now / updateIntervalMs + 1) * updateIntervalMs;
+    }
+
+    /** One upstream call for [from, to]; package-private so tests can stand in for the provider. */
+    Map<LocalDate, Map<String, Object>> fetch(double lat, double lon, LocalDate from, LocalDate to,
+                                              long timeout) throws IOException, InterruptedException {
+        String url = String.format(Locale.ROOT, FORECAST_URL, lat, lon, from, to);
+        HttpRequest req = HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofMillis(timeout))
+                .GET()
+                .build();
+        long start = System.nanoTime();
+        HttpResponse<String> resp = http.send(req, HttpResponse.BodyHandlers.ofString());
+        upstream.recordSince(start);
+        if (resp.statusCode() != 200) {
+            throw new IOException("Forecast provider returned " + resp.statusCode());
+        }
+
+        JsonNode daily = om.readTree(resp.body()).path("daily");
+        int n = daily.path("time").size();
+        Map<LocalDate, Map<String, Object>> out = new LinkedHashMap<>();
+        for (int i = 0; i < n; i++) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("date",         daily.path("time").get(i).asText());
+            row.put("tMax",         daily.path("temperature_2m_max").get(i).asDouble());
+            row.put("tMin",         daily.path("temperature_2m_min").get(i).asDouble());
+            row.put("precipMm",     daily.path("precipitation_sum").get(i).asDouble());
+            row.put("precipProb",   daily.path("precipitation_probability_max").get(i).asDouble());
+            row.put("windMaxKph",   daily.path("wind_speed_10m_max").get(i).asDouble());
+            row.put("gustMaxKph",   daily.path("wind_gusts_10m_max").get(i).asDouble());
+            row.put("uvMax",        daily.path("uv_index_max").get(i).asDouble());
+            row.put("weatherCode",  daily.path("weathercode").get(i).asInt());
+            out.put(LocalDate.parse(daily.path("time").get(i).asText()), Collections.unmodifiableMap(row));
+        }
+        return out;
+    }
+
+    public Map<String, Object> stats() {
+        int size, days = 0;
+        synchronized (cells) {
+            size = cells.size();
+            for (Cell c : cells.values()) {
+                synchronized (c) {
+                    days += c.days.size();
+                }
+            }
+        }
+        long cached = cachedDays.sum(), fetched = fetchedDays.sum();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("capacity", capacity);
+        out.put("cells", size);
+        out.put("days", days);
+        out.put("gridDegrees", GRID_DEGREES);
+        out.put("modelUpdateHours", TimeUnit.MILLISECONDS.toHours(updateIntervalMs));
+        out.put("maxStaleHours", TimeUnit.MILLISECONDS.toHours(maxStaleMs));
+        out.put("cachedDays", cached);
+        out.put("staleDays", staleDays.sum());
+        out.put("refreshes", refreshes.sum());
+        out.put("fetchedDays", fetched);
+        out.put("reuseRate", cached + fetched == 0 ? 0 : Math.round(cached * 10000.0 / (cached + fetched)) / 100.0);
+        out.put("coalesced", coalesced.sum());
+        out.put("upstreamErrors", upstreamErrors.sum());
+        out.put("upstream", upstream.snapshot());
+        return out;
+    }
+
+    @PreDestroy
+    public void close() {
+        refresher.shutdownNow();
+    }
+}
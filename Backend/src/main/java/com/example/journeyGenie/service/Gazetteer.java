@@ -0,0 +1,431 @@
+package com.example.journeyGenie.service;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read-only place-name index built from a GeoNames dump (geoname table format:
+ * cities15000.txt, cities500.txt, a country file, ...) and memory-mapped, so the
+ * heap holds nothing per place.
+ *
+ * Every name, ASCII name and alternate name of a place becomes a normalized key.
+ * The keys are sorted, which makes the key table a flattened trie: the keys below
+ * any prefix are one contiguous range, found by two binary searches. A prefix
+ * whose range has more than SCAN_LIMIT keys additionally has its TOP_K most
+ * populous places precomputed, so a suggestion never scans more than SCAN_LIMIT
+ * keys however short the prefix.
+ *
+ * Layout (big-endian): header, places (20 bytes each), keys (8 bytes each, sorted),
+ * hot prefixes (8 bytes each, sorted), their top lists, then a pool of
+ * length-prefixed UTF-8 strings referenced by offset.
+ */
+class Gazetteer {
+
+    static final int TOP_K = 16;
+    static final int SCAN_LIMIT = 512;
+
+    private static final int MAGIC = 0x4A47475A; // "JGGZ"
+    private static final int FORMAT = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int PLACE_BYTES = 20;
+    private static final int MAX_KEY_BYTES = 200;
+
+    private final MappedByteBuffer buf;
+    private final long sourceSize;
+    private final long sourceModified;
+    private final int places;
+    private final int keys;
+    private final int hot;
+    private final int placesOff;
+    private final int keysOff;
+    private final int hotOff;
+    private final int listsOff;
+
+    private Gazetteer(MappedByteBuffer buf) throws IOException {
+        this.buf = buf;
+        if (buf.capacity() < HEADER_BYTES || buf.getInt(0) != MAGIC || buf.getInt(4) != FORMAT) {
+            throw new IOException("Not a gazetteer index");
+        }
+        places = buf.getInt(8);
+        keys = buf.getInt(12);
+        hot = buf.getInt(16);
+        if (buf.getInt(20) != TOP_K) {
+            throw new IOException("Gazetteer index was built with a different list size");
+        }
+        sourceSize = buf.getLong(24);
+        sourceModified = buf.getLong(32);
+        placesOff = buf.getInt(40);
+        keysOff = buf.getInt(44);
+        hotOff = buf.getInt(48);
+        listsOff = buf.getInt(52);
+    }
+
+    static Gazetteer open(Path index) throws IOException {
+        try (FileChannel ch = FileChannel.open(index, StandardOpenOption.READ)) {
+            if (ch.size() > Integer.MAX_VALUE) {
+                throw new IOException("Gazetteer index over 2 GB; use a smaller GeoNames extract");
+            }
+            // the mapping stays valid after the channel is closed
+            return new Gazetteer(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+        }
+    }
+
+    /** True when the index was built from exactly this dump file. */
+    boolean builtFrom(Path dump) throws IOException {
+        return Files.size(dump) == sourceSize && Files.getLastModifiedTime(dump).toMillis() == sourceModified;
+    }
+
+    int places() {
+        return places;
+    }
+
+    int keys() {
+        return keys;
+    }
+
+    int hotPrefixes() {
+        return hot;
+    }
+
+    long mappedBytes() {
+        return buf.capacity();
+    }
+
+    // ---- places ----
+
+    double lat(int place) {
+        return buf.getFloat(placesOff + place * PLACE_BYTES);
+    }
+
+    double lon(int place) {
+        return buf.getFloat(placesOff + place * PLACE_BYTES + 4);
+    }
+
+    long population(int place) {
+        return buf.getInt(placesOff + place * PLACE_BYTES + 8) & 0xFFFFFFFFL;
+    }
+
+    String name(int place) {
+        return string(buf.getInt(placesOff + place * PLACE_BYTES + 12));
+    }
+
+    String country(int place) {
+        int at = placesOff + place * PLACE_BYTES + 16;
+        byte a = buf.get(at), b = buf.get(at + 1);
+        return a == 0 ? "" : new String(new byte[]{a, b}, StandardCharsets.US_ASCII);
+    }
+
+    // ---- queries ----
+
+    /** Up to limit distinct places with a key starting with prefix, most populous first. */
+    int[] suggest(String prefix, int limit) {
+        byte[] q = prefix.getBytes(StandardCharsets.UTF_8);
+        int lo = bound(q, false), hi = bound(q, true);
+        if (hi <= lo) return new int[0];
+        if (hi - lo > SCAN_LIMIT) {
+            int h = findHot(q);
+            if (h >= 0) {
+                int at = listsOff + h * TOP_K * 4;
+                int n = 0;
+                while (n < Math.min(limit, TOP_K) && buf.getInt(at + n * 4) >= 0) n++;
+                int[] out = new int[n];
+                for (int i = 0; i < n; i++) out[i] = buf.getInt(at + i * 4);
+                return out;
+            }
+            hi = lo + SCAN_LIMIT;   // not reachable for a well-formed index
+        }
+        return top(lo, hi, limit);
+    }
+
+    /** Distinct places with a key equal to name, most populous first. */
+    int[] exact(String name, int limit) {
+        byte[] q = name.getBytes(StandardCharsets.UTF_8);
+        int lo = bound(q, false);
+        int hi = lo;
+        while (hi < keys && hi - lo < SCAN_LIMIT && compare(keyString(hi), q, false) == 0) hi++;
+        return top(lo, hi, limit);
+    }
+
+    private int[] top(int lo, int hi, int limit) {
+        TopList best = new TopList(limit);
+        for (int i = lo; i < hi; i++) {
+            int place = buf.getInt(keysOff + i * 8 + 4);
+            best.offer(place, population(place));
+        }
+        return best.toArray();
+    }
+
+    /** First key index at or after the keys starting with q (after=false) or after them (after=true). */
+    private int bound(byte[] q, boolean after) {
+        int lo = 0, hi = keys;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = compare(keyString(mid), q, true);
+            if (c < 0 || (after && c == 0)) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private int findHot(byte[] q) {
+        int lo = 0, hi = hot - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = compare(buf.getInt(hotOff + mid * 8), q, false);
+            if (c == 0) return buf.getInt(hotOff + mid * 8 + 4);
+            if (c < 0) lo = mid + 1;
+            else hi = mid - 1;
+        }
+        return -1;
+    }
+
+    private int keyString(int key) {
+        return buf.getInt(keysOff + key * 8);
+    }
+
+    /**
+     * Unsigned byte comparison of the pooled string at off with q. With asPrefix a
+     * string that starts with q compares equal.
+     */
+    private int compare(int off, byte[] q, boolean asPrefix) {
+        int len = buf.getShort(off) & 0xFFFF;
+        int n = Math.min(len, q.length);
+        for (int i = 0; i < n; i++) {
+            int c = (buf.get(off + 2 + i) & 0xFF) - (q[i] & 0xFF);
+            if (c != 0) return c;
+        }
+        if (len >= q.length && asPrefix) return 0;
+        return len - q.length;
+    }
+
+    private String string(int off) {
+        int len = buf.getShort(off) & 0xFFFF;
+        byte[] b = new byte[len];
+        buf.get(off + 2, b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    /** The limit most populous distinct places offered, ties broken by lower id. */
+    private static final class TopList {
+        final int[] ids;
+        final long[] pops;
+        int size;
+
+        TopList(int limit) {
+            ids = new int[Math.max(0, limit)];
+            pops = new long[ids.length];
+        }
+
+        void offer(int id, long pop) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) return;
+            }
+            int at = size;
+            while (at > 0 && (pops[at - 1] < pop || (pops[at - 1] == pop && ids[at - 1] > id))) at--;
+            if (at >= ids.length) return;
+            int last = Math.min(size, ids.length - 1);
+            System.arraycopy(ids, at, ids, at + 1, last - at);
+            System.arraycopy(pops, at, pops, at + 1, last - at);
+            ids[at] = id;
+            pops[at] = pop;
+            if (size < ids.length) size++;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+
+    // ---- building ----
+
+    /** Parses a GeoNames dump and writes its index, replacing any previous one atomically. */
+    static void build(Path dump, Path index) throws IOException {
+        List<float[]> coords = new ArrayList<>();
+        List<Long> populations = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        List<String> countries = new ArrayList<>();
+        List<byte[]> keyBytes = new ArrayList<>();
+        List<Integer> keyPlaces = new ArrayList<>();
+
+        try (BufferedReader in = Files.newBufferedReader(dump, StandardCharsets.UTF_8)) {
+            Set<String> seen = new HashSet<>();
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isEmpty() || line.charAt(0) == '#') continue;
+                String[] f = line.split("\t", -1);
+                if (f.length < 15) continue;
+                float lat, lon;
+                long pop;
+                try {
+                    lat = Float.parseFloat(f[4]);
+                    lon = Float.parseFloat(f[5]);
+                    pop = f[14].isEmpty() ? 0 : Math.min(0xFFFFFFFFL, Math.max(0, Long.parseLong(f[14])));
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                int place = names.size();
+                coords.add(new float[]{lat, lon});
+                populations.add(pop);
+                names.add(f[1]);
+                countries.add(f[8].length() == 2 ? f[8] : "");
+
+                seen.clear();
+                addKey(f[1], place, seen, keyBytes, keyPlaces);
+                addKey(f[2], place, seen, keyBytes, keyPlaces);
+                if (!f[3].isEmpty()) {
+                    for (String alt : f[3].split(",")) {
+                        // alternates also carry links and postal or airport codes
+                        if (alt.startsWith("http") || alt.chars().noneMatch(Character::isLetter)) continue;
+                        addKey(alt, place, seen, keyBytes, keyPlaces);
+                    }
+                }
+            }
+        }
+
+        int n = keyBytes.size();
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> {
+            int c = Arrays.compareUnsigned(keyBytes.get(a), keyBytes.get(b));
+            return c != 0 ? c : Long.compare(populations.get(keyPlaces.get(b)), populations.get(keyPlaces.get(a)));
+        });
+        byte[][] sortedKeys = new byte[n][];
+        int[] sortedPlaces = new int[n];
+        for (int i = 0; i < n; i++) {
+            sortedKeys[i] = keyBytes.get(order[i]);
+            sortedPlaces[i] = keyPlaces.get(order[i]);
+        }
+        long[] pop = populations.stream().mapToLong(Long::longValue).toArray();
+
+        List<byte[]> hotPrefixes = new ArrayList<>();
+        List<int[]> hotLists = new ArrayList<>();
+        collectHot(sortedKeys, sortedPlaces, pop, 0, n, 0, hotPrefixes, hotLists);
+
+        // string pool: key strings shared with identical names
+        ByteArrayOutputStream pool = new ByteArrayOutputStream();
+        Map<String, Integer> pooled = new HashMap<>();
+        int placeCount = names.size();
+        int placesOff = HEADER_BYTES;
+        int keysOff = placesOff + placeCount * PLACE_BYTES;
+        int hotOff = keysOff + n * 8;
+        int listsOff = hotOff + hotPrefixes.size() * 8;
+        long poolOff = listsOff + (long) hotPrefixes.size() * TOP_K * 4;
+
+        int[] nameRefs = new int[placeCount];
+        for (int i = 0; i < placeCount; i++) {
+            nameRefs[i] = intern(names.get(i).getBytes(StandardCharsets.UTF_8), pool, pooled, poolOff);
+        }
+        int[] keyRefs = new int[n];
+        for (int i = 0; i < n; i++) keyRefs[i] = intern(sortedKeys[i], pool, pooled, poolOff);
+        int[] hotRefs = new int[hotPrefixes.size()];
+        for (int i = 0; i < hotRefs.length; i++) hotRefs[i] = intern(hotPrefixes.get(i), pool, pooled, poolOff);
+        if (poolOff + pool.size() > Integer.MAX_VALUE) {
+            throw new IOException("Gazetteer index would exceed 2 GB; use a smaller GeoNames extract");
+        }
+
+        Files.createDirectories(index.toAbsolutePath().getParent());
+        Path part = index.resolveSibling(index.getFileName() + ".part");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(part), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeInt(placeCount);
+            out.writeInt(n);
+            out.writeInt(hotPrefixes.size());
+            out.writeInt(TOP_K);
+            out.writeLong(Files.size(dump));
+            out.writeLong(Files.getLastModifiedTime(dump).toMillis());
+            out.writeInt(placesOff);
+            out.writeInt(keysOff);
+            out.writeInt(hotOff);
+            out.writeInt(listsOff);
+            out.write(new byte[HEADER_BYTES - 56]);
+
+            for (int i = 0; i < placeCount; i++) {
+                float[] c = coords.get(i);
+                out.writeFloat(c[0]);
+                out.writeFloat(c[1]);
+                out.writeInt((int) pop[i]);
+                out.writeInt(nameRefs[i]);
+                byte[] cc = countries.get(i).getBytes(StandardCharsets.US_ASCII);
+                out.write(cc.length == 2 ? cc : new byte[2]);
+                out.writeShort(0);
+            }
+            for (int i = 0; i < n; i++) {
+                out.writeInt(keyRefs[i]);
+                out.writeInt(sortedPlaces[i]);
+            }
+            for (int i = 0; i < hotRefs.length; i++) {
+                out.writeInt(hotRefs[i]);
+                out.writeInt(i);
+            }
+            for (int[] list : hotLists) {
+                for (int i = 0; i < TOP_K; i++) out.writeInt(i < list.length ? list[i] : -1);
+            }
+            pool.writeTo(out);
+        }
+        Files.move(part, index, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void addKey(String raw, int place, Set<String> seen, List<byte[]> keyBytes, List<Integer> keyPlaces) {
+        String key = GeocodingService.normalize(raw);
+        if (key.isEmpty() || !seen.add(key)) return;
+        byte[] b = key.getBytes(StandardCharsets.UTF_8);
+        if (b.length > MAX_KEY_BYTES) return;
+        keyBytes.add(b);
+        keyPlaces.add(place);
+    }
+
+    /**
+     * Walks the implicit trie over keys[lo, hi), which share their first depth bytes,
+     * and records the top list of every node with more than SCAN_LIMIT keys. Prefixes
+     * come out in sorted order because children are visited in byte order.
+     */
+    private static void collectHot(byte[][] keys, int[] places, long[] pop, int lo, int hi, int depth,
+                                   List<byte[]> prefixes, List<int[]> lists) {
+        if (hi - lo <= SCAN_LIMIT) return;
+        if (depth > 0) {
+            TopList best = new TopList(TOP_K);
+            for (int i = lo; i < hi; i++) best.offer(places[i], pop[places[i]]);
+            prefixes.add(Arrays.copyOf(keys[lo], depth));
+            lists.add(best.toArray());
+        }
+        int i = lo;
+        while (i < hi && keys[i].length == depth) i++;   // keys equal to the prefix sort first
+        while (i < hi) {
+            int b = keys[i][depth];
+            int j = i + 1;
+            while (j < hi && keys[j][depth] == b) j++;
+            collectHot(keys, places, pop, i, j, depth + 1, prefixes, lists);
+            i = j;
+        }
+    }
+
+    private static int intern(byte[] s, ByteArrayOutputStream pool, Map<String, Integer> pooled, long poolOff) {
+        String k = new String(s, StandardCharsets.ISO_8859_1);
+        Integer at = pooled.get(k);
+        if (at != null) return at;
+        int off = (int) (poolOff + pool.size());
+        pool.write((s.length >>> 8) & 0xFF);
+        pool.write(s.length & 0xFF);
+        pool.write(s, 0, s.length);
+        pooled.put(k, off);
+        return off;
+    }
+}
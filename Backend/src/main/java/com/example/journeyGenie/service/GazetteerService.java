@@ -0,0 +1,196 @@
+package com.example.journeyGenie.service;
+
+import com.example.journeyGenie.util.AppEnv;
+import com.example.journeyGenie.util.Debug;
+import com.example.journeyGenie.util.LatencyStats;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process place names from a GeoNames dump (GAZETTEER_FILE), for destination
+ * autocomplete and for geocoding without a network round trip.
+ *
+ * The dump is compiled once into a {@link Gazetteer} index (GAZETTEER_INDEX,
+ * rebuilt when the dump changes) and memory-mapped. Loading happens in the
+ * background; until it is done suggestions are empty and every geocode goes to
+ * the remote provider.
+ */
+@Service
+public class GazetteerService {
+
+    public record PlaceInfo(String name, String country, double lat, double lon, long population) {}
+
+    // the best exact match must be this many times more populous than the next one
+    private static final int CONFIDENCE_RATIO = 10;
+
+    private final String dumpFile = AppEnv.getGazetteerFile();
+    private final String indexFile = AppEnv.getGazetteerIndex();
+
+    private volatile String state = "disabled";
+    private volatile String error;
+    private volatile Gazetteer gazetteer;
+
+    private final LatencyStats suggestStats = new LatencyStats();
+    private final LatencyStats lookupStats = new LatencyStats();
+    private final LongAdder confident = new LongAdder();
+    private final LongAdder ambiguous = new LongAdder();
+    private final LongAdder unknown = new LongAdder();
+
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "gazetteer-loader");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @PostConstruct
+    public void init() {
+        if (indexFile.isEmpty()) return;
+        state = "loading";
+        loader.execute(this::load);
+    }
+
+    private void load() {
+        try {
+            Path index = Path.of(indexFile);
+            Path dump = dumpFile.isEmpty() ? null : Path.of(dumpFile);
+            boolean canBuild = dump != null && Files.isRegularFile(dump);
+            Gazetteer loaded = null;
+            if (Files.isRegularFile(index)) {
+                try {
+                    loaded = Gazetteer.open(index);
+                } catch (IOException e) {
+                    // older format, other list size or a damaged file: rebuild it when we can
+                    if (!canBuild) throw e;
+                    Debug.log("Gazetteer index " + index + " is unusable (" + e.getMessage() + "), rebuilding");
+                }
+            }
+            if (canBuild && (loaded == null || !loaded.builtFrom(dump))) {
+                long start = System.currentTimeMillis();
+                Debug.log("Building gazetteer index from " + dump);
+                Gazetteer.build(dump, index);
+                loaded = Gazetteer.open(index);
+                Debug.log("Gazetteer index built in " + (System.currentTimeMillis() - start) + " ms");
+            }
+            if (loaded == null) {
+                throw new IllegalStateException("Neither " + index + " nor a GeoNames dump to build it from");
+            }
+            gazetteer = loaded;
+            state = "ready";
+            Debug.log("Gazetteer ready: " + loaded.places() + " place(s), " + loaded.keys() + " name(s)");
+        } catch (Exception e) {
+            error = e.getMessage();
+            state = "failed";
+            System.err.println("Error loading gazetteer: " + e.getMessage());
+        } finally {
+            loader.shutdown();
+        }
+    }
+
+    public boolean isReady() {
+        return gazetteer != null;
+    }
+
+    /** Places whose name starts with the query, most populous first; empty while not loaded. */
+    public List<PlaceInfo> suggest(String query, int limit) {
+        Gazetteer g = gazetteer;
+        String prefix = GeocodingService.normalize(query);
+        if (g == null || prefix.isEmpty()) return List.of();
+        long start = System.nanoTime();
+        int[] ids = g.suggest(prefix, Math.max(1, Math.min(limit, Gazetteer.TOP_K)));
+        List<PlaceInfo> out = describe(g, ids);
+        suggestStats.recordSince(start);
+        return out;
+    }
+
+    /**
+     * The place a name most likely means, or null when the gazetteer is not loaded,
+     * does not know the name, or cannot tell between several places of that name.
+     * "Name, CC" restricts the match to an ISO country code; any other qualifier
+     * is left to the remote geocoder.
+     */
+    public PlaceInfo geocode(String query) {
+        Gazetteer g = gazetteer;
+        if (g == null || query == null) return null;
+        long start = System.nanoTime();
+        try {
+            String name = query;
+            String country = null;
+            int comma = query.lastIndexOf(',');
+            if (comma >= 0) {
+                country = query.substring(comma + 1).trim().toUpperCase(Locale.ROOT);
+                if (country.length() != 2) {
+                    unknown.increment();
+                    return null;
+                }
+                name = query.substring(0, comma);
+            }
+            String key = GeocodingService.normalize(name);
+            if (key.isEmpty()) return null;
+
+            int[] ids = g.exact(key, Gazetteer.TOP_K);
+            int best = -1, second = -1;
+            for (int id : ids) {
+                if (country != null && !country.equals(g.country(id))) continue;
+                if (best < 0) best = id;
+                else if (second < 0) second = id;
+            }
+            if (best < 0) {
+                unknown.increment();
+                return null;
+            }
+            if (second >= 0 && g.population(best) < CONFIDENCE_RATIO * Math.max(1, g.population(second))) {
+                ambiguous.increment();
+                return null;
+            }
+            confident.increment();
+            return describe(g, new int[]{best}).get(0);
+        } finally {
+            lookupStats.recordSince(start);
+        }
+    }
+
+    private static List<PlaceInfo> describe(Gazetteer g, int[] ids) {
+        List<PlaceInfo> out = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            out.add(new PlaceInfo(g.name(id), g.country(id), g.lat(id), g.lon(id), g.population(id)));
+        }
+        return out;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("state", state);
+        if (error != null) out.put("error", error);
+        Gazetteer g = gazetteer;
+        if (g != null) {
+            out.put("places", g.places());
+            out.put("names", g.keys());
+            out.put("hotPrefixes", g.hotPrefixes());
+            out.put("mappedMB", Math.round(g.mappedBytes() / (1024.0 * 1024.0) * 10) / 10.0);
+        }
+        out.put("suggest", suggestStats.snapshot());
+        out.put("lookup", lookupStats.snapshot());
+        out.put("confident", confident.sum());
+        out.put("ambiguous", ambiguous.sum());
+        out.put("unknown", unknown.sum());
+        return out;
+    }
+
+    @PreDestroy
+    public void close() {
+        loader.shutdownNow();
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.journeyGenie.service;
+
+import com.example.journeyGenie.util.AppEnv;
+import com.example.journeyGenie.util.LatencyStats;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Place name -> coordinates through the Open-Meteo geocoding API, shared by the
+ * weather, route and planner features.
+ *
+ * Names the offline gazetteer resolves with confidence never leave the process.
+ * Other results are cached under a normalized name ("Cox’s  Bazar" and "cox's bazar"
+ * share an entry) in a bounded LRU with a TTL; names the provider does not know
+ * are cached too, for a shorter time. Concurrent lookups of a name that is not
+ * cached share one upstream request. Provider errors are not cached.
+ *
+ * A place past its TTL is still returned for up to GEOCODE_MAX_STALE_HOURS while
+ * it is looked up again in the background; a failed refresh keeps the old entry.
+ */
+@Service
+public class GeocodingService {
+
+    public record Place(String name, double lat, double lon) {}
+
+    private record Entry(Place place, long freshUntil, long staleUntil) {}
+
+    private static final String GEOCODING_URL = "https://geocoding-api.open-meteo.com/v1/search?count=1&name=";
+
+    @Autowired
+    private GazetteerService gazetteer;
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final ObjectMapper om = new ObjectMapper();
+
+    private final int capacity = AppEnv.getGeocodeCacheSize();
+    private final long ttlMs = TimeUnit.HOURS.toMillis(AppEnv.getGeocodeCacheTtlHours());
+    private final long negativeTtlMs = TimeUnit.MINUTES.toMillis(AppEnv.getGeocodeNegativeTtlMinutes());
+    private final long maxStaleMs = TimeUnit.HOURS.toMillis(AppEnv.getGeocodeMaxStaleHours());
+    private final long timeoutMs = AppEnv.getUpstreamTimeoutMs();
+
+    private final LongAdder offline = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder upstreamErrors = new LongAdder();
+    private final LatencyStats upstream = new LatencyStats();
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() <= capacity) return false;
+            evictions.increment();
+            return true;
+        }
+    };
+
+    // one upstream request per normalized name at a time
+    private final Map<String, CompletableFuture<Place>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * @return the best match, or null when the provider knows no such place
+     * @throws IOException when the provider could not be reached or answered with an error
+     */
+    public Place lookup(String place) throws IOException, InterruptedException {
+        try {
+            return lookupAsync(place).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof RuntimeException re) throw re;
+            throw new IOException(cause);
+        }
+    }
+
+    /** Non-blocking lookup; completes with null for unknown places and exceptionally on provider errors. */
+    public CompletableFuture<Place> lookupAsync(String place) {
+        String key = normalize(place);
+        if (key.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        GazetteerService.PlaceInfo local = gazetteer.geocode(place);
+        if (local != null) {
+            offline.increment();
+            return CompletableFuture.completedFuture(new Place(local.name(), local.lat(), local.lon()));
+        }
+        Entry cached = cached(key);
+        if (cached != null) {
+            if (cached.freshUntil() <= System.currentTimeMillis()) {
+                staleHits.increment();
+                load(key, place, 4 * timeoutMs);   // nobody waits for it, so allow it longer
+            } else {
+                (cached.place() == null ? negativeHits : hits).increment();
+            }
+            return CompletableFuture.completedFuture(cached.place());
+        }
+        return load(key, place, timeoutMs).copy();   // a caller cancelling its copy does not affect the others
+    }
+
+    /** The upstream lookup of key: the one already in flight, or a new one. */
+    private CompletableFuture<Place> load(String key, String place, long timeout) {
+        CompletableFuture<Place> created = new CompletableFuture<>();
+        CompletableFuture<Place> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            coalesced.increment();
+            return existing;
+        }
+        // the previous leader may have finished between the cache check and putIfAbsent
+        Entry cached = cached(key);
+        if (cached != null && cached.freshUntil() > System.currentTimeMillis()) {
+            inFlight.remove(key, created);
+            created.complete(cached.place());
+            (cached.place() == null ? negativeHits : hits).increment();
+            return created;
+        }
+
+        misses.increment();
+        fetch(place.trim(), timeout).whenComplete((result, error) -> {
+            if (error == null) {
+                store(key, result);
+            } else {
+                upstreamErrors.increment();
+            }
+            inFlight.remove(key, created);
+            if (error == null) {
+                created.complete(result);
+            } else {
+                created.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+            }
+        });
+        return created;
+    }
+
+    private CompletableFuture<Place> fetch(String place, long timeout) {
+        HttpRequest req = HttpRequest.newBuilder(URI.create(GEOCODING_URL + URLEncoder.encode(place, StandardCharsets.UTF_8)))
+                .header("Accept", "application/json")
+                .timeout(Duration.ofMillis(timeout))
+                .GET()
+                .build();
+        long start = System.nanoTime();
+        return http.sendAsync(req, HttpResponse.BodyHandlers.ofString()).thenApply(resp -> {
+            upstream.recordSince(start);
+            if (resp.statusCode() != 200) {
+                throw new CompletionException(new IOException("Geocoding provider returned " + resp.statusCode()));
+            }
+            try {
+                JsonNode results = om.readTree(resp.body()).path("results");
+                if (!results.isArray() || results.isEmpty()) return null;
+                JsonNode r0 = results.get(0);
+                return new Place(r0.path("name").asText(place),
+                        r0.path("latitude").asDouble(),
+                        r0.path("longitude").asDouble());
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    private Entry cached(String key) {
+        synchronized (entries) {
+            Entry e = entries.get(key);
+            if (e == null) return null;
+            if (e.staleUntil() <= System.currentTimeMillis()) {
+                entries.remove(key);
+                expired.increment();
+                return null;
+            }
+            return e;
+        }
+    }
+
+    private void store(String key, Place place) {
+        if (capacity <= 0) return;
+        long freshUntil = System.currentTimeMillis() + (place == null ? negativeTtlMs : ttlMs);
+        // "not found" is never served stale: the place may have been added since
+        long staleUntil = place == null ? freshUntil : freshUntil + maxStaleMs;
+        synchronized (entries) {
+            entries.put(key, new Entry(place, freshUntil, staleUntil));
+        }
+    }
+
+    /** Case, width, apostrophe and whitespace variants of a name map to one key. */
+    static String normalize(String place) {
+        if (place == null) return "";
+        return Normalizer.normalize(place, Normalizer.Form.NFKC)
+                .replace('\u2019', '\'')
+                .replace('\u2018', '\'')
+                .replace('`', '\'')
+                .toLowerCase(Locale.ROOT)
+                .replaceAll("\\s+", " ")
+                .trim();
+    }
+
+    public Map<String, Object> stats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        long h = offline.sum() + hits.sum() + negativeHits.sum() + staleHits.sum(), m = misses.sum();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("capacity", capacity);
+        out.put("size", size);
+        out.put("offline", offline.sum());
+        out.put("hits", hits.sum());
+        out.put("negativeHits", negativeHits.sum());
+        out.put("staleHits", staleHits.sum());
+        out.put("misses", m);
+        out.put("coalesced", coalesced.sum());
+        out.put("hitRate", h + m == 0 ? 0 : Math.round(h * 10000.0 / (h + m)) / 100.0);
+        out.put("inFlight", inFlight.size());
+        out.put("expired", expired.sum());
+        out.put("evictions", evictions.sum());
+        out.put("upstreamErrors", upstreamErrors.sum());
+        out.put("upstream", upstream.snapshot());
+        return out;
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.journeyGenie.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * The first route of an OSRM /route response (geometries=geojson), read with the
+ * streaming parser so the coordinates go straight into a {@link RouteGeometry}
+ * without a JSON tree in between. geometry is null when OSRM found no route.
+ */
+public record OsrmRoute(String code, double distanceM, double durationS, RouteGeometry geometry) {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    public static OsrmRoute parse(byte[] body) throws IOException {
+        try (JsonParser p = JSON.createParser(body)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Route provider returned no JSON object");
+            }
+            String code = null;
+            OsrmRoute first = null;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken value = p.nextToken();
+                if ("code".equals(field)) {
+                    code = p.getText();
+                } else if ("routes".equals(field) && value == JsonToken.START_ARRAY) {
+                    while (p.nextToken() == JsonToken.START_OBJECT) {
+                        if (first == null) first = route(p);   // OSRM puts the best route first
+                        else p.skipChildren();
+                    }
+                } else {
+                    p.skipChildren();
+                }
+            }
+            return first == null
+                    ? new OsrmRoute(code, 0, 0, null)
+                    : new OsrmRoute(code, first.distanceM, first.durationS, first.geometry);
+        }
+    }
+
+    private static OsrmRoute route(JsonParser p) throws IOException {
+        double distance = 0, duration = 0;
+        RouteGeometry geometry = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken value = p.nextToken();
+            switch (field) {
+                case "distance" -> distance = p.getValueAsDouble();
+                case "duration" -> duration = p.getValueAsDouble();
+                case "geometry" -> {
+                    if (value == JsonToken.START_OBJECT) geometry = geometry(p);
+                    else p.skipChildren();
+                }
+                default -> p.skipChildren();
+            }
+        }
+        return new OsrmRoute(null, distance, duration, geometry);
+    }
+
+    /** GeoJSON LineString: coordinates are [lon, lat] pairs. */
+    private static RouteGeometry geometry(JsonParser p) throws IOException {
+        RouteGeometry.Builder line = new RouteGeometry.Builder();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken value = p.nextToken();
+            if (!"coordinates".equals(field) || value != JsonToken.START_ARRAY) {
+                p.skipChildren();
+                continue;
+            }
+            while (p.nextToken() == JsonToken.START_ARRAY) {
+                p.nextToken();
+                double lon = number(p);
+                p.nextToken();
+                double lat = number(p);
+                while (p.nextToken() != JsonToken.END_ARRAY) {
+                    p.skipChildren();   // elevation, if any
+                }
+                line.add(lat, lon);
+            }
+        }
+        return line.build();
+    }
+
+    /**
+     * Reads a plain decimal like -12.345678 (or an integer, keeping -0 negative) from
+     * the parser's own buffer. Jackson would build a String per number, which
+     * dominates allocation for a long line.
+     * With at most 15 significant digits and 22 decimals both the digits and the
+     * power of ten are exact doubles, so one division gives the correctly rounded
+     * value, the same as Double.parseDouble. Anything else goes through Jackson.
+     */
+    private static double number(JsonParser p) throws IOException {
+        if (p.currentToken() == null || !p.currentToken().isNumeric()) {
+            return p.getValueAsDouble();
+        }
+        char[] buf = p.getTextCharacters();
+        int off = p.getTextOffset(), end = off + p.getTextLength();
+        boolean negative = off < end && buf[off] == '-';
+        long digits = 0;
+        int significant = 0, decimals = 0;
+        boolean fraction = false;
+        for (int i = negative ? off + 1 : off; i < end; i++) {
+            char c = buf[i];
+            if (c == '.' && !fraction) {
+                fraction = true;
+            } else if (c >= '0' && c <= '9') {
+                digits = digits * 10 + (c - '0');
+                if (digits != 0) significant++;
+                if (fraction) decimals++;
+                if (significant > 15 || decimals >= POW10.length) return p.getDoubleValue();
+            } else {
+                return p.getDoubleValue();   // exponent
+            }
+        }
+        double v = digits / POW10[decimals];
+        return negative ? -v : v;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.journeyGenie.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An OSRM /table response (annotations=duration,distance), one row per source
+ * and one column per destination. Pairs OSRM cannot connect are NaN; a matrix is
+ * null when the response did not include it.
+ */
+record OsrmTable(String code, double[][] durations, double[][] distances) {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    static OsrmTable parse(byte[] body) throws IOException {
+        try (JsonParser p = JSON.createParser(body)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Table provider returned no JSON object");
+            }
+            String code = null;
+            double[][] durations = null, distances = null;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken value = p.nextToken();
+                switch (field) {
+                    case "code" -> code = p.getText();
+                    case "durations" -> durations = value == JsonToken.START_ARRAY ? matrix(p) : skip(p);
+                    case "distances" -> distances = value == JsonToken.START_ARRAY ? matrix(p) : skip(p);
+                    default -> p.skipChildren();
+                }
+            }
+            return new OsrmTable(code, durations, distances);
+        }
+    }
+
+    private static double[][] matrix(JsonParser p) throws IOException {
+        List<double[]> rows = new ArrayList<>();
+        while (p.nextToken() == JsonToken.START_ARRAY) {
+            double[] row = new double[8];
+            int n = 0;
+            JsonToken t;
+            while ((t = p.nextToken()) != JsonToken.END_ARRAY) {
+                if (n == row.length) row = Arrays.copyOf(row, 2 * n);
+                row[n++] = t == JsonToken.VALUE_NULL ? Double.NaN : p.getValueAsDouble();
+            }
+            rows.add(Arrays.copyOf(row, n));
+        }
+        return rows.toArray(double[][]::new);
+    }
+
+    private static double[][] skip(JsonParser p) throws IOException {
+        p.skipChildren();
+        return null;
+    }
+}
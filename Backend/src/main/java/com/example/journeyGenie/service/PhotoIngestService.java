@@ -0,0 +1,217 @@
+package com.example.journeyGenie.service;
+
+import com.example.journeyGenie.entity.Photo;
+import com.example.journeyGenie.repository.PhotoRepository;
+import com.example.journeyGenie.storage.BlobStore;
+import com.example.journeyGenie.util.AppEnv;
+import com.example.journeyGenie.util.Debug;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.*;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Spools uploaded photos to local disk and pushes them to the BlobStore on a
+ * background worker pool, so the upload request can be answered right away.
+ *
+ * Spool files are named photo_{id}.{ext}; on startup any file still in the
+ * spool directory is re-queued for its pending Photo row. Each pending row
+ * records which instance spooled it, so a restart only gives up on its own
+ * uploads and leaves those of other live instances alone.
+ */
+@Service
+public class PhotoIngestService {
+
+    public static final String STATUS_PENDING = "pending";
+    public static final String STATUS_READY = "ready";
+    public static final String STATUS_FAILED = "failed";
+
+    private static final String PREFIX = "photo_";
+
+    @Autowired
+    private PhotoRepository photoRepository;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    private Path spoolDir;
+    private String owner;
+    private ScheduledExecutorService workers;
+    private final int maxAttempts = AppEnv.getPhotoIngestMaxAttempts();
+
+    @PostConstruct
+    public void init() throws IOException {
+        spoolDir = Paths.get(AppEnv.getPhotoSpoolDir());
+        Files.createDirectories(spoolDir);
+        owner = hostName() + ":" + spoolDir.toAbsolutePath().normalize();
+
+        AtomicInteger n = new AtomicInteger();
+        workers = Executors.newScheduledThreadPool(AppEnv.getPhotoIngestWorkers(), r -> {
+            Thread t = new Thread(r, "photo-ingest-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        try {
+            recover();
+        } catch (Exception e) {
+            Debug.log("Photo spool recovery failed: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (workers != null) {
+            workers.shutdown();
+        }
+    }
+
+    /** Marks a new photo as pending on this instance; call before the first save. */
+    public void markPending(Photo photo) {
+        photo.setStatus(STATUS_PENDING);
+        photo.setSpoolOwner(owner);
+        photo.setPendingSince(System.currentTimeMillis());
+    }
+
+    /**
+     * Writes the upload into the spool directory and queues it for the given
+     * (already saved, pending) photo.
+     */
+    public void enqueue(Photo photo, MultipartFile file) throws IOException {
+        Path target = spoolDir.resolve(PREFIX + photo.getId() + "." + extensionOf(file.getOriginalFilename()));
+        Path part = target.resolveSibling(target.getFileName() + ".part");
+        file.transferTo(part);
+        // rename only once the bytes are on disk so recovery never sees half a file
+        Files.move(part, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        submit(photo.getId(), target, 1, 0);
+    }
+
+    private void submit(Long photoId, Path file, int attempt, long delaySeconds) {
+        workers.schedule(() -> process(photoId, file, attempt), delaySeconds, TimeUnit.SECONDS);
+    }
+
+    private void process(Long photoId, Path file, int attempt) {
+        Photo photo = photoRepository.findById(photoId).orElse(null);
+        if (photo == null || !STATUS_PENDING.equals(photo.getStatus())) {
+            Debug.log("Dropping spooled file for photo " + photoId + " (no longer pending)");
+            deleteQuietly(file);
+            return;
+        }
+
+        try {
+            String fileName = file.getFileName().toString();
+            String key = "journey-genie/day_" + photo.getDay().getId() + "_photo_" + photoId
+                    + fileName.substring(fileName.indexOf('.'));
+            String imageUrl = blobStore.put(key, file, Files.probeContentType(file));
+
+            photo.setLink(imageUrl);
+            photo.setStatus(STATUS_READY);
+            photoRepository.save(photo);
+            deleteQuietly(file);
+            Debug.log("Photo " + photoId + " uploaded: " + imageUrl);
+        } catch (Exception e) {
+            if (attempt < maxAttempts) {
+                long backoff = 1L << Math.min(attempt, 6); // 2s, 4s, 8s ... capped at ~1 min
+                Debug.log("Upload of photo " + photoId + " failed (attempt " + attempt + "), retrying in "
+                        + backoff + "s: " + e.getMessage());
+                submit(photoId, file, attempt + 1, backoff);
+            } else {
+                Debug.exception("Upload of photo " + photoId + " failed after " + attempt + " attempts: " + e.getMessage());
+                photo.setStatus(STATUS_FAILED);
+                photoRepository.save(photo);
+                deleteQuietly(file);
+            }
+        }
+    }
+
+    /** Re-queue spooled files left behind by a previous run. */
+    private void recover() throws IOException {
+        Set<Long> spooled = new HashSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(spoolDir, PREFIX + "*")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".part")) {
+                    deleteQuietly(file);
+                    continue;
+                }
+                Long id = idOf(name);
+                if (id == null) continue;
+                spooled.add(id);
+                submit(id, file, 1, 0);
+            }
+        }
+
+        // Our pending rows without a spooled file can't be finished. Rows of another
+        // instance are its business until they outlive every retry it could make.
+        long abandonedBefore = System.currentTimeMillis() - retryWindowMs();
+        int failed = 0;
+        for (Photo photo : photoRepository.findByStatus(STATUS_PENDING)) {
+            if (spooled.contains(photo.getId())) continue;
+            boolean ours = owner.equals(photo.getSpoolOwner());
+            boolean abandoned = photo.getPendingSince() != null && photo.getPendingSince() < abandonedBefore;
+            if (ours || abandoned) {
+                photo.setStatus(STATUS_FAILED);
+                photoRepository.save(photo);
+                failed++;
+            }
+        }
+        Debug.log("Photo spool recovery: re-queued " + spooled.size() + " file(s), failed " + failed + " lost upload(s)");
+    }
+
+    /** Longest a live instance keeps retrying one upload, plus room for a queue backlog. */
+    private long retryWindowMs() {
+        long backoffSeconds = 0;
+        for (int attempt = 1; attempt < maxAttempts; attempt++) {
+            backoffSeconds += 1L << Math.min(attempt, 6);
+        }
+        return TimeUnit.SECONDS.toMillis(backoffSeconds) + TimeUnit.MINUTES.toMillis(30);
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            String env = System.getenv("HOSTNAME");
+            return env == null || env.isEmpty() ? "unknown-host" : env;
+        }
+    }
+
+    private static Long idOf(String fileName) {
+        int dot = fileName.indexOf('.');
+        String id = fileName.substring(PREFIX.length(), dot < 0 ? fileName.length() : dot);
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String extensionOf(String originalName) {
+        if (originalName != null) {
+            int dot = originalName.lastIndexOf('.');
+            if (dot >= 0 && dot < originalName.length() - 1) {
+                String ext = originalName.substring(dot + 1).toLowerCase();
+                if (ext.matches("[a-z0-9]{1,5}")) return ext;
+            }
+        }
+        return "img";
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+        }
+    }
+}
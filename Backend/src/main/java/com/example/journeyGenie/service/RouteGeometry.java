@@ -0,0 +1,221 @@
+package com.example.journeyGenie.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A route line as one flat array of lat,lon pairs, so a 50k-point drive is a
+ * single double[] rather than 50k boxed pairs. Serializes to Jackson as the
+ * Leaflet-friendly [[lat, lon], ...] without building an intermediate tree.
+ */
+public final class RouteGeometry implements JsonSerializable {
+
+    static final int MAX_ZOOM = 22;
+    // deviation allowed by simplification, in screen pixels at the requested zoom
+    private static final double TOLERANCE_PIXELS = 1.0;
+    private static final double MAX_MERCATOR_LAT = 85.05112878;
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+
+    private final double[] latlon;
+    private final int size;
+
+    RouteGeometry(double[] latlon, int size) {
+        this.latlon = latlon;
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double lat(int i) {
+        return latlon[2 * i];
+    }
+
+    public double lon(int i) {
+        return latlon[2 * i + 1];
+    }
+
+    /** [[southLat, westLon], [northLat, eastLon]] */
+    public double[][] bounds() {
+        double minLat = 90, minLon = 180, maxLat = -90, maxLon = -180;
+        for (int i = 0; i < size; i++) {
+            double lat = latlon[2 * i], lon = latlon[2 * i + 1];
+            if (lat < minLat) minLat = lat;
+            if (lat > maxLat) maxLat = lat;
+            if (lon < minLon) minLon = lon;
+            if (lon > maxLon) maxLon = lon;
+        }
+        return new double[][]{{minLat, minLon}, {maxLat, maxLon}};
+    }
+
+    /** Great-circle distance between two points, in kilometres. */
+    public static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1), dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * Douglas–Peucker simplification that keeps the line within TOLERANCE_PIXELS of
+     * the original when drawn at the given web map zoom level. Distances are taken
+     * in Web Mercator, where a pixel is the same size at every latitude.
+     */
+    public RouteGeometry simplifyForZoom(int zoom) {
+        int z = Math.max(0, Math.min(MAX_ZOOM, zoom));
+        double tolerance = TOLERANCE_PIXELS / (256.0 * (1L << z));   // world is 256 * 2^z pixels wide
+        return simplify(tolerance * tolerance);
+    }
+
+    private RouteGeometry simplify(double toleranceSq) {
+        if (size < 3) return this;
+        double[] x = new double[size], y = new double[size];
+        for (int i = 0; i < size; i++) {
+            x[i] = (latlon[2 * i + 1] + 180.0) / 360.0;
+            double lat = Math.toRadians(Math.max(-MAX_MERCATOR_LAT, Math.min(MAX_MERCATOR_LAT, latlon[2 * i])));
+            y[i] = 0.5 - Math.log(Math.tan(Math.PI / 4 + lat / 2)) / (2 * Math.PI);
+        }
+
+        boolean[] keep = new boolean[size];
+        keep[0] = keep[size - 1] = true;
+        int kept = 2;
+        // explicit stack of [first, last] spans; long drives would overflow recursion
+        int[] stack = new int[2 * size];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = size - 1;
+        while (top > 0) {
+            int last = stack[--top], first = stack[--top];
+            double ax = x[first], ay = y[first];
+            double dx = x[last] - ax, dy = y[last] - ay;
+            double lenSq = dx * dx + dy * dy;
+            int farthest = -1;
+            double maxSq = toleranceSq;
+            for (int i = first + 1; i < last; i++) {
+                double px = x[i] - ax, py = y[i] - ay;
+                double t = lenSq == 0 ? 0 : Math.max(0, Math.min(1, (px * dx + py * dy) / lenSq));
+                double ex = px - t * dx, ey = py - t * dy;
+                double dSq = ex * ex + ey * ey;
+                if (dSq > maxSq) {
+                    maxSq = dSq;
+                    farthest = i;
+                }
+            }
+            if (farthest < 0) continue;
+            keep[farthest] = true;
+            kept++;
+            stack[top++] = first;
+            stack[top++] = farthest;
+            stack[top++] = farthest;
+            stack[top++] = last;
+        }
+
+        double[] out = new double[2 * kept];
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            if (!keep[i]) continue;
+            out[j++] = latlon[2 * i];
+            out[j++] = latlon[2 * i + 1];
+        }
+        return new RouteGeometry(out, kept);
+    }
+
+    /** Google encoded polyline (precision 5), as read by Leaflet and Google Maps plugins. */
+    public String encodePolyline() {
+        return encodePolyline(5);
+    }
+
+    /** Encoded polyline with the given number of decimals (6 keeps OSRM coordinates exact). */
+    public String encodePolyline(int precision) {
+        double scale = Math.pow(10, precision);
+        StringBuilder sb = new StringBuilder(size * 6);
+        long prevLat = 0, prevLon = 0;
+        for (int i = 0; i < size; i++) {
+            long lat = Math.round(latlon[2 * i] * scale);
+            long lon = Math.round(latlon[2 * i + 1] * scale);
+            encode(lat - prevLat, sb);
+            encode(lon - prevLon, sb);
+            prevLat = lat;
+            prevLon = lon;
+        }
+        return sb.toString();
+    }
+
+    private static void encode(long delta, StringBuilder sb) {
+        long v = delta < 0 ? ~(delta << 1) : delta << 1;
+        while (v >= 0x20) {
+            sb.append((char) ((0x20 | (v & 0x1f)) + 63));
+            v >>= 5;
+        }
+        sb.append((char) (v + 63));
+    }
+
+    public static RouteGeometry decodePolyline(String encoded, int precision) {
+        double scale = Math.pow(10, precision);
+        Builder line = new Builder();
+        int i = 0, n = encoded.length();
+        long lat = 0, lon = 0;
+        long[] next = new long[1];
+        while (i < n) {
+            i = decode(encoded, i, next);
+            lat += next[0];
+            i = decode(encoded, i, next);
+            lon += next[0];
+            line.add(lat / scale, lon / scale);
+        }
+        return line.build();
+    }
+
+    /** Reads one zig-zag varint starting at i into out[0]; returns the index after it. */
+    private static int decode(String encoded, int i, long[] out) {
+        long result = 0;
+        int shift = 0, b;
+        do {
+            b = encoded.charAt(i++) - 63;
+            result |= (long) (b & 0x1f) << shift;
+            shift += 5;
+        } while (b >= 0x20 && i < encoded.length());
+        out[0] = (result & 1) != 0 ? ~(result >> 1) : result >> 1;
+        return i;
+    }
+
+    @Override
+    public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+        gen.writeStartArray();
+        for (int i = 0; i < size; i++) {
+            gen.writeArray(latlon, 2 * i, 2);
+        }
+        gen.writeEndArray();
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer)
+            throws IOException {
+        serialize(gen, serializers);
+    }
+
+    /** Growable coordinate buffer for parsers. */
+    static final class Builder {
+        private double[] latlon = new double[256];
+        private int size;
+
+        void add(double lat, double lon) {
+            if (2 * size + 2 > latlon.length) {
+                latlon = Arrays.copyOf(latlon, latlon.length * 2);
+            }
+            latlon[2 * size] = lat;
+            latlon[2 * size + 1] = lon;
+            size++;
+        }
+
+        RouteGeometry build() {
+            return new RouteGeometry(latlon, size);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.journeyGenie.service;
+
+import com.example.journeyGenie.util.AppEnv;
+import com.example.journeyGenie.util.LatencyStats;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Driving, walking and cycling routes from the public OSRM server, cached in process.
+ *
+ * Endpoints are snapped to a GRID_DEGREES grid (about 100 m) and the route is
+ * requested between the snapped points, so every request that lands in the same
+ * pair of cells can share it. A tour's start and destination never change, so
+ * repeat lookups are the norm; entries live for ROUTE_CACHE_TTL_HOURS and are then
+ * served stale for up to ROUTE_MAX_STALE_HOURS while they are fetched again.
+ * The line is kept as a precision-6 encoded polyline (lossless for OSRM, a few
+ * bytes per point) and the cache is bounded by its total size, ROUTE_CACHE_MB.
+ */
+@Service
+public class RouteService {
+
+    static final double GRID_DEGREES = 0.001;
+    static final int POLYLINE_PRECISION = 6;
+
+    private static final String ROUTE_URL = "https://router.project-osrm.org/route/v1/%s/%.6f,%.6f;%.6f,%.6f"
+            + "?overview=full&geometries=geojson&alternatives=false&steps=false";
+    // map node, key, record and bounds around the polyline characters
+    private static final int ENTRY_OVERHEAD_BYTES = 200;
+
+    /** A cached route; geometry() decodes the line. */
+    public record Route(double distanceM, double durationS, String polyline, int points,
+                        double[][] bounds, boolean stale) {
+
+        public RouteGeometry geometry() {
+            return RouteGeometry.decodePolyline(polyline, POLYLINE_PRECISION);
+        }
+
+        Route asStale() {
+            return new Route(distanceM, durationS, polyline, points, bounds, true);
+        }
+    }
+
+    private record Key(String profile, int lat1, int lon1, int lat2, int lon2) {}
+
+    private record Entry(Route route, long freshUntil, long staleUntil, long bytes) {}
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private final long maxBytes = AppEnv.getRouteCacheMb() * 1024L * 1024L;
+    private final long ttlMs = TimeUnit.HOURS.toMillis(AppEnv.getRouteCacheTtlHours());
+    private final long maxStaleMs = TimeUnit.HOURS.toMillis(AppEnv.getRouteMaxStaleHours());
+    private final long refreshTimeoutMs = 4L * AppEnv.getUpstreamTimeoutMs();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder upstreamErrors = new LongAdder();
+    private final LatencyStats upstream = new LatencyStats();
+
+    // guarded by itself, like bytes
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long bytes;
+
+    private final Map<Key, CompletableFuture<Route>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * The route between two points for an OSRM profile (driving, walking, cycling).
+     * Completes with null when OSRM finds no route, and exceptionally on provider
+     * errors or when the lookup takes longer than timeoutMs.
+     */
+    public CompletableFuture<Route> route(String profile, double lat1, double lon1, double lat2, double lon2,
+                                          long timeoutMs) {
+        Key key = new Key(profile, snap(lat1), snap(lon1), snap(lat2), snap(lon2));
+        Entry cached = cached(key);
+        if (cached != null) {
+            if (cached.freshUntil() > System.currentTimeMillis()) {
+                hits.increment();
+                return CompletableFuture.completedFuture(cached.route());
+            }
+            staleHits.increment();
+            load(key, refreshTimeoutMs);
+            return CompletableFuture.completedFuture(cached.route().asStale());
+        }
+        return load(key, timeoutMs).copy();
+    }
+
+    private CompletableFuture<Route> load(Key key, long timeoutMs) {
+        CompletableFuture<Route> created = new CompletableFuture<>();
+        CompletableFuture<Route> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            coalesced.increment();
+            return existing;
+        }
+        misses.increment();
+        fetch(key, timeoutMs).whenComplete((route, error) -> {
+            if (error == null && route != null) {
+                store(key, route);
+            } else if (error != null) {
+                upstreamErrors.increment();
+            }
+            inFlight.remove(key, created);
+            if (error == null) {
+                created.complete(route);
+            } else {
+                created.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+            }
+        });
+        return created;
+    }
+
+    private CompletableFuture<Route> fetch(Key key, long timeoutMs) {
+        String url = String.format(Locale.ROOT, ROUTE_URL, key.profile(),
+                key.lon1() * GRID_DEGREES, key.lat1() * GRID_DEGREES, key.lon2() * GRID_DEGREES, key.lat2() * GRID_DEGREES);
+        HttpRequest req = HttpRequest.newBuilder(URI.create(url))
+                .header("Accept", "application/json")
+                .timeout(Duration.ofMillis(Math.max(1, timeoutMs)))
+                .GET()
+                .build();
+        long start = System.nanoTime();
+        return http.sendAsync(req, HttpResponse.BodyHandlers.ofByteArray()).thenApply(resp -> {
+            upstream.recordSince(start);
+            if (resp.statusCode() != 200) {
+                throw new CompletionException(new IOException("Route provider returned " + resp.statusCode()));
+            }
+            try {
+                OsrmRoute r = OsrmRoute.parse(resp.body());
+                if (r.geometry() == null || r.geometry().size() == 0) return null;
+                return new Route(r.distanceM(), r.durationS(),
+                        r.geometry().encodePolyline(POLYLINE_PRECISION), r.geometry().size(),
+                        r.geometry().bounds(), false);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    /** OSRM profile for a travel mode; anything unknown is driven. */
+    public static String profile(String mode) {
+        return switch (mode == null ? "" : mode.toLowerCase(Locale.ROOT)) {
+            case "walking" -> "walking";
+            case "cycling" -> "cycling";
+            default -> "driving";
+        };
+    }
+
+    private static int snap(double degrees) {
+        return (int) Math.round(degrees / GRID_DEGREES);
+    }
+
+    private Entry cached(Key key) {
+        synchronized (entries) {
+            Entry e = entries.get(key);
+            if (e == null) return null;
+            if (e.staleUntil() <= System.currentTimeMillis()) {
+                entries.remove(key);
+                bytes -= e.bytes();
+                return null;
+            }
+            return e;
+        }
+    }
+
+    private void store(Key key, Route route) {
+        // compact strings keep an ASCII polyline at one byte per character
+        long size = ENTRY_OVERHEAD_BYTES + route.polyline().length();
+        if (size > maxBytes) return;
+        long freshUntil = System.currentTimeMillis() + ttlMs;
+        synchronized (entries) {
+            Entry previous = entries.put(key, new Entry(route, freshUntil, freshUntil + maxStaleMs, size));
+            bytes += size - (previous == null ? 0 : previous.bytes());
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                bytes -= eldest.next().bytes();
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    public Map<String, Object> stats() {
+        int size;
+        long used;
+        synchronized (entries) {
+            size = entries.size();
+            used = bytes;
+        }
+        long h = hits.sum() + staleHits.sum(), m = misses.sum();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("entries", size);
+        out.put("usedMB", Math.round(used / (1024.0 * 1024.0) * 100) / 100.0);
+        out.put("maxMB", maxBytes / (1024 * 1024));
+        out.put("hits", hits.sum());
+        out.put("staleHits", staleHits.sum());
+        out.put("misses", m);
+        out.put("coalesced", coalesced.sum());
+        out.put("hitRate", h + m == 0 ? 0 : Math.round(h * 10000.0 / (h + m)) / 100.0);
+        out.put("inFlight", inFlight.size());
+        out.put("evictions", evictions.sum());
+        out.put("upstreamErrors", upstreamErrors.sum());
+        out.put("upstream", upstream.snapshot());
+        return out;
+    }
+}
@@ -0,0 +1,384 @@
+package com.example.journeyGenie.service;
+
+import com.example.journeyGenie.authJWT.JWTService;
+import com.example.journeyGenie.entity.Activity;
+import com.example.journeyGenie.entity.Day;
+import com.example.journeyGenie.entity.Tour;
+import com.example.journeyGenie.repository.TourRepository;
+import com.example.journeyGenie.util.AppEnv;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.net.http.HttpTimeoutException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
+
+/**
+ * The whole route of a tour in one response: start location, destination, the
+ * places of each day's activities and hotel in order, and back to the start.
+ *
+ * All stops are geocoded together and every leg is requested at once through
+ * {@link RouteService}, so a tour costs one round of geocoding and one round of
+ * routing, and legs the tour shares with earlier requests come from the cache.
+ * Activities are free text written by the planner; those that do not geocode, or
+ * land implausibly far from the destination, are reported under "skipped".
+ */
+@Service
+public class TourRouteService {
+
+    // an activity further than this from the destination was matched to a namesake elsewhere
+    private static final double MAX_STOP_DISTANCE_KM = 150;
+    // consecutive stops closer than this are the same place (hotel, then breakfast at the hotel)
+    private static final double SAME_STOP_KM = 0.05;
+
+    private static final Pattern COST_SUFFIX = Pattern.compile("\\s+-\\s+Cost:.*$");
+    private static final Pattern TIME_SUFFIX = Pattern.compile("\\s*\\([^)]*\\)\\s*$");
+    private static final Pattern VERB_PREFIX = Pattern.compile(
+            "^(visit|explore|see|tour|trip to|go to|walk (?:around|along|through)|relax at|stroll (?:around|along))\\s+(the\\s+)?",
+            Pattern.CASE_INSENSITIVE);
+
+    @Autowired
+    private TourRepository tourRepository;
+
+    @Autowired
+    private JWTService jwtService;
+
+    @Autowired
+    private GeocodingService geocodingService;
+
+    @Autowired
+    private RouteService routeService;
+
+    @Autowired
+    private DistanceMatrixService distanceMatrixService;
+
+    /** A stop as planned; day is null for the start, the destination and the return. */
+    private record Stop(String query, Integer day, String date) {}
+
+    private record Resolved(Stop stop, GeocodingService.Place place) {}
+
+    /** The tour when the caller owns it, otherwise the response to send instead. */
+    private record Owned(Tour tour, ResponseEntity<?> denied) {}
+
+    /** One leg's outcome: a route, or why there is none. */
+    private record Leg(RouteService.Route route, String error) {
+
+        static Leg of(RouteService.Route route, Throwable failure) {
+            if (failure == null) {
+                return route == null ? new Leg(null, "No route found") : new Leg(route, null);
+            }
+            Throwable ex = failure instanceof CompletionException && failure.getCause() != null
+                    ? failure.getCause() : failure;
+            if (ex instanceof TimeoutException || ex instanceof HttpTimeoutException) {
+                return new Leg(null, "Route lookup timed out");
+            }
+            return new Leg(null, "Upstream provider error: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Completes with the tour route, or with an error response for a missing tour,
+     * a tour of another user or endpoints that cannot be geocoded. deadline is a
+     * System.nanoTime() instant; leg lookups are capped to what is left of it.
+     */
+    public CompletableFuture<ResponseEntity<?>> route(Long tourId, String mode, int zoom, boolean polyline,
+                                                      long deadline, HttpServletRequest request) {
+        Owned owned = checkOwner(tourId, request);
+        if (owned.denied() != null) return CompletableFuture.completedFuture(owned.denied());
+        Tour tour = owned.tour();
+        if (tour.getStartLocation() == null || tour.getStartLocation().isBlank()) {
+            return done(HttpStatus.BAD_REQUEST, "Tour has no start location");
+        }
+
+        List<Stop> stops = stops(tour);
+        String profile = RouteService.profile(mode);
+        return geocode(stops).thenCompose(places -> {
+            if (places.get(stops.get(0).query()) == null) {
+                return done(HttpStatus.BAD_REQUEST, "Start location not found");
+            }
+            if (places.get(stops.get(1).query()) == null) {
+                return done(HttpStatus.BAD_REQUEST, "Destination not found");
+            }
+            List<Map<String, Object>> skipped = new ArrayList<>();
+            List<Resolved> path = path(stops, places, places.get(stops.get(1).query()), skipped);
+
+            long timeoutMs = timeoutMs(deadline);
+            // a leg that fails is reported in its own entry; the others still make the map
+            List<CompletableFuture<Leg>> legs = new ArrayList<>();
+            for (int i = 1; i < path.size(); i++) {
+                GeocodingService.Place a = path.get(i - 1).place(), b = path.get(i).place();
+                legs.add(routeService.route(profile, a.lat(), a.lon(), b.lat(), b.lon(), timeoutMs)
+                        .handle(Leg::of));
+            }
+            return CompletableFuture.allOf(legs.toArray(CompletableFuture[]::new))
+                    .thenApply(all -> build(tour, profile, zoom, polyline, path, legs, skipped));
+        });
+    }
+
+    /**
+     * Travel times and distances between every pair of one day's stops (1-based
+     * day), from a single table request. Cells are estimates when the provider is
+     * unavailable; "estimated" says how many. Only the destination and the day's
+     * activities are used, so tours without a start location work too.
+     */
+    public CompletableFuture<ResponseEntity<?>> dayMatrix(Long tourId, int day, String mode, long deadline,
+                                                          HttpServletRequest request) {
+        Owned owned = checkOwner(tourId, request);
+        if (owned.denied() != null) return CompletableFuture.completedFuture(owned.denied());
+        Tour tour = owned.tour();
+        int days = tour.getDays() == null ? 0 : tour.getDays().size();
+        if (day < 1 || day > days) {
+            return done(HttpStatus.NOT_FOUND, "Tour " + tourId + " has no day " + day);
+        }
+
+        Stop destinationStop = new Stop(tour.getDestination().trim(), null, tour.getStartDate());
+        List<Stop> stops = new ArrayList<>();
+        stops.add(destinationStop);
+        for (Stop s : activityStops(tour)) {
+            if (s.day() == day) stops.add(s);
+        }
+        String profile = RouteService.profile(mode);
+        return geocode(stops).thenCompose(places -> {
+            GeocodingService.Place destination = places.get(destinationStop.query());
+            if (destination == null) {
+                return done(HttpStatus.BAD_REQUEST, "Destination not found");
+            }
+            List<Map<String, Object>> skipped = new ArrayList<>();
+            List<Resolved> path = path(stops.subList(1, stops.size()), places, destination, skipped);
+            if (path.size() > DistanceMatrixService.MAX_POINTS) {
+                return done(HttpStatus.BAD_REQUEST, "Day " + day + " has " + path.size() + " stops; at most "
+                        + DistanceMatrixService.MAX_POINTS + " fit in one matrix");
+            }
+            double[][] points = new double[path.size()][];
+            for (int i = 0; i < points.length; i++) {
+                points[i] = new double[]{path.get(i).place().lat(), path.get(i).place().lon()};
+            }
+            return distanceMatrixService.matrix(profile, points, timeoutMs(deadline)).thenApply(m -> {
+                Map<String, Object> out = new LinkedHashMap<>();
+                out.put("tourId", tour.getId());
+                out.put("day", day);
+                out.put("date", tour.getDays().get(day - 1).getDate());
+                out.put("profile", profile);
+                out.put("stops", stops(path));
+                out.put("durationsMin", round(m.durationsS(), 60.0));
+                out.put("distancesKm", round(m.distancesM(), 1000.0));
+                out.put("estimated", m.estimated());
+                out.put("skipped", skipped);
+                return ResponseEntity.ok(out);
+            });
+        });
+    }
+
+    private Owned checkOwner(Long tourId, HttpServletRequest request) {
+        String email = jwtService.getEmailFromRequest(request);
+        if (email == null) {
+            return denied(HttpStatus.UNAUTHORIZED, "Unauthorized - please login again");
+        }
+        Tour tour = tourRepository.findById(tourId).orElse(null);
+        if (tour == null) {
+            return denied(HttpStatus.NOT_FOUND, "Tour not found with id: " + tourId);
+        }
+        if (!email.equals(tour.getUser().getEmail())) {
+            return denied(HttpStatus.FORBIDDEN, "Forbidden");
+        }
+        return new Owned(tour, null);
+    }
+
+    private static Owned denied(HttpStatus status, String error) {
+        return new Owned(null, ResponseEntity.status(status).body(Map.of("error", error)));
+    }
+
+    /** Geocodes every distinct stop at once; completes with query -> place (null when not found). */
+    private CompletableFuture<Map<String, GeocodingService.Place>> geocode(List<Stop> stops) {
+        Map<String, CompletableFuture<GeocodingService.Place>> geocodes = new LinkedHashMap<>();
+        for (Stop s : stops) {
+            geocodes.computeIfAbsent(s.query(), geocodingService::lookupAsync);
+        }
+        return CompletableFuture.allOf(geocodes.values().toArray(CompletableFuture[]::new)).thenApply(ignored -> {
+            Map<String, GeocodingService.Place> places = new LinkedHashMap<>();
+            geocodes.forEach((query, f) -> places.put(query, f.join()));
+            return places;
+        });
+    }
+
+    /**
+     * The stops that resolved, in order, without repeats of the previous stop.
+     * Activity stops that did not geocode or are far from the destination go to skipped.
+     */
+    private static List<Resolved> path(List<Stop> stops, Map<String, GeocodingService.Place> places,
+                                       GeocodingService.Place destination, List<Map<String, Object>> skipped) {
+        List<Resolved> path = new ArrayList<>();
+        for (Stop s : stops) {
+            GeocodingService.Place p = places.get(s.query());
+            String reason = null;
+            if (p == null) {
+                reason = "not found";
+            } else if (s.day() != null && RouteGeometry.haversineKm(p.lat(), p.lon(),
+                    destination.lat(), destination.lon()) > MAX_STOP_DISTANCE_KM) {
+                reason = "too far from destination";
+            }
+            if (reason != null) {
+                Map<String, Object> skip = new LinkedHashMap<>();
+                skip.put("label", s.query());
+                skip.put("day", s.day());
+                skip.put("reason", reason);
+                skipped.add(skip);
+                continue;
+            }
+            Resolved last = path.isEmpty() ? null : path.get(path.size() - 1);
+            if (last != null && RouteGeometry.haversineKm(last.place().lat(), last.place().lon(),
+                    p.lat(), p.lon()) < SAME_STOP_KM) {
+                continue;
+            }
+            path.add(new Resolved(s, p));
+        }
+        return path;
+    }
+
+    private static long timeoutMs(long deadline) {
+        long remainingMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+        return Math.min(remainingMs, AppEnv.getUpstreamTimeoutMs());
+    }
+
+    private static ResponseEntity<?> build(Tour tour, String profile, int zoom, boolean polyline,
+                                           List<Resolved> path, List<CompletableFuture<Leg>> legs,
+                                           List<Map<String, Object>> skipped) {
+        double distanceM = 0, durationS = 0;
+        boolean stale = false;
+        int failedLegs = 0;
+        double minLat = 90, minLon = 180, maxLat = -90, maxLon = -180;
+        List<Map<String, Object>> legsOut = new ArrayList<>();
+        for (int i = 0; i < legs.size(); i++) {
+            Leg result = legs.get(i).join();
+            Map<String, Object> leg = new LinkedHashMap<>();
+            leg.put("from", i);
+            leg.put("to", i + 1);
+            if (result.error() != null) {
+                leg.put("error", result.error());
+                legsOut.add(leg);
+                failedLegs++;
+                continue;
+            }
+            RouteService.Route route = result.route();
+            distanceM += route.distanceM();
+            durationS += route.durationS();
+            stale |= route.stale();
+            double[][] b = route.bounds();
+            minLat = Math.min(minLat, b[0][0]);
+            minLon = Math.min(minLon, b[0][1]);
+            maxLat = Math.max(maxLat, b[1][0]);
+            maxLon = Math.max(maxLon, b[1][1]);
+
+            RouteGeometry line = route.geometry().simplifyForZoom(zoom);
+            leg.put("distanceKm", Math.round((route.distanceM() / 1000.0) * 10.0) / 10.0);
+            leg.put("durationMin", Math.round((route.durationS() / 60.0) * 10.0) / 10.0);
+            leg.put("stale", route.stale());
+            if (polyline) {
+                leg.put("polyline", line.encodePolyline());
+            } else {
+                leg.put("latlngs", line);
+            }
+            leg.put("points", line.size());
+            leg.put("sourcePoints", route.points());
+            legsOut.add(leg);
+        }
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("tourId", tour.getId());
+        out.put("profile", profile);
+        out.put("distanceKm", Math.round((distanceM / 1000.0) * 10.0) / 10.0);
+        out.put("durationMin", Math.round((durationS / 60.0) * 10.0) / 10.0);
+        out.put("stale", stale);
+        out.put("failedLegs", failedLegs);   // totals and bounds cover the other legs
+        out.put("stops", stops(path));
+        out.put("legs", legsOut);
+        out.put("skipped", skipped);
+        if (minLat <= maxLat) {
+            out.put("bounds", new double[][]{{minLat, minLon}, {maxLat, maxLon}});
+        }
+        return ResponseEntity.ok(out);
+    }
+
+    private static List<Map<String, Object>> stops(List<Resolved> path) {
+        List<Map<String, Object>> out = new ArrayList<>();
+        for (Resolved r : path) {
+            Map<String, Object> s = new LinkedHashMap<>();
+            s.put("label", r.stop().query());
+            s.put("name", r.place().name());
+            s.put("lat", r.place().lat());
+            s.put("lon", r.place().lon());
+            s.put("day", r.stop().day());
+            s.put("date", r.stop().date());
+            out.add(s);
+        }
+        return out;
+    }
+
+    /** value / unit to one decimal, with null where there is no route. */
+    private static Double[][] round(double[][] values, double unit) {
+        Double[][] out = new Double[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            out[i] = new Double[values[i].length];
+            for (int j = 0; j < values[i].length; j++) {
+                double v = values[i][j];
+                out[i][j] = Double.isNaN(v) ? null : Math.round(v / unit * 10.0) / 10.0;
+            }
+        }
+        return out;
+    }
+
+    /** Start, destination, each day's places in plan order, and the way home. */
+    private static List<Stop> stops(Tour tour) {
+        List<Stop> stops = new ArrayList<>();
+        stops.add(new Stop(tour.getStartLocation().trim(), null, tour.getStartDate()));
+        stops.add(new Stop(tour.getDestination().trim(), null, tour.getStartDate()));
+        stops.addAll(activityStops(tour));
+        stops.add(new Stop(tour.getStartLocation().trim(), null, tour.getEndDate()));
+        return stops;
+    }
+
+    /** Each day's places in plan order, days numbered by date (Tour.days is ordered); needs no start location. */
+    private static List<Stop> activityStops(Tour tour) {
+        List<Stop> stops = new ArrayList<>();
+        List<Day> days = tour.getDays() == null ? List.of() : tour.getDays();
+        for (int d = 0; d < days.size(); d++) {
+            Day day = days.get(d);
+            if (day.getActivities() == null) continue;
+            for (Activity a : day.getActivities()) {
+                String query = place(a.getDescription());
+                if (query == null) continue;
+                stops.add(new Stop(query, d + 1, day.getDate()));
+            }
+        }
+        return stops;
+    }
+
+    /**
+     * The place named by an activity as the planner writes it, e.g.
+     * "Visit Inani Beach (Morning) - Cost: ৳200" is "Inani Beach" and
+     * "Hotel: Sea Pearl - Cost: ৳9000" is "Sea Pearl". Transport has no place.
+     */
+    static String place(String description) {
+        if (description == null) return null;
+        String s = COST_SUFFIX.matcher(description.trim()).replaceFirst("");
+        if (s.startsWith("Transport:")) return null;
+        if (s.startsWith("Hotel:")) s = s.substring("Hotel:".length());
+        s = TIME_SUFFIX.matcher(s).replaceFirst("");
+        s = VERB_PREFIX.matcher(s.trim()).replaceFirst("").trim();
+        return s.isEmpty() || s.equals("—") ? null : s;
+    }
+
+    private static CompletableFuture<ResponseEntity<?>> done(HttpStatus status, String error) {
+        return CompletableFuture.completedFuture(ResponseEntity.status(status).body(Map.of("error", error)));
+    }
+}
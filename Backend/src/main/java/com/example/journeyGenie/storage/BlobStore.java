@@ -0,0 +1,46 @@
+package com.example.journeyGenie.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Storage for photos, videos and other binary objects.
+ *
+ * Keys are slash separated paths that keep their file extension,
+ * e.g. "journey-genie/day_9_photo_12.jpg".
+ */
+public interface BlobStore {
+
+    /** Stores the stream under the key and returns the public URL of the object. */
+    String put(String key, InputStream in, long length, String contentType) throws IOException;
+
+    /** Stores a local file under the key and returns the public URL of the object. */
+    default String put(String key, Path file, String contentType) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return put(key, in, Files.size(file), contentType);
+        }
+    }
+
+    /** Opens the stored object for reading. */
+    InputStream get(String key) throws IOException;
+
+    /**
+     * Opens a stored image by its public URL at roughly maxSide pixels on the longer
+     * side, when the store can scale on its side; otherwise the original is returned.
+     */
+    default InputStream openThumbnail(String url, int maxSide) throws IOException {
+        URLConnection connection = new URL(url).openConnection();
+        connection.setConnectTimeout(5000);
+        connection.setReadTimeout(15000);
+        return connection.getInputStream();
+    }
+
+    /** Public URL of the object (does not check that it exists). */
+    String url(String key);
+
+    void delete(String key) throws IOException;
+}
@@ -0,0 +1,105 @@
+package com.example.journeyGenie.storage;
+
+import com.cloudinary.Cloudinary;
+import com.cloudinary.utils.ObjectUtils;
+import com.example.journeyGenie.util.Debug;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * BlobStore backed by Cloudinary. The key minus its extension is used as the
+ * public id; videos are recognised by extension or content type.
+ */
+public class CloudinaryBlobStore implements BlobStore {
+
+    private static final String IMAGE_UPLOAD = "/image/upload/";
+
+    private final Cloudinary cloudinary;
+
+    public CloudinaryBlobStore(Cloudinary cloudinary) {
+        this.cloudinary = cloudinary;
+        Debug.log("Cloudinary blob store initialized for cloud: " + cloudinary.config.cloudName);
+    }
+
+    @Override
+    public String put(String key, InputStream in, long length, String contentType) throws IOException {
+        // uploadLarge is the only uploader entry point that accepts a stream (sent in chunks)
+        return secureUrl(cloudinary.uploader().uploadLarge(in, options(key, contentType)));
+    }
+
+    @Override
+    public String put(String key, Path file, String contentType) throws IOException {
+        return secureUrl(cloudinary.uploader().upload(file.toFile(), options(key, contentType)));
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        return new URL(url(key)).openStream();
+    }
+
+    // delivery URLs accept a transformation after /upload/, so Cloudinary does the downscaling
+    @Override
+    public InputStream openThumbnail(String url, int maxSide) throws IOException {
+        int at = url.indexOf(IMAGE_UPLOAD);
+        if (at >= 0) {
+            int cut = at + IMAGE_UPLOAD.length();
+            url = url.substring(0, cut) + "c_limit,w_" + maxSide + ",h_" + maxSide + "/" + url.substring(cut);
+        }
+        return BlobStore.super.openThumbnail(url, maxSide);
+    }
+
+    @Override
+    public String url(String key) {
+        return cloudinary.url()
+                .secure(true)
+                .resourceType(resourceType(key, null))
+                .generate(publicId(key) + extension(key));
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        cloudinary.uploader().destroy(publicId(key), ObjectUtils.asMap(
+                "resource_type", resourceType(key, null),
+                "invalidate", true
+        ));
+    }
+
+    private Map<?, ?> options(String key, String contentType) {
+        return ObjectUtils.asMap(
+                "public_id", publicId(key),
+                "resource_type", resourceType(key, contentType),
+                "overwrite", true,
+                "unique_filename", false
+        );
+    }
+
+    private static String secureUrl(Map<?, ?> uploadResult) throws IOException {
+        String url = (String) uploadResult.get("secure_url");
+        if (url == null || url.isBlank()) {
+            throw new IOException("Cloudinary returned no URL: " + uploadResult);
+        }
+        return url;
+    }
+
+    private static String publicId(String key) {
+        int dot = key.lastIndexOf('.');
+        return dot > key.lastIndexOf('/') ? key.substring(0, dot) : key;
+    }
+
+    private static String extension(String key) {
+        return key.substring(publicId(key).length());
+    }
+
+    private static String resourceType(String key, String contentType) {
+        if (contentType != null && contentType.startsWith("video/")) return "video";
+        String ext = extension(key).toLowerCase();
+        return switch (ext) {
+            case ".mp4", ".mov", ".webm", ".mkv" -> "video";
+            default -> "image";
+        };
+    }
+}
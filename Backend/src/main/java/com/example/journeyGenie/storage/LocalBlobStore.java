@@ -0,0 +1,74 @@
+package com.example.journeyGenie.storage;
+
+import com.example.journeyGenie.util.Debug;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.*;
+
+/**
+ * BlobStore on the local filesystem. Objects are served back by
+ * BlobController under /blobs/{key}, so URLs are only valid for this backend.
+ */
+public class LocalBlobStore implements BlobStore {
+
+    public static final String URL_PREFIX = "/blobs/";
+
+    private final Path root;
+    private final String baseUrl;
+
+    public LocalBlobStore(Path root, String baseUrl) throws IOException {
+        this.root = root.toAbsolutePath().normalize();
+        this.baseUrl = baseUrl == null ? "" : baseUrl.replaceAll("/+$", "");
+        Files.createDirectories(this.root);
+        Debug.log("Local blob store initialized at " + this.root);
+    }
+
+    @Override
+    public String put(String key, InputStream in, long length, String contentType) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        Path tmp = Files.createTempFile(target.getParent(), ".upload-", ".tmp");
+        try {
+            Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return url(key);
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        return Files.newInputStream(resolve(key));
+    }
+
+    // our own URLs are read straight from disk instead of over HTTP
+    @Override
+    public InputStream openThumbnail(String url, int maxSide) throws IOException {
+        String prefix = baseUrl + URL_PREFIX;
+        if (url.startsWith(prefix)) {
+            return get(url.substring(prefix.length()));
+        }
+        return BlobStore.super.openThumbnail(url, maxSide);
+    }
+
+    @Override
+    public String url(String key) {
+        return baseUrl + URL_PREFIX + key;
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+    }
+
+    /** File backing the key; rejects keys that would escape the store root. */
+    public Path resolve(String key) throws IOException {
+        Path path = root.resolve(key).normalize();
+        if (key.isEmpty() || !path.startsWith(root) || path.equals(root)) {
+            throw new NoSuchFileException(key);
+        }
+        return path;
+    }
+}
@@ -2,6 +2,10 @@ package com.example.journeyGenie.util;
 
 import io.github.cdimascio.dotenv.Dotenv;
 
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
 public class AppEnv {
     private static final Dotenv dotenv = Dotenv.configure().ignoreIfMissing().load();
 
@@ -51,4 +55,309 @@ public class AppEnv {
     public static String getCloudinary_API(){return dotenv.get("CLOUDINARY_URL");}
 
     public static String getCloudinaryName(){return dotenv.get("CLOUD_NAME");}
+
+    public static String getBlobStore() {
+        String value = dotenv.get("BLOB_STORE");
+        return (value == null || value.isEmpty()) ? "cloudinary" : value;
+    }
+
+    public static String getBlobLocalDir() {
+        String value = dotenv.get("BLOB_LOCAL_DIR");
+        if (value == null || value.isEmpty()) {
+            return System.getProperty("java.io.tmpdir") + "/journey-genie-blobs";
+        }
+        return value;
+    }
+
+    public static String getPhotoSpoolDir() {
+        String value = dotenv.get("PHOTO_SPOOL_DIR");
+        if (value == null || value.isEmpty()) {
+            return System.getProperty("java.io.tmpdir") + "/journey-genie-spool";
+        }
+        return value;
+    }
+
+    public static int getPhotoIngestWorkers() {
+        return getInt("PHOTO_INGEST_WORKERS", 2);
+    }
+
+    public static int getPhotoIngestMaxAttempts() {
+        return getInt("PHOTO_INGEST_MAX_ATTEMPTS", 5);
+    }
+
+    public static int getLandmarkPredictorPoolSize() {
+        return Math.max(1, getInt("LANDMARK_PREDICTOR_POOL_SIZE",
+                Math.max(1, Runtime.getRuntime().availableProcessors() / 2)));
+    }
+
+    public static long getLandmarkPredictTimeoutMs() {
+        return getInt("LANDMARK_PREDICT_TIMEOUT_MS", 5000);
+    }
+
+    public static int getLandmarkMaxBatch() {
+        return getInt("LANDMARK_MAX_BATCH", 8);
+    }
+
+    public static long getLandmarkBatchWaitMs() {
+        return getInt("LANDMARK_BATCH_WAIT_MS", 4);
+    }
+
+    public static long getLandmarkMaxUploadBytes() {
+        return getInt("LANDMARK_MAX_UPLOAD_MB", 20) * 1024L * 1024L;
+    }
+
+    public static long getLandmarkMaxImagePixels() {
+        return getInt("LANDMARK_MAX_IMAGE_MEGAPIXELS", 100) * 1_000_000L;
+    }
+
+    public static int getLandmarkTopK() {
+        return getInt("LANDMARK_TOP_K", 3);
+    }
+
+    public static float getLandmarkLowConfidence() {
+        String value = dotenv.get("LANDMARK_LOW_CONFIDENCE");
+        try {
+            return value == null || value.isEmpty() ? 0.8f : Float.parseFloat(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid LANDMARK_LOW_CONFIDENCE value, defaulting to 0.8");
+            return 0.8f;
+        }
+    }
+
+    public static int getLandmarkCacheSize() {
+        return getInt("LANDMARK_CACHE_SIZE", 1024);
+    }
+
+    public static int getLandmarkMaxBatchFiles() {
+        return Math.max(1, getInt("LANDMARK_MAX_BATCH_FILES", 16));
+    }
+
+    /** Photos fetched at the same time by the tour tagging job. */
+    public static int getLandmarkTagFetchThreads() {
+        return Math.max(1, getInt("LANDMARK_TAG_FETCH_THREADS", 4));
+    }
+
+    /** Photos sent to the model in one call by the tour tagging job. */
+    public static int getLandmarkTagChunk() {
+        return Math.max(1, getInt("LANDMARK_TAG_CHUNK", 16));
+    }
+
+    /** ONNX model whose output is an image embedding (looked up like the classifier); empty disables retrieval. */
+    public static String getLandmarkEmbeddingModel() {
+        String value = dotenv.get("LANDMARK_EMBEDDING_MODEL");
+        return value == null ? "" : value.trim();
+    }
+
+    /**
+     * Reference-photo index built through /api/landmark/index. It is curated by hand, so it
+     * defaults to LANDMARK_MODEL_DIR/index (where the embedding model already has to be)
+     * rather than a temp directory; empty when neither is set.
+     */
+    public static String getLandmarkIndexDir() {
+        String value = dotenv.get("LANDMARK_INDEX_DIR");
+        if (value != null && !value.isBlank()) {
+            return value.trim();
+        }
+        String models = getLandmarkModelDir();
+        return models.isEmpty() ? "" : Path.of(models, "index").toString();
+    }
+
+    public static int getLandmarkIndexM() {
+        return Math.max(4, getInt("LANDMARK_INDEX_M", 16));
+    }
+
+    public static int getLandmarkIndexEfConstruction() {
+        return Math.max(8, getInt("LANDMARK_INDEX_EF_CONSTRUCTION", 200));
+    }
+
+    public static int getLandmarkIndexEfSearch() {
+        return Math.max(8, getInt("LANDMARK_INDEX_EF_SEARCH", 64));
+    }
+
+    /** Directory holding {version}.onnx files; empty means use the copy bundled in the JAR. */
+    public static String getLandmarkModelDir() {
+        String value = dotenv.get("LANDMARK_MODEL_DIR");
+        return value == null ? "" : value.trim();
+    }
+
+    public static int getLandmarkWarmupRuns() {
+        return getInt("LANDMARK_WARMUP_RUNS", 3);
+    }
+
+    /** Comma-separated model versions loaded at startup; the first one is the default. */
+    public static List<String> getLandmarkModelVersions() {
+        String value = dotenv.get("LANDMARK_MODEL_VERSIONS");
+        if (value == null || value.isBlank()) {
+            return List.of("landmark_resnet18_v2");
+        }
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .distinct()
+                .toList();
+    }
+
+    public static String getLandmarkCandidateVersion() {
+        String value = dotenv.get("LANDMARK_CANDIDATE_VERSION");
+        return value == null ? "" : value.trim();
+    }
+
+    public static int getLandmarkCandidatePercent() {
+        return getInt("LANDMARK_CANDIDATE_PERCENT", 0);
+    }
+
+    /** Shared secret for the model management endpoints; empty disables them. */
+    public static String getLandmarkAdminToken() {
+        String value = dotenv.get("LANDMARK_ADMIN_TOKEN");
+        return value == null ? "" : value.trim();
+    }
+
+    /** Unix socket of an out-of-process landmark worker; empty runs inference inside this JVM. */
+    public static String getLandmarkWorkerSocket() {
+        String value = dotenv.get("LANDMARK_WORKER_SOCKET");
+        return value == null ? "" : value.trim();
+    }
+
+    public static int getLandmarkWorkerConnections() {
+        return Math.max(1, getInt("LANDMARK_WORKER_CONNECTIONS", 8));
+    }
+
+    /**
+     * Connections the worker serves at once. The default leaves room for the API to
+     * reconnect while the worker finishes requests on connections it closed at their deadline.
+     */
+    public static int getLandmarkWorkerMaxConnections() {
+        return Math.max(1, getInt("LANDMARK_WORKER_MAX_CONNECTIONS", 2 * getLandmarkWorkerConnections()));
+    }
+
+    /** Threads one ORT session may use for a single operator; by default the cores are split across the predictors. */
+    public static int getOrtIntraOpThreads() {
+        int perPredictor = Runtime.getRuntime().availableProcessors() / getLandmarkPredictorPoolSize();
+        return Math.max(1, getInt("LANDMARK_ORT_INTRA_OP_THREADS", Math.max(1, perPredictor)));
+    }
+
+    public static int getOrtInterOpThreads() {
+        return Math.max(1, getInt("LANDMARK_ORT_INTER_OP_THREADS", 1));
+    }
+
+    /** NO_OPT, BASIC_OPT, EXTENDED_OPT or ALL_OPT. */
+    public static String getOrtOptLevel() {
+        String value = dotenv.get("LANDMARK_ORT_OPT_LEVEL");
+        return value == null || value.isBlank() ? "ALL_OPT" : value.trim().toUpperCase();
+    }
+
+    /** SEQUENTIAL or PARALLEL. */
+    public static String getOrtExecutionMode() {
+        String value = dotenv.get("LANDMARK_ORT_EXECUTION_MODE");
+        return value == null || value.isBlank() ? "SEQUENTIAL" : value.trim().toUpperCase();
+    }
+
+    public static boolean isOrtCpuArenaEnabled() {
+        return !"false".equalsIgnoreCase(dotenv.get("LANDMARK_ORT_CPU_ARENA"));
+    }
+
+    public static boolean isOrtMemoryPatternEnabled() {
+        return !"false".equalsIgnoreCase(dotenv.get("LANDMARK_ORT_MEMORY_PATTERN"));
+    }
+
+    /** Where optimized graphs are kept between startups; "off" disables the cache. */
+    public static String getOrtCacheDir() {
+        String value = dotenv.get("LANDMARK_ORT_CACHE_DIR");
+        if (value == null || value.isEmpty()) {
+            return System.getProperty("java.io.tmpdir") + "/journey-genie-ort";
+        }
+        return value.trim();
+    }
+
+    public static int getGeocodeCacheSize() {
+        return getInt("GEOCODE_CACHE_SIZE", 10000);
+    }
+
+    public static int getGeocodeCacheTtlHours() {
+        return Math.max(1, getInt("GEOCODE_CACHE_TTL_HOURS", 7 * 24));
+    }
+
+    /** How long past its TTL a geocode may still be served while it is looked up again. */
+    public static int getGeocodeMaxStaleHours() {
+        return Math.max(0, getInt("GEOCODE_MAX_STALE_HOURS", 7 * 24));
+    }
+
+    /** How long a name the provider did not find stays cached as "not found". */
+    public static int getGeocodeNegativeTtlMinutes() {
+        return Math.max(1, getInt("GEOCODE_NEGATIVE_TTL_MINUTES", 60));
+    }
+
+    /** Grid cells whose daily forecasts are kept in memory. */
+    public static int getWeatherCacheCells() {
+        return Math.max(1, getInt("WEATHER_CACHE_CELLS", 2000));
+    }
+
+    /** How often the forecast provider publishes new model runs; cached days expire on these boundaries. */
+    public static int getWeatherModelUpdateHours() {
+        return Math.max(1, getInt("WEATHER_MODEL_UPDATE_HOURS", 3));
+    }
+
+    /** Stale forecast days are served (and refreshed in the background) for at most this long past their run. */
+    public static int getWeatherMaxStaleHours() {
+        return Math.max(0, getInt("WEATHER_MAX_STALE_HOURS", 6));
+    }
+
+    /** Longest a user request waits on Open-Meteo or OSRM. */
+    public static int getUpstreamTimeoutMs() {
+        return Math.max(500, getInt("UPSTREAM_TIMEOUT_MS", 4000));
+    }
+
+    /** Budget for a whole /api/route request: geocodes plus the routing call. */
+    public static int getRouteDeadlineMs() {
+        return Math.max(1000, getInt("ROUTE_DEADLINE_MS", 8000));
+    }
+
+    /** Memory budget for cached routes, in megabytes. */
+    public static int getRouteCacheMb() {
+        return Math.max(1, getInt("ROUTE_CACHE_MB", 64));
+    }
+
+    /** Roads change slowly, so a cached route is considered fresh for a week by default. */
+    public static int getRouteCacheTtlHours() {
+        return Math.max(1, getInt("ROUTE_CACHE_TTL_HOURS", 7 * 24));
+    }
+
+    /** How long past its TTL a route may still be served while it is fetched again. */
+    public static int getRouteMaxStaleHours() {
+        return Math.max(0, getInt("ROUTE_MAX_STALE_HOURS", 7 * 24));
+    }
+
+    /** Cached origin/destination pairs of the distance matrix, about 150 bytes each. */
+    public static int getDistanceCacheCells() {
+        return Math.max(100, getInt("DISTANCE_CACHE_CELLS", 200000));
+    }
+
+    /** GeoNames dump (geoname table, e.g. cities15000.txt) for the offline gazetteer; empty disables it. */
+    public static String getGazetteerFile() {
+        String value = dotenv.get("GAZETTEER_FILE");
+        return value == null ? "" : value.trim();
+    }
+
+    /** Compiled gazetteer index; defaults to the dump path with ".idx" appended. */
+    public static String getGazetteerIndex() {
+        String value = dotenv.get("GAZETTEER_INDEX");
+        if (value == null || value.isEmpty()) {
+            String dump = getGazetteerFile();
+            return dump.isEmpty() ? "" : dump + ".idx";
+        }
+        return value.trim();
+    }
+
+    private static int getInt(String key, int defaultValue) {
+        String value = dotenv.get(key);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid " + key + " value, defaulting to " + defaultValue);
+            return defaultValue;
+        }
+    }
 }
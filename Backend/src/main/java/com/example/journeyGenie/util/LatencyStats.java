@@ -0,0 +1,86 @@
+package com.example.journeyGenie.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency recorder with a log-scale histogram (4 buckets per power
+ * of two, ~19% resolution) so percentiles can be reported without keeping samples.
+ */
+public class LatencyStats {
+
+    private static final int SUB_BUCKETS = 4;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(64 * SUB_BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        buckets.incrementAndGet(bucketOf(nanos));
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /** Records the time elapsed since startNanos (from System.nanoTime()). */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public double meanMillis() {
+        long n = count.sum();
+        return n == 0 ? 0 : totalNanos.sum() / (double) n / 1_000_000.0;
+    }
+
+    /** Upper bound of the bucket holding the given percentile (0-100), in milliseconds. */
+    public double percentileMillis(double percentile) {
+        long n = count.sum();
+        if (n == 0) return 0;
+        long rank = (long) Math.ceil(n * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            seen += buckets.get(i);
+            if (seen >= Math.max(rank, 1)) {
+                return Math.min(upperBoundOf(i), maxNanos.get()) / 1_000_000.0;
+            }
+        }
+        return maxNanos.get() / 1_000_000.0;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("count", count());
+        out.put("meanMs", round(meanMillis()));
+        out.put("p50Ms", round(percentileMillis(50)));
+        out.put("p99Ms", round(percentileMillis(99)));
+        out.put("maxMs", round(maxNanos.get() / 1_000_000.0));
+        return out;
+    }
+
+    private static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKETS) return (int) nanos;
+        int log2 = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (log2 - 2)) & (SUB_BUCKETS - 1);
+        return log2 * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBoundOf(int bucket) {
+        int log2 = bucket / SUB_BUCKETS;
+        if (log2 < 2) return bucket;
+        int sub = bucket % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << (log2 - 2)) - 1;
+    }
+
+    private static double round(double ms) {
+        return Math.round(ms * 1000.0) / 1000.0;
+    }
+}
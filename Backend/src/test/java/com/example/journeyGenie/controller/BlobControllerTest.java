@@ -0,0 +1,122 @@
+package com.example.journeyGenie.controller;
+
+import com.example.journeyGenie.storage.LocalBlobStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlobControllerTest {
+
+    @TempDir
+    Path dir;
+
+    private final BlobController controller = new BlobController();
+    private final byte[] data = new byte[1000];
+
+    @BeforeEach
+    void setUp() throws Exception {
+        for (int i = 0; i < data.length; i++) data[i] = (byte) (i * 7);
+        LocalBlobStore store = new LocalBlobStore(dir.resolve("blobs"), "");
+        store.put("photos/a b.jpg", new ByteArrayInputStream(data), data.length, "image/jpeg");
+        store.put("empty.txt", new ByteArrayInputStream(new byte[0]), 0, "text/plain");
+        Files.writeString(dir.resolve("secret.txt"), "not a blob");
+        ReflectionTestUtils.setField(controller, "blobStore", store);
+    }
+
+    @Test
+    void servesTheWholeObject() throws Exception {
+        MockHttpServletResponse response = get("/blobs/photos/a%20b.jpg", null);
+        assertEquals(200, response.getStatus());
+        assertEquals("image/jpeg", response.getContentType());
+        assertEquals("bytes", response.getHeader("Accept-Ranges"));
+        assertEquals(1000, response.getContentLengthLong());
+        assertArrayEquals(data, response.getContentAsByteArray());
+    }
+
+    @Test
+    void servesSatisfiableRanges() throws Exception {
+        assertRange("bytes=0-99", 0, 99);
+        assertRange("bytes=990-", 990, 999);
+        assertRange("bytes=-10", 990, 999);
+        assertRange("bytes=-5000", 0, 999);          // suffix longer than the object
+        assertRange("bytes=500-5000", 500, 999);     // end past the object is clamped
+        assertRange("bytes=999-999", 999, 999);
+        assertRange("bytes= 10-19", 10, 19);
+    }
+
+    @Test
+    void rejectsUnsatisfiableRanges() throws Exception {
+        for (String range : new String[]{"bytes=1000-", "bytes=1000-1005", "bytes=20-10", "bytes=-0",
+                "bytes=-", "bytes=abc", "bytes=5--3", "bytes=x-10"}) {
+            MockHttpServletResponse response = get("/blobs/photos/a%20b.jpg", range);
+            assertEquals(416, response.getStatus(), range);
+            assertEquals("bytes */1000", response.getHeader("Content-Range"), range);
+        }
+        assertEquals(416, get("/blobs/empty.txt", "bytes=0-").getStatus());
+    }
+
+    @Test
+    void ignoresRangesItDoesNotSupport() throws Exception {
+        for (String range : new String[]{"bytes=0-1,5-6", "items=0-1"}) {
+            MockHttpServletResponse response = get("/blobs/photos/a%20b.jpg", range);
+            assertEquals(200, response.getStatus(), range);
+            assertNull(response.getHeader("Content-Range"));
+            assertArrayEquals(data, response.getContentAsByteArray());
+        }
+        assertEquals(0, get("/blobs/empty.txt", null).getContentAsByteArray().length);
+    }
+
+    @Test
+    void notFoundOutsideTheStore() throws Exception {
+        assertEquals(404, get("/blobs/missing.jpg", null).getStatus());
+        assertEquals(404, get("/blobs/photos", null).getStatus());
+        assertEquals(404, get("/blobs/../secret.txt", null).getStatus());
+        assertEquals(404, get("/blobs/%2E%2E/secret.txt", null).getStatus());
+        assertEquals(404, get("/blobs/", null).getStatus());
+    }
+
+    @Test
+    void handsOffToSendfileWhenAvailable() throws Exception {
+        MockHttpServletRequest request = request("/blobs/photos/a%20b.jpg", "bytes=100-199");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.serve(request, response);
+
+        assertEquals(206, response.getStatus());
+        assertEquals(dir.resolve("blobs/photos/a b.jpg").toAbsolutePath().toString(),
+                request.getAttribute("org.apache.tomcat.sendfile.filename"));
+        assertEquals(100L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals(200L, request.getAttribute("org.apache.tomcat.sendfile.end"));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    private void assertRange(String range, int start, int end) throws Exception {
+        MockHttpServletResponse response = get("/blobs/photos/a%20b.jpg", range);
+        assertEquals(206, response.getStatus(), range);
+        assertEquals("bytes " + start + "-" + end + "/1000", response.getHeader("Content-Range"), range);
+        assertEquals(end - start + 1, response.getContentLengthLong(), range);
+        assertArrayEquals(Arrays.copyOfRange(data, start, end + 1), response.getContentAsByteArray(), range);
+    }
+
+    private MockHttpServletResponse get(String uri, String range) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.serve(request(uri, range), response);
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String uri, String range) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        if (range != null) request.addHeader("Range", range);
+        return request;
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.journeyGenie.ml;
+
+import ai.djl.modality.cv.Image;
+import ai.djl.modality.cv.ImageFactory;
+import ai.djl.ndarray.NDArray;
+import ai.djl.ndarray.NDManager;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.nio.FloatBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImagePreprocessorTest {
+
+    private static final int SIZE = 224;   // the model's input resolution
+    private static final float[] MEAN = {0.485f, 0.456f, 0.406f};
+    private static final float[] STD = {0.229f, 0.224f, 0.225f};
+
+    private static NDManager manager;
+    private final ImagePreprocessor preprocessor = new ImagePreprocessor(SIZE, SIZE, MEAN, STD);
+
+    @BeforeAll
+    static void open() {
+        // only Image.toNDArray is needed, which OnnxRuntime does itself; don't pull in PyTorch natives
+        System.setProperty("ai.djl.onnx.disable_alternative", "true");
+        manager = NDManager.newBaseManager("OnnxRuntime");
+    }
+
+    @AfterAll
+    static void close() {
+        manager.close();
+    }
+
+    @Test
+    void threeByteBgr() {
+        assertMatchesOldPath(BufferedImage.TYPE_3BYTE_BGR);
+    }
+
+    @Test
+    void fourByteAbgr() {
+        assertMatchesOldPath(BufferedImage.TYPE_4BYTE_ABGR);
+    }
+
+    @Test
+    void byteGray() {
+        assertMatchesOldPath(BufferedImage.TYPE_BYTE_GRAY);
+    }
+
+    @Test
+    void intRgb() {
+        assertMatchesOldPath(BufferedImage.TYPE_INT_RGB);
+    }
+
+    @Test
+    void intArgb() {
+        assertMatchesOldPath(BufferedImage.TYPE_INT_ARGB);
+    }
+
+    @Test
+    void genericColorModel() {
+        assertMatchesOldPath(BufferedImage.TYPE_BYTE_INDEXED);
+        assertMatchesOldPath(BufferedImage.TYPE_USHORT_565_RGB);
+        assertMatchesOldPath(BufferedImage.TYPE_INT_BGR);
+    }
+
+    @Test
+    void subimageFallsBackToGeneric() {
+        BufferedImage parent = random(BufferedImage.TYPE_3BYTE_BGR, 400, 300, new Random(13));
+        assertMatches(parent.getSubimage(37, 21, 250, 190), "3BYTE_BGR subimage");
+    }
+
+    @Test
+    void writesAtOffset() {
+        BufferedImage img = random(BufferedImage.TYPE_INT_RGB, 300, 200, new Random(19));
+        int n = preprocessor.imageSize();
+        FloatBuffer dst = FloatBuffer.allocate(2 * n);
+        preprocessor.write(img, dst, n);
+        for (int i = 0; i < n; i++) assertEquals(0f, dst.get(i));
+        float[] expected = oldPath(img);
+        for (int i = 0; i < n; i++) assertEquals(expected[i], dst.get(n + i), 1e-3f);
+    }
+
+    /** Downscaled, upscaled, non-square and already at input size. */
+    private void assertMatchesOldPath(int type) {
+        Random random = new Random(type);
+        int[][] sizes = {{640, 480}, {301, 517}, {100, 60}, {SIZE, SIZE}, {1, 1}};
+        for (int[] size : sizes) {
+            assertMatches(random(type, size[0], size[1], random), "type " + type + " " + size[0] + "x" + size[1]);
+        }
+    }
+
+    private void assertMatches(BufferedImage img, String what) {
+        FloatBuffer dst = FloatBuffer.allocate(preprocessor.imageSize());
+        preprocessor.write(img, dst, 0);
+        float[] expected = oldPath(img);
+
+        float worst = 0;
+        for (int i = 0; i < expected.length; i++) worst = Math.max(worst, Math.abs(expected[i] - dst.get(i)));
+        assertTrue(worst <= 1e-3f, what + " deviates by " + worst);
+    }
+
+    /**
+     * The previous translator: Image.toNDArray(COLOR), then NDImageUtils.resize, toTensor and normalize.
+     * The OnnxRuntime engine has no resize kernel, so after DJL decodes the pixels the remaining
+     * steps are done here with the same semantics (bilinear, half-pixel centers, edge-clamped).
+     */
+    private static float[] oldPath(BufferedImage img) {
+        int srcW = img.getWidth(), srcH = img.getHeight();
+        int[] hwc;
+        try (NDManager scope = manager.newSubManager()) {
+            NDArray array = ImageFactory.getInstance().fromImage(img).toNDArray(scope, Image.Flag.COLOR);
+            assertArrayEquals(new long[]{srcH, srcW, 3}, array.getShape().getShape());
+            byte[] bytes = array.toByteArray();
+            hwc = new int[bytes.length];
+            for (int i = 0; i < bytes.length; i++) hwc[i] = bytes[i] & 0xFF;
+        }
+
+        float[] out = new float[3 * SIZE * SIZE];
+        double sx = srcW / (double) SIZE, sy = srcH / (double) SIZE;
+        for (int y = 0; y < SIZE; y++) {
+            double fy = Math.max(0, (y + 0.5) * sy - 0.5);
+            int y0 = Math.min((int) fy, srcH - 1), y1 = Math.min(y0 + 1, srcH - 1);
+            double wy = fy - (int) fy;
+            for (int x = 0; x < SIZE; x++) {
+                double fx = Math.max(0, (x + 0.5) * sx - 0.5);
+                int x0 = Math.min((int) fx, srcW - 1), x1 = Math.min(x0 + 1, srcW - 1);
+                double wx = fx - (int) fx;
+                for (int c = 0; c < 3; c++) {
+                    double top = hwc[(y0 * srcW + x0) * 3 + c] * (1 - wx) + hwc[(y0 * srcW + x1) * 3 + c] * wx;
+                    double bot = hwc[(y1 * srcW + x0) * 3 + c] * (1 - wx) + hwc[(y1 * srcW + x1) * 3 + c] * wx;
+                    double v = (top * (1 - wy) + bot * wy) / 255.0;
+                    out[c * SIZE * SIZE + y * SIZE + x] = (float) ((v - MEAN[c]) / STD[c]);
+                }
+            }
+        }
+        return out;
+    }
+
+    /** Smooth gradients with noise, so both flat areas and sharp edges get sampled. */
+    private static BufferedImage random(int type, int w, int h, Random random) {
+        BufferedImage img = new BufferedImage(w, h, type);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int r = (x * 255 / w + random.nextInt(40)) & 0xFF;
+                int g = (y * 255 / h + random.nextInt(40)) & 0xFF;
+                int b = random.nextInt(256);
+                int a = random.nextInt(256);
+                img.setRGB(x, y, a << 24 | r << 16 | g << 8 | b);
+            }
+        }
+        return img;
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.journeyGenie.ml;
+
+import com.example.journeyGenie.util.AppEnv;
+import com.example.journeyGenie.util.LatencyStats;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Replays a labelled image set through one or more ONNX exports of the landmark
+ * model (typically FP32 and its dynamically quantized INT8 variant) and prints
+ * top-1/top-5 accuracy, p50/p99 latency, throughput and resident memory for each.
+ *
+ * The models run through the same LandmarkModel path as production (predictor
+ * pool, batcher, preprocessing), so the LANDMARK_* pool and batch settings apply.
+ *
+ * Image set layout: {imagesDir}/{classId}/*.jpg. It is an offline tool kept with
+ * the tests so it stays out of the application jar. Usage:
+ *
+ *   mvn test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.example.journeyGenie.ml.LandmarkBenchmark \
+ *       -Dexec.args="images/ models/landmark_resnet18_v2.onnx models/landmark_resnet18_v2_int8.onnx"
+ *
+ * The version (and so the label map) is taken from the file name. Run one model
+ * per process for a clean RSS figure; with several, the later ones include
+ * whatever the earlier ones left behind in native memory.
+ */
+public class LandmarkBenchmark {
+
+    private record Sample(BufferedImage image, int label) {}
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: LandmarkBenchmark <imagesDir> <model.onnx> [<model.onnx> ...]");
+            System.exit(2);
+        }
+
+        List<Sample> samples = loadSamples(Path.of(args[0]));
+        if (samples.isEmpty()) {
+            System.err.println("No labelled images found under " + args[0]);
+            System.exit(2);
+        }
+        System.out.println("Images: " + samples.size());
+        System.out.printf("%-32s %7s %7s %9s %9s %9s %9s %9s%n",
+                "model", "top1%", "top5%", "p50 ms", "p99 ms", "img/s", "load MB", "run MB");
+
+        for (int i = 1; i < args.length; i++) {
+            run(Path.of(args[i]), samples);
+        }
+    }
+
+    private static void run(Path modelPath, List<Sample> samples) throws Exception {
+        String version = modelPath.getFileName().toString().replaceFirst("\\.onnx$", "");
+        long rssBefore = rssBytes();
+
+        try (LandmarkModel model = LandmarkModel.load(version, modelPath, LandmarkMapping.forVersion(version))) {
+            model.warmUp(AppEnv.getLandmarkWarmupRuns());
+            long rssLoaded = rssBytes();
+
+            LatencyStats latency = new LatencyStats();
+            LongAdder top1 = new LongAdder();
+            LongAdder top5 = new LongAdder();
+            AtomicInteger next = new AtomicInteger();
+            int clients = AppEnv.getLandmarkPredictorPoolSize() * AppEnv.getLandmarkMaxBatch();
+            long timeoutMs = Math.max(60_000, AppEnv.getLandmarkPredictTimeoutMs());
+
+            // enough concurrent clients to keep every predictor's batches full
+            ExecutorService pool = Executors.newFixedThreadPool(clients);
+            long start = System.nanoTime();
+            try {
+                List<Future<?>> workers = new ArrayList<>();
+                for (int c = 0; c < clients; c++) {
+                    workers.add(pool.submit(() -> {
+                        int idx;
+                        while ((idx = next.getAndIncrement()) < samples.size()) {
+                            Sample s = samples.get(idx);
+                            long t0 = System.nanoTime();
+                            float[] probs = model.infer(s.image(), timeoutMs);
+                            latency.recordSince(t0);
+                            int[] top = TopK.select(probs, 5);
+                            if (top[0] == s.label()) top1.increment();
+                            for (int id : top) {
+                                if (id == s.label()) {
+                                    top5.increment();
+                                    break;
+                                }
+                            }
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> w : workers) w.get();
+            } finally {
+                pool.shutdownNow();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long rssRun = rssBytes();
+
+            int n = samples.size();
+            System.out.printf("%-32s %7.2f %7.2f %9.2f %9.2f %9.1f %9.1f %9.1f%n",
+                    version,
+                    100.0 * top1.sum() / n,
+                    100.0 * top5.sum() / n,
+                    latency.percentileMillis(50),
+                    latency.percentileMillis(99),
+                    n / seconds,
+                    (rssLoaded - rssBefore) / 1048576.0,
+                    rssRun / 1048576.0);
+        }
+    }
+
+    /** Decodes every {classId}/image up front so only inference is timed. */
+    private static List<Sample> loadSamples(Path root) throws IOException {
+        LandmarkImageDecoder decoder = new LandmarkImageDecoder();
+        List<Sample> samples = new ArrayList<>();
+        try (Stream<Path> dirs = Files.list(root)) {
+            for (Path dir : dirs.filter(Files::isDirectory).sorted().toList()) {
+                int label;
+                try {
+                    label = Integer.parseInt(dir.getFileName().toString());
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                try (Stream<Path> files = Files.list(dir)) {
+                    for (Path file : files.filter(Files::isRegularFile).sorted().toList()) {
+                        BufferedImage img;
+                        try (InputStream in = Files.newInputStream(file)) {
+                            img = decoder.decode(in, Files.size(file), LandmarkInferenceService.INPUT_SIZE);
+                        }
+                        if (img != null) samples.add(new Sample(img, label));
+                    }
+                }
+            }
+        }
+        return samples;
+    }
+
+    /** Resident set size from /proc (Linux); falls back to the used Java heap elsewhere. */
+    private static long rssBytes() {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("\\D+", "")) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException ignored) {
+        }
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.journeyGenie.ml;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Converts a label CSV into the memory-mappable .labels format that
+ * LandmarkMapping.forVersion prefers over the CSV. It is an offline tool kept
+ * with the tests so it stays out of the application jar. Usage:
+ *
+ *   mvn test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.example.journeyGenie.ml.LandmarkLabelsTool \
+ *       -Dexec.args="train_label_to_category_v2.csv landmark_resnet18_v2.labels"
+ */
+public class LandmarkLabelsTool {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: LandmarkLabelsTool <labels.csv> <out.labels>");
+            System.exit(2);
+        }
+        byte[] table;
+        try (Reader reader = Files.newBufferedReader(Path.of(args[0]), StandardCharsets.UTF_8)) {
+            table = LandmarkMapping.build(reader);
+        }
+        Path out = Path.of(args[1]);
+        Path tmp = out.resolveSibling(out.getFileName() + ".tmp");
+        Files.write(tmp, table);
+        Files.move(tmp, out, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        System.out.println("Wrote " + LandmarkMapping.fromBinary(out).size() + " labels to " + out);
+    }
+}
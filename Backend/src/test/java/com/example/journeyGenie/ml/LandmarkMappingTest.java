@@ -0,0 +1,83 @@
+package com.example.journeyGenie.ml;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LandmarkMappingTest {
+
+    private static final String CSV = """
+            landmark_id,category
+            0,http://commons.wikimedia.org/wiki/Category:Angkor_Wat
+            1,http://commons.wikimedia.org/wiki/Category:Isa_Khan_Niyazi%27s_tomb
+            3,http://commons.wikimedia.org/wiki/Category:S%C3%A3o_Paulo_Cathedral
+            4,https://example.org/landmarks/Big+Ben
+            5,"http://commons.wikimedia.org/wiki/Category:Bridge,_Old"
+            7,http://commons.wikimedia.org/wiki/Category:100%_broken%zz
+            """;
+
+    @Test
+    void csvAndMappedTableAgree(@TempDir Path dir) throws Exception {
+        Path csv = dir.resolve("labels.csv");
+        Path labels = dir.resolve("labels.labels");
+        Files.writeString(csv, CSV);
+        LandmarkLabelsTool.main(new String[]{csv.toString(), labels.toString()});
+
+        LandmarkMapping parsed = LandmarkMapping.fromCsv(new StringReader(CSV));
+        LandmarkMapping mapped = LandmarkMapping.fromBinary(labels);
+        assertEquals(6, parsed.size());
+        assertEquals(parsed.size(), mapped.size());
+        for (int id = -1; id <= 9; id++) {
+            assertEquals(parsed.getCategory(id), mapped.getCategory(id), "category " + id);
+            assertEquals(parsed.getName(id), mapped.getName(id), "name " + id);
+        }
+    }
+
+    @Test
+    void namesAndLinks() throws Exception {
+        LandmarkMapping mapping = LandmarkMapping.fromCsv(new StringReader(CSV));
+
+        assertEquals("http://commons.wikimedia.org/wiki/Category:Angkor_Wat", mapping.getCategory(0));
+        assertEquals("Angkor Wat", mapping.getName(0));
+        assertEquals("Isa Khan Niyazi's tomb", mapping.getName(1));
+        assertEquals("São Paulo Cathedral", mapping.getName(3));
+        assertEquals("https://example.org/landmarks/Big+Ben", mapping.getCategory(4));
+        assertEquals("https://example.org/landmarks/Big+Ben", mapping.getName(4));
+        assertEquals("Bridge, Old", mapping.getName(5));
+        assertEquals("100% broken%zz", mapping.getName(7));
+
+        // gaps and out-of-range ids
+        assertEquals("Unknown", mapping.getName(2));
+        assertEquals("Unknown", mapping.getCategory(6));
+        assertEquals("Unknown", mapping.getName(8));
+        assertEquals("Unknown", mapping.getName(-1));
+    }
+
+    @Test
+    void manyPrefixes() throws Exception {
+        // more distinct prefixes than fit in a byte fall back to storing whole links
+        StringBuilder csv = new StringBuilder("landmark_id,category\n");
+        for (int id = 0; id < 300; id++) {
+            csv.append(id).append(",https://site").append(id).append(".example/wiki/Category:Place_").append(id).append('\n');
+        }
+        LandmarkMapping mapping = LandmarkMapping.fromCsv(new StringReader(csv.toString()));
+        assertEquals(300, mapping.size());
+        for (int id = 0; id < 300; id++) {
+            assertEquals("https://site" + id + ".example/wiki/Category:Place_" + id, mapping.getCategory(id));
+            assertEquals("Place " + id, mapping.getName(id));
+        }
+    }
+
+    @Test
+    void rejectsOtherFiles(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("bad.labels");
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16});
+        assertThrows(IOException.class, () -> LandmarkMapping.fromBinary(file));
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.journeyGenie.ml;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LandmarkProtocolTest {
+
+    @Test
+    void stringsRoundTrip() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        LandmarkProtocol.writeString(out, "landmark_resnet18_v2");
+        LandmarkProtocol.writeString(out, "Chichén Itzá – 奇琴伊察");
+        LandmarkProtocol.writeString(out, null);
+        LandmarkProtocol.writeString(out, "");
+
+        DataInputStream in = input(bytes);
+        assertEquals("landmark_resnet18_v2", LandmarkProtocol.readString(in));
+        assertEquals("Chichén Itzá – 奇琴伊察", LandmarkProtocol.readString(in));
+        assertEquals("", LandmarkProtocol.readString(in));
+        assertEquals("", LandmarkProtocol.readString(in));
+        assertEquals(-1, in.read());
+    }
+
+    @Test
+    void imagesRoundTripAsBgr() throws Exception {
+        Random random = new Random(31);
+        BufferedImage bgr = random(BufferedImage.TYPE_3BYTE_BGR, 37, 23, random);
+        BufferedImage rgb = random(BufferedImage.TYPE_INT_RGB, 16, 40, random);
+        BufferedImage gray = random(BufferedImage.TYPE_BYTE_GRAY, 9, 9, random);
+        BufferedImage parent = random(BufferedImage.TYPE_3BYTE_BGR, 64, 48, random);
+        BufferedImage sub = parent.getSubimage(5, 7, 30, 20);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (BufferedImage img : new BufferedImage[]{bgr, rgb, gray, sub}) {
+            LandmarkProtocol.writeImage(out, img);
+        }
+        // header plus exactly three bytes per pixel
+        assertEquals(4 * 8 + 3 * (37 * 23 + 16 * 40 + 9 * 9 + 30 * 20), bytes.size());
+
+        DataInputStream in = input(bytes);
+        for (BufferedImage img : new BufferedImage[]{bgr, rgb, gray, sub}) {
+            BufferedImage read = LandmarkProtocol.readImage(in);
+            assertEquals(BufferedImage.TYPE_3BYTE_BGR, read.getType());
+            assertEquals(img.getWidth(), read.getWidth());
+            assertEquals(img.getHeight(), read.getHeight());
+            for (int y = 0; y < img.getHeight(); y++) {
+                for (int x = 0; x < img.getWidth(); x++) {
+                    assertEquals(rgb(img, x, y), read.getRGB(x, y) & 0xFFFFFF, "type " + img.getType() + " pixel " + x + "," + y);
+                }
+            }
+        }
+        assertEquals(-1, in.read());
+    }
+
+    @Test
+    void rejectsBadFrames() throws Exception {
+        assertThrows(IOException.class, () -> LandmarkProtocol.readImage(ints(0, 10)));
+        assertThrows(IOException.class, () -> LandmarkProtocol.readImage(ints(-3, 10)));
+        assertThrows(IOException.class, () -> LandmarkProtocol.readImage(ints(65536, 65536)));
+        assertThrows(IOException.class, () -> LandmarkProtocol.readString(ints(-1)));
+        assertThrows(IOException.class, () -> LandmarkProtocol.readString(ints(Integer.MAX_VALUE)));
+        // truncated pixels
+        assertThrows(IOException.class, () -> LandmarkProtocol.readImage(ints(4, 4, 0)));
+    }
+
+    /** Gray goes over the wire as its raw level, as ImagePreprocessor reads it in-process; getRGB would gamma-convert it. */
+    private static int rgb(BufferedImage img, int x, int y) {
+        if (img.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+            return img.getRaster().getSample(x, y, 0) * 0x010101;
+        }
+        return img.getRGB(x, y) & 0xFFFFFF;
+    }
+
+    private static DataInputStream ints(int... values) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (int v : values) out.writeInt(v);
+        return input(bytes);
+    }
+
+    private static DataInputStream input(ByteArrayOutputStream bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    private static BufferedImage random(int type, int w, int h, Random random) {
+        BufferedImage img = new BufferedImage(w, h, type);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) img.setRGB(x, y, random.nextInt(1 << 24));
+        }
+        return img;
+    }
+}
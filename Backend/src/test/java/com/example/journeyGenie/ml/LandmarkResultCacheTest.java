@@ -0,0 +1,45 @@
+package com.example.journeyGenie.ml;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LandmarkResultCacheTest {
+
+    @Test
+    void fingerprintIsSha256() throws Exception {
+        // FIPS 180-2 test vectors
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+                LandmarkResultCache.fingerprint(new ByteArrayInputStream("abc".getBytes(StandardCharsets.US_ASCII))));
+        assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855",
+                LandmarkResultCache.fingerprint(new ByteArrayInputStream(new byte[0])));
+    }
+
+    @Test
+    void fingerprintCoversEveryByte() throws Exception {
+        byte[] photo = new byte[200_000];   // spans several read chunks
+        new Random(1).nextBytes(photo);
+        String original = LandmarkResultCache.fingerprint(new ByteArrayInputStream(photo));
+        assertEquals(original, LandmarkResultCache.fingerprint(new ByteArrayInputStream(photo.clone())));
+
+        photo[photo.length - 1] ^= 1;
+        assertNotEquals(original, LandmarkResultCache.fingerprint(new ByteArrayInputStream(photo)));
+    }
+
+    @Test
+    void otherModelVersionIsAMiss() {
+        LandmarkResultCache cache = new LandmarkResultCache();
+        LandmarkResult result = new LandmarkResult("landmark_resnet18_v2", new int[]{7}, new float[]{0.9f});
+        cache.put("key", result);
+
+        assertSame(result, cache.get("key", "landmark_resnet18_v2"));
+        assertNull(cache.get("key", "landmark_resnet18_v3"));
+        assertNull(cache.get("other", "landmark_resnet18_v2"));
+        assertEquals(1L, cache.stats().get("hits"));
+        assertEquals(2L, cache.stats().get("misses"));
+    }
+}
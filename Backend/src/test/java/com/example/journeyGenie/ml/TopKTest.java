@@ -0,0 +1,53 @@
+package com.example.journeyGenie.ml;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopKTest {
+
+    @Test
+    void highestFirst() {
+        float[] scores = {0.1f, 0.7f, 0.05f, 0.9f, 0.3f};
+        assertArrayEquals(new int[]{3, 1, 4}, TopK.select(scores, 3));
+        assertArrayEquals(new int[]{3}, TopK.select(scores, 1));
+    }
+
+    @Test
+    void tiesRankLowerIndexFirst() {
+        float[] scores = {0.2f, 0.5f, 0.5f, 0.1f, 0.5f};
+        assertArrayEquals(new int[]{1, 2, 4}, TopK.select(scores, 3));
+        assertArrayEquals(new int[]{1, 2}, TopK.select(scores, 2));
+        assertArrayEquals(new int[]{0, 1, 2}, TopK.select(new float[]{1, 1, 1}, 3));
+    }
+
+    @Test
+    void kLargerThanScores() {
+        assertArrayEquals(new int[]{1, 0}, TopK.select(new float[]{0.4f, 0.6f}, 5));
+        assertArrayEquals(new int[0], TopK.select(new float[0], 3));
+        assertArrayEquals(new int[0], TopK.select(new float[]{1f}, 0));
+    }
+
+    @Test
+    void matchesFullSort() {
+        Random random = new Random(31);
+        for (int round = 0; round < 200; round++) {
+            int n = 1 + random.nextInt(300);
+            float[] scores = new float[n];
+            // few distinct values so ties are frequent
+            for (int i = 0; i < n; i++) scores[i] = random.nextInt(20) / 20f;
+            int k = 1 + random.nextInt(12);
+
+            int[] expected = IntStream.range(0, n).boxed()
+                    .sorted(Comparator.<Integer>comparingDouble(i -> -scores[i]).thenComparingInt(i -> i))
+                    .limit(k)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            assertArrayEquals(expected, TopK.select(scores, k), "n=" + n + " k=" + k);
+        }
+    }
+}
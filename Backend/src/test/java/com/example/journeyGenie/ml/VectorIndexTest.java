@@ -0,0 +1,124 @@
+package com.example.journeyGenie.ml;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VectorIndexTest {
+
+    private static final int DIM = 32;
+
+    @Test
+    void recallAgainstBruteForce() {
+        Random random = new Random(42);
+        float[][] vectors = randomVectors(random, 2000);
+        VectorIndex index = build(vectors);
+
+        int k = 10;
+        int queries = 100;
+        int matched = 0;
+        for (int q = 0; q < queries; q++) {
+            float[] query = randomVector(random);
+            Set<Integer> exact = new HashSet<>();
+            for (int label : bruteForce(vectors, query, k)) exact.add(label);
+
+            VectorIndex.Hits hits = index.search(query, k, 64);
+            assertEquals(k, hits.size());
+            for (int i = 0; i < hits.size(); i++) {
+                if (exact.contains(hits.labels()[i])) matched++;
+                if (i > 0) assertTrue(hits.scores()[i - 1] >= hits.scores()[i], "hits must be sorted");
+            }
+        }
+        double recall = matched / (double) (queries * k);
+        assertTrue(recall >= 0.95, "recall@" + k + " was " + recall);
+    }
+
+    @Test
+    void saveAndLoadGiveTheSameResults(@TempDir Path dir) throws Exception {
+        Random random = new Random(7);
+        VectorIndex index = build(randomVectors(random, 500));
+        Path file = dir.resolve("index.bin");
+        index.save(file);
+        VectorIndex loaded = VectorIndex.load(file);
+
+        assertEquals(index.dim(), loaded.dim());
+        assertEquals(index.size(), loaded.size());
+        for (int q = 0; q < 20; q++) {
+            float[] query = randomVector(random);
+            VectorIndex.Hits before = index.search(query, 5, 32);
+            VectorIndex.Hits after = loaded.search(query, 5, 32);
+            assertArrayEquals(before.labels(), after.labels());
+            assertArrayEquals(before.scores(), after.scores());
+        }
+    }
+
+    @Test
+    void growsAcrossChunkBoundary(@TempDir Path dir) throws Exception {
+        Random random = new Random(3);
+        float[][] vectors = randomVectors(random, 4096 + 200);
+        VectorIndex index = build(vectors);
+        assertEquals(vectors.length, index.size());
+
+        // nodes in the second chunk must be stored and findable by their own vector
+        index.save(dir.resolve("index.bin"));
+        VectorIndex loaded = VectorIndex.load(dir.resolve("index.bin"));
+        for (VectorIndex idx : new VectorIndex[]{index, loaded}) {
+            for (int label : new int[]{0, 4095, 4096, 4097, vectors.length - 1}) {
+                VectorIndex.Hits hits = idx.search(vectors[label], 1, 64);
+                assertEquals(label, hits.labels()[0]);
+                assertEquals(1f, hits.scores()[0], 1e-4f);
+            }
+        }
+    }
+
+    @Test
+    void rejectsWrongDimension() {
+        VectorIndex index = new VectorIndex(DIM, 8, 50);
+        assertThrows(IllegalArgumentException.class, () -> index.add(new float[DIM + 1], 0));
+        assertEquals(0, index.search(new float[DIM], 3, 16).size());
+    }
+
+    private static VectorIndex build(float[][] vectors) {
+        VectorIndex index = new VectorIndex(DIM, 16, 100);
+        for (int i = 0; i < vectors.length; i++) index.add(vectors[i], i);
+        return index;
+    }
+
+    private static int[] bruteForce(float[][] vectors, float[] query, int k) {
+        Integer[] order = new Integer[vectors.length];
+        float[] scores = new float[vectors.length];
+        for (int i = 0; i < vectors.length; i++) {
+            order[i] = i;
+            for (int d = 0; d < DIM; d++) scores[i] += vectors[i][d] * query[d];
+        }
+        Arrays.sort(order, (a, b) -> Float.compare(scores[b], scores[a]));
+        int[] out = new int[k];
+        for (int i = 0; i < k; i++) out[i] = order[i];
+        return out;
+    }
+
+    private static float[][] randomVectors(Random random, int n) {
+        float[][] out = new float[n][];
+        for (int i = 0; i < n; i++) out[i] = randomVector(random);
+        return out;
+    }
+
+    private static float[] randomVector(Random random) {
+        float[] v = new float[DIM];
+        double norm = 0;
+        for (int d = 0; d < DIM; d++) {
+            v[d] = (float) random.nextGaussian();
+            norm += v[d] * v[d];
+        }
+        float inv = (float) (1 / Math.sqrt(norm));
+        for (int d = 0; d < DIM; d++) v[d] *= inv;
+        return v;
+    }
+}
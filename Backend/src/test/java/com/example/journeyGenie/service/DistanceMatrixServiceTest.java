@@ -0,0 +1,121 @@
+package com.example.journeyGenie.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DistanceMatrixServiceTest {
+
+    // three stops in Cox's Bazar, a few km apart
+    private static final double[] A = {21.4272, 91.9702};
+    private static final double[] B = {21.4460, 91.9800};
+    private static final double[] C = {21.3820, 92.0020};
+
+    private final StubService service = new StubService();
+
+    @Test
+    void estimatesEveryCellWhenOsrmFails() throws Exception {
+        service.fail = true;
+        double[][] points = {A, B, C};
+        DistanceMatrixService.Matrix m = service.matrix("walking", points, 1000).get();
+
+        assertEquals(6, m.estimated());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, m.durationsS()[i][i]);
+            assertEquals(0, m.distancesM()[i][i]);
+            for (int j = 0; j < 3; j++) {
+                if (i == j) continue;
+                double km = RouteGeometry.haversineKm(points[i][0], points[i][1], points[j][0], points[j][1]) * 1.3;
+                assertEquals(km * 1000, m.distancesM()[i][j], 1e-6);
+                assertEquals(km / 4.5 * 3600, m.durationsS()[i][j], 1e-6);
+            }
+        }
+        assertEquals(1L, service.stats().get("upstreamErrors"));
+        // estimates are not cached: the next call asks OSRM again
+        service.fail = false;
+        assertEquals(0, service.matrix("walking", points, 1000).get().estimated());
+        assertEquals(2, service.calls.size());
+    }
+
+    @Test
+    void drivingEstimatesUseDrivingSpeed() throws Exception {
+        service.fail = true;
+        DistanceMatrixService.Matrix m = service.matrix("driving", new double[][]{A, C}, 1000).get();
+        assertEquals(m.distancesM()[0][1] / 1000 / 40 * 3600, m.durationsS()[0][1], 1e-6);
+    }
+
+    @Test
+    void cachedCellsSurviveAFailure() throws Exception {
+        DistanceMatrixService.Matrix first = service.matrix("driving", new double[][]{A, B}, 1000).get();
+        assertEquals(0, first.estimated());
+
+        // C is new and OSRM is down: A<->B still comes from the cache, only C's cells are estimated
+        service.fail = true;
+        DistanceMatrixService.Matrix m = service.matrix("driving", new double[][]{A, B, C}, 1000).get();
+        assertEquals(4, m.estimated());
+        assertEquals(service.duration(0, 1), m.durationsS()[0][1]);
+        assertEquals(service.duration(1, 0), m.durationsS()[1][0]);
+        assertTrue(m.durationsS()[0][2] > 0 && m.durationsS()[2][1] > 0);
+    }
+
+    @Test
+    void onlyUncachedRowsAreRequested() throws Exception {
+        service.matrix("driving", new double[][]{A, B}, 1000).get();
+        assertArrayEquals(new int[]{0, 1}, service.calls.get(0));
+
+        // everything cached: no call
+        DistanceMatrixService.Matrix cached = service.matrix("driving", new double[][]{B, A}, 1000).get();
+        assertEquals(1, service.calls.size());
+        assertEquals(service.duration(1, 0), cached.durationsS()[0][1]);
+
+        // a profile is its own cache
+        service.matrix("cycling", new double[][]{A, B}, 1000).get();
+        assertEquals(2, service.calls.size());
+    }
+
+    @Test
+    void pointsInTheSameGridCellNeedNoCall() throws Exception {
+        double[] nearA = {A[0] + 0.0001, A[1] - 0.0001};
+        DistanceMatrixService.Matrix m = service.matrix("driving", new double[][]{A, nearA}, 1000).get();
+        assertEquals(0, service.calls.size());
+        assertEquals(0, m.durationsS()[0][1]);
+        assertEquals(0, m.estimated());
+    }
+
+    @Test
+    void rejectsTooManyPoints() {
+        double[][] points = new double[DistanceMatrixService.MAX_POINTS + 1][];
+        for (int i = 0; i < points.length; i++) points[i] = new double[]{A[0] + i * 0.01, A[1]};
+        assertThrows(IllegalArgumentException.class, () -> service.matrix("driving", points, 1000));
+    }
+
+    /** Answers each requested row with distinct values, or fails like an unreachable OSRM. */
+    private static class StubService extends DistanceMatrixService {
+        final List<int[]> calls = new ArrayList<>();
+        volatile boolean fail;
+
+        double duration(int i, int j) {
+            return 100 * (i + 1) + j;
+        }
+
+        @Override
+        CompletableFuture<OsrmTable> fetch(String profile, int[] lat, int[] lon, int[] sources, long timeoutMs) {
+            calls.add(sources.clone());
+            if (fail) return CompletableFuture.failedFuture(new IOException("Table provider returned 503"));
+            double[][] durations = new double[sources.length][lat.length];
+            double[][] distances = new double[sources.length][lat.length];
+            for (int k = 0; k < sources.length; k++) {
+                for (int j = 0; j < lat.length; j++) {
+                    durations[k][j] = sources[k] == j ? 0 : duration(sources[k], j);
+                    distances[k][j] = durations[k][j] * 10;
+                }
+            }
+            return CompletableFuture.completedFuture(new OsrmTable("Ok", durations, distances));
+        }
+    }
+}
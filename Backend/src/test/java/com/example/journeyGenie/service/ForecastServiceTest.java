@@ -0,0 +1,187 @@
+package com.example.journeyGenie.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.http.HttpTimeoutException;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ForecastServiceTest {
+
+    private static final LocalDate D = LocalDate.of(2026, 6, 1);
+
+    private final StubService service = new StubService();
+    private final ExecutorService threads = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        threads.shutdownNow();
+        service.close();
+    }
+
+    @Test
+    void fetchesOnlyTheMissingSpan() throws Exception {
+        assertEquals(dates(D, D.plusDays(4)), dates(service.daily(48.1, 11.6, D, D.plusDays(4))));
+        assertEquals(List.of(List.of(D, D.plusDays(4))), service.calls);
+
+        // overlapping request: days 1-4 come from the cache, 5-7 from one call
+        ForecastService.Forecast forecast = service.daily(48.1, 11.6, D.plusDays(2), D.plusDays(7));
+        assertEquals(dates(D.plusDays(2), D.plusDays(7)), dates(forecast));
+        assertFalse(forecast.stale());
+        assertEquals(List.of(D.plusDays(5), D.plusDays(7)), service.calls.get(1));
+
+        // everything cached: no call at all
+        service.daily(48.1, 11.6, D.plusDays(1), D.plusDays(6));
+        assertEquals(2, service.calls.size());
+        assertEquals(0L, service.stats().get("coalesced"));
+    }
+
+    @Test
+    void gapsOnBothSidesAreOneCall() throws Exception {
+        service.daily(48.1, 11.6, D.plusDays(2), D.plusDays(3));
+        service.daily(48.1, 11.6, D, D.plusDays(5));
+        // the cached middle is refetched rather than making two calls
+        assertEquals(List.of(D, D.plusDays(5)), service.calls.get(1));
+        assertEquals(8L, service.stats().get("fetchedDays"));
+    }
+
+    @Test
+    void nearbyPointsShareACell() throws Exception {
+        service.daily(48.137, 11.575, D, D.plusDays(2));
+        service.daily(48.14, 11.58, D, D.plusDays(2));
+        assertEquals(1, service.calls.size());
+        assertEquals(1, service.stats().get("cells"));
+
+        service.daily(48.4, 11.575, D, D.plusDays(2));
+        assertEquals(2, service.calls.size());
+    }
+
+    @Test
+    void leavesOutDaysTheProviderHasNoForecastFor() throws Exception {
+        service.lastDay = D.plusDays(3);
+        assertEquals(dates(D, D.plusDays(3)), dates(service.daily(48.1, 11.6, D, D.plusDays(9))));
+    }
+
+    @Test
+    void concurrentRequestWaitsForTheFetchInProgress() throws Exception {
+        service.block();
+        Future<ForecastService.Forecast> first = threads.submit(() -> service.daily(48.1, 11.6, D, D.plusDays(6)));
+        assertTrue(service.entered.await(5, TimeUnit.SECONDS));
+
+        // fully inside the pending span: no call of its own
+        Future<ForecastService.Forecast> second = threads.submit(() -> service.daily(48.1, 11.6, D.plusDays(1), D.plusDays(3)));
+        waitForCoalesced(1);
+        // partly outside: fetches only its own days and waits for the rest
+        Future<ForecastService.Forecast> third = threads.submit(() -> service.daily(48.1, 11.6, D.plusDays(5), D.plusDays(8)));
+        waitForCalls(2);
+        assertEquals(List.of(D.plusDays(7), D.plusDays(8)), service.calls.get(1));
+
+        service.release.countDown();
+        assertEquals(dates(D, D.plusDays(6)), dates(first.get(5, TimeUnit.SECONDS)));
+        assertEquals(dates(D.plusDays(1), D.plusDays(3)), dates(second.get(5, TimeUnit.SECONDS)));
+        assertEquals(dates(D.plusDays(5), D.plusDays(8)), dates(third.get(5, TimeUnit.SECONDS)));
+        assertEquals(2, service.calls.size());
+        assertEquals(2L, service.stats().get("coalesced"));
+    }
+
+    @Test
+    void waitersSeeTheFetchError() throws Exception {
+        service.block();
+        service.failure = new IOException("Forecast provider returned 502");
+        Future<ForecastService.Forecast> first = threads.submit(() -> service.daily(48.1, 11.6, D, D.plusDays(3)));
+        assertTrue(service.entered.await(5, TimeUnit.SECONDS));
+        Future<ForecastService.Forecast> second = threads.submit(() -> service.daily(48.1, 11.6, D, D.plusDays(1)));
+        waitForCoalesced(1);
+
+        service.release.countDown();
+        for (Future<ForecastService.Forecast> f : List.of(first, second)) {
+            Exception e = assertThrows(Exception.class, () -> f.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IOException.class, e.getCause());
+            assertEquals("Forecast provider returned 502", e.getCause().getMessage());
+        }
+
+        // nothing was cached and nothing is left pending, so the next request fetches again
+        service.failure = null;
+        assertEquals(dates(D, D.plusDays(1)), dates(service.daily(48.1, 11.6, D, D.plusDays(1))));
+        assertEquals(2, service.calls.size());
+        assertEquals(1L, service.stats().get("upstreamErrors"));
+    }
+
+    @Test
+    void waitersAreReleasedWhenTheFetchIsInterrupted() throws Exception {
+        service.block();
+        service.interrupt = true;
+        Future<ForecastService.Forecast> first = threads.submit(() -> service.daily(48.1, 11.6, D, D.plusDays(3)));
+        assertTrue(service.entered.await(5, TimeUnit.SECONDS));
+        Future<ForecastService.Forecast> second = threads.submit(() -> service.daily(48.1, 11.6, D, D.plusDays(1)));
+        waitForCoalesced(1);
+
+        service.release.countDown();
+        Exception e = assertThrows(Exception.class, () -> first.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(InterruptedException.class, e.getCause());
+        // well inside the upstream timeout, and not reported as one
+        e = assertThrows(Exception.class, () -> second.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, e.getCause());
+        assertFalse(e.getCause() instanceof HttpTimeoutException);
+        assertEquals(0L, service.stats().get("upstreamErrors"));
+    }
+
+    private void waitForCoalesced(long n) throws InterruptedException {
+        for (int i = 0; i < 500 && (long) service.stats().get("coalesced") < n; i++) Thread.sleep(10);
+        assertEquals(n, service.stats().get("coalesced"));
+    }
+
+    private void waitForCalls(int n) throws InterruptedException {
+        for (int i = 0; i < 500 && service.calls.size() < n; i++) Thread.sleep(10);
+        assertEquals(n, service.calls.size());
+    }
+
+    private static List<LocalDate> dates(LocalDate from, LocalDate to) {
+        return from.datesUntil(to.plusDays(1)).toList();
+    }
+
+    private static List<LocalDate> dates(ForecastService.Forecast forecast) {
+        return forecast.days().stream().map(row -> LocalDate.parse((String) row.get("date"))).toList();
+    }
+
+    /** Answers every day up to lastDay, recording the requested spans; can hold a call until released. */
+    private static class StubService extends ForecastService {
+        final List<List<LocalDate>> calls = new CopyOnWriteArrayList<>();
+        volatile LocalDate lastDay = LocalDate.MAX;
+        volatile IOException failure;
+        volatile boolean interrupt;
+        final CountDownLatch entered = new CountDownLatch(1);
+        volatile CountDownLatch release = new CountDownLatch(0);
+
+        void block() {
+            release = new CountDownLatch(1);
+        }
+
+        @Override
+        Map<LocalDate, Map<String, Object>> fetch(double lat, double lon, LocalDate from, LocalDate to, long timeout)
+                throws IOException, InterruptedException {
+            calls.add(List.of(from, to));
+            entered.countDown();
+            release.await();
+            if (interrupt) throw new InterruptedException();
+            if (failure != null) throw failure;
+            Map<LocalDate, Map<String, Object>> out = new LinkedHashMap<>();
+            for (LocalDate d = from; !d.isAfter(to) && !d.isAfter(lastDay); d = d.plusDays(1)) {
+                out.put(d, Map.of("date", d.toString()));
+            }
+            return out;
+        }
+    }
+}
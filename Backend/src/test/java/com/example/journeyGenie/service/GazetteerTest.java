@@ -0,0 +1,127 @@
+package com.example.journeyGenie.service;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GazetteerTest {
+
+    private static final int PLACES = 3000;
+
+    @TempDir
+    static Path dir;
+
+    private static Path dump;
+    private static Gazetteer gazetteer;
+    private static final List<Set<String>> keys = new ArrayList<>();
+    private static final List<String> names = new ArrayList<>();
+    private static final long[] populations = new long[PLACES];
+
+    @BeforeAll
+    static void build() throws Exception {
+        // a five-letter alphabet and small populations, so short prefixes are hot and ties are common
+        Random random = new Random(11);
+        StringBuilder tsv = new StringBuilder("# geonameid\tname\t...\n");
+        for (int i = 0; i < PLACES; i++) {
+            String name = capitalize(word(random));
+            String alt = random.nextBoolean() ? word(random) : "";
+            populations[i] = random.nextInt(50);
+            names.add(name);
+
+            Set<String> placeKeys = new LinkedHashSet<>();
+            placeKeys.add(name.toLowerCase(Locale.ROOT));
+            if (!alt.isEmpty()) placeKeys.add(alt);
+            keys.add(placeKeys);
+
+            // alternates also hold postal codes and links, which must not become keys
+            String alternates = String.join(",", List.of(alt, "75001", "https://example.org/" + name)).replaceFirst("^,", "");
+            tsv.append(1000 + i).append('\t').append(name).append('\t').append(name).append('\t').append(alternates)
+                    .append('\t').append(random.nextFloat() * 90).append('\t').append(random.nextFloat() * 180)
+                    .append("\tP\tPPL\t").append(i % 2 == 0 ? "FR" : "DE")
+                    .append("\t\t\t\t\t\t").append(populations[i]).append("\t\t0\tEurope/Paris\t2024-01-01\n");
+        }
+        dump = dir.resolve("cities.txt");
+        Files.writeString(dump, tsv);
+        Path index = dir.resolve("cities.idx");
+        Gazetteer.build(dump, index);
+        gazetteer = Gazetteer.open(index);
+    }
+
+    @Test
+    void readsPlaces() throws Exception {
+        assertEquals(PLACES, gazetteer.places());
+        assertEquals(keys.stream().mapToInt(Set::size).sum(), gazetteer.keys());
+        assertTrue(gazetteer.builtFrom(dump));
+        assertEquals(names.get(7), gazetteer.name(7));
+        assertEquals("DE", gazetteer.country(7));
+        assertEquals(populations[7], gazetteer.population(7));
+    }
+
+    @Test
+    void suggestMatchesBruteForce() {
+        Random random = new Random(5);
+        List<String> prefixes = new ArrayList<>(List.of("a", "e", "ab", "ca", "zz"));
+        for (int i = 0; i < 40; i++) prefixes.add(word(random).substring(0, 1 + random.nextInt(3)));
+
+        for (String prefix : prefixes) {
+            for (int limit : new int[]{1, 5, Gazetteer.TOP_K}) {
+                assertArrayEquals(bruteForce(k -> k.startsWith(prefix), limit), gazetteer.suggest(prefix, limit),
+                        "suggest(\"" + prefix + "\", " + limit + ")");
+            }
+        }
+    }
+
+    @Test
+    void hotPrefixUsesPrecomputedList() {
+        long matching = keys.stream().flatMap(Set::stream).filter(k -> k.startsWith("a")).count();
+        assertTrue(matching > Gazetteer.SCAN_LIMIT, "test data must have a prefix over SCAN_LIMIT keys");
+        assertTrue(gazetteer.hotPrefixes() > 0);
+        assertArrayEquals(bruteForce(k -> k.startsWith("a"), Gazetteer.TOP_K), gazetteer.suggest("a", Gazetteer.TOP_K));
+    }
+
+    @Test
+    void exactMatchesBruteForce() {
+        for (int i = 0; i < PLACES; i += 37) {
+            String key = names.get(i).toLowerCase(Locale.ROOT);
+            assertArrayEquals(bruteForce(key::equals, 10), gazetteer.exact(key, 10), "exact(\"" + key + "\")");
+        }
+        assertEquals(0, gazetteer.exact("75001", 10).length);
+        assertEquals(0, gazetteer.exact("a", 10).length);
+    }
+
+    /** Places with a matching key, most populous first and ties by lower id. */
+    private static int[] bruteForce(Predicate<String> matches, int limit) {
+        return IntStream.range(0, PLACES)
+                .filter(p -> keys.get(p).stream().anyMatch(matches))
+                .boxed()
+                .sorted(Comparator.<Integer>comparingLong(p -> -populations[p]).thenComparingInt(p -> p))
+                .limit(limit)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    private static String word(Random random) {
+        StringBuilder s = new StringBuilder();
+        int len = 3 + random.nextInt(6);
+        for (int i = 0; i < len; i++) s.append("abcde".charAt(random.nextInt(5)));
+        return s.toString();
+    }
+
+    private static String capitalize(String s) {
+        return Character.toUpperCase(s.charAt(0)) + s.substring(1);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.journeyGenie.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OsrmRouteTest {
+
+    @Test
+    void coordinatesMatchParseDouble() throws Exception {
+        Random random = new Random(17);
+        List<String> numbers = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            // OSRM writes up to 6 decimals; vary the scale so short and trailing-zero forms show up too
+            double value = (random.nextDouble() * 2 - 1) * (random.nextBoolean() ? 180 : 1);
+            numbers.add(new BigDecimal(value).setScale(random.nextInt(8), java.math.RoundingMode.HALF_EVEN).toPlainString());
+        }
+        numbers.addAll(List.of(
+                "0.0", "-0.0", "-0", "0", "12", "-180.000000", "90.0000001",
+                "1.5e3", "-2.5E-4", "1e2",
+                "0.1234567890123456", "0.12345678901234567", "123456789.12345678",
+                "-98765.4321098765432", "0.0000000000000000000000001", "9007199254740993.0"));
+        if (numbers.size() % 2 != 0) numbers.add("1.0");
+
+        OsrmRoute route = OsrmRoute.parse(response(numbers));
+        RouteGeometry line = route.geometry();
+        assertEquals(numbers.size() / 2, line.size());
+        for (int i = 0; i < line.size(); i++) {
+            String lon = numbers.get(2 * i), lat = numbers.get(2 * i + 1);
+            assertEquals(Double.doubleToLongBits(Double.parseDouble(lon)), Double.doubleToLongBits(line.lon(i)), lon);
+            assertEquals(Double.doubleToLongBits(Double.parseDouble(lat)), Double.doubleToLongBits(line.lat(i)), lat);
+        }
+    }
+
+    @Test
+    void readsFirstRouteAndSkipsTheRest() throws Exception {
+        String json = "{\"code\":\"Ok\",\"waypoints\":[{\"name\":\"x\"}],\"routes\":["
+                + "{\"legs\":[{}],\"distance\":1234.5,\"duration\":99,\"geometry\":{\"type\":\"LineString\","
+                + "\"coordinates\":[[13.38886,52.517037,34.0],[13.397634,52.529407]]}},"
+                + "{\"distance\":1,\"duration\":1,\"geometry\":{\"coordinates\":[[0,0]]}}]}";
+        OsrmRoute route = OsrmRoute.parse(json.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("Ok", route.code());
+        assertEquals(1234.5, route.distanceM());
+        assertEquals(99, route.durationS());
+        assertEquals(2, route.geometry().size());
+        assertEquals(52.517037, route.geometry().lat(0));
+        assertEquals(13.397634, route.geometry().lon(1));
+    }
+
+    @Test
+    void noRoute() throws Exception {
+        OsrmRoute route = OsrmRoute.parse("{\"code\":\"NoRoute\",\"routes\":[]}".getBytes(StandardCharsets.UTF_8));
+        assertEquals("NoRoute", route.code());
+        assertNull(route.geometry());
+    }
+
+    private static byte[] response(List<String> numbers) {
+        StringBuilder json = new StringBuilder("{\"code\":\"Ok\",\"routes\":[{\"geometry\":{\"coordinates\":[");
+        for (int i = 0; i < numbers.size(); i += 2) {
+            if (i > 0) json.append(',');
+            json.append('[').append(numbers.get(i)).append(',').append(numbers.get(i + 1)).append(']');
+        }
+        json.append("],\"type\":\"LineString\"},\"distance\":10,\"duration\":5}]}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.journeyGenie.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteGeometryTest {
+
+    @Test
+    void encodesGoogleReferencePolyline() {
+        // example from Google's encoded polyline algorithm documentation
+        RouteGeometry line = line(38.5, -120.2, 40.7, -120.95, 43.252, -126.453);
+        assertEquals("_p~iF~ps|U_ulLnnqC_mqNvxq`@", line.encodePolyline());
+
+        RouteGeometry decoded = RouteGeometry.decodePolyline("_p~iF~ps|U_ulLnnqC_mqNvxq`@", 5);
+        assertEquals(3, decoded.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(line.lat(i), decoded.lat(i), 1e-9);
+            assertEquals(line.lon(i), decoded.lon(i), 1e-9);
+        }
+    }
+
+    @Test
+    void polylineRoundTrip() {
+        Random random = new Random(23);
+        for (int precision : new int[]{5, 6}) {
+            double scale = Math.pow(10, precision);
+            RouteGeometry.Builder builder = new RouteGeometry.Builder();
+            for (int i = 0; i < 2000; i++) {
+                builder.add(random.nextDouble() * 170 - 85, random.nextDouble() * 360 - 180);
+            }
+            RouteGeometry line = builder.build();
+            RouteGeometry decoded = RouteGeometry.decodePolyline(line.encodePolyline(precision), precision);
+
+            assertEquals(line.size(), decoded.size());
+            for (int i = 0; i < line.size(); i++) {
+                assertEquals(Math.round(line.lat(i) * scale), Math.round(decoded.lat(i) * scale), "lat " + i);
+                assertEquals(Math.round(line.lon(i) * scale), Math.round(decoded.lon(i) * scale), "lon " + i);
+            }
+        }
+    }
+
+    @Test
+    void simplificationKeepsEndpointsAndStaysWithinTolerance() {
+        // a wiggly drive north through Norway, where Mercator stretching matters
+        Random random = new Random(29);
+        RouteGeometry.Builder builder = new RouteGeometry.Builder();
+        double lat = 58, lon = 6;
+        for (int i = 0; i < 20000; i++) {
+            lat += 0.0005 + random.nextGaussian() * 0.0003;
+            lon += Math.sin(i / 50.0) * 0.0008 + random.nextGaussian() * 0.0002;
+            builder.add(lat, lon);
+        }
+        RouteGeometry line = builder.build();
+
+        for (int zoom : new int[]{5, 10, 14, 18}) {
+            RouteGeometry simple = line.simplifyForZoom(zoom);
+            assertTrue(simple.size() >= 2 && simple.size() <= line.size());
+            assertEquals(line.lat(0), simple.lat(0));
+            assertEquals(line.lon(0), simple.lon(0));
+            assertEquals(line.lat(line.size() - 1), simple.lat(simple.size() - 1));
+            assertEquals(line.lon(line.size() - 1), simple.lon(simple.size() - 1));
+
+            double tolerance = 1.0 / (256.0 * (1L << zoom));
+            double worst = 0;
+            int segment = 0;
+            for (int i = 0; i < line.size(); i++) {
+                // kept points appear in order, so the point lies on or after the current segment
+                while (segment < simple.size() - 2 && line.lat(i) == simple.lat(segment + 1)
+                        && line.lon(i) == simple.lon(segment + 1)) {
+                    segment++;
+                }
+                worst = Math.max(worst, distance(line, i, simple, segment));
+            }
+            assertTrue(worst <= tolerance * (1 + 1e-9), "zoom " + zoom + " deviates " + worst / tolerance + " px");
+        }
+        assertTrue(line.simplifyForZoom(10).size() < line.size() / 10, "low zoom should drop most points");
+    }
+
+    @Test
+    void serializesAsLatLonPairs() throws Exception {
+        String json = new ObjectMapper().writeValueAsString(line(1.5, 2.25, -3, 4));
+        assertEquals("[[1.5,2.25],[-3.0,4.0]]", json);
+    }
+
+    /** Distance in Web Mercator units from point i of line to segment s of simple. */
+    private static double distance(RouteGeometry line, int i, RouteGeometry simple, int s) {
+        double px = x(line.lon(i)), py = y(line.lat(i));
+        double ax = x(simple.lon(s)), ay = y(simple.lat(s));
+        double dx = x(simple.lon(s + 1)) - ax, dy = y(simple.lat(s + 1)) - ay;
+        double lenSq = dx * dx + dy * dy;
+        double t = lenSq == 0 ? 0 : Math.max(0, Math.min(1, ((px - ax) * dx + (py - ay) * dy) / lenSq));
+        return Math.hypot(px - ax - t * dx, py - ay - t * dy);
+    }
+
+    private static double x(double lon) {
+        return (lon + 180.0) / 360.0;
+    }
+
+    private static double y(double lat) {
+        double r = Math.toRadians(lat);
+        return 0.5 - Math.log(Math.tan(Math.PI / 4 + r / 2)) / (2 * Math.PI);
+    }
+
+    private static RouteGeometry line(double... latlon) {
+        RouteGeometry.Builder builder = new RouteGeometry.Builder();
+        for (int i = 0; i < latlon.length; i += 2) builder.add(latlon[i], latlon[i + 1]);
+        return builder.build();
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.journeyGenie.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalBlobStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void putGetAndDelete() throws Exception {
+        LocalBlobStore store = new LocalBlobStore(dir.resolve("blobs"), "https://api.example.org/");
+        byte[] data = "photo bytes".getBytes(StandardCharsets.UTF_8);
+
+        String url = store.put("photos/42/a.jpg", new ByteArrayInputStream(data), data.length, "image/jpeg");
+        assertEquals("https://api.example.org/blobs/photos/42/a.jpg", url);
+        assertEquals(dir.resolve("blobs/photos/42/a.jpg").toAbsolutePath(), store.resolve("photos/42/a.jpg"));
+        try (InputStream in = store.get("photos/42/a.jpg")) {
+            assertArrayEquals(data, in.readAllBytes());
+        }
+        // no temp files left next to the object
+        try (var files = Files.list(dir.resolve("blobs/photos/42"))) {
+            assertEquals(1, files.count());
+        }
+
+        store.delete("photos/42/a.jpg");
+        assertFalse(Files.exists(dir.resolve("blobs/photos/42/a.jpg")));
+        store.delete("photos/42/a.jpg");
+    }
+
+    @Test
+    void resolveRejectsKeysOutsideTheRoot() throws Exception {
+        Files.writeString(dir.resolve("secret.txt"), "not a blob");
+        LocalBlobStore store = new LocalBlobStore(dir.resolve("blobs"), "");
+
+        for (String key : new String[]{"", ".", "a/..", "../secret.txt", "photos/../../secret.txt",
+                "/etc/passwd", dir.resolve("secret.txt").toString(), "../blobs-other/x"}) {
+            assertThrows(NoSuchFileException.class, () -> store.resolve(key), key);
+        }
+        assertThrows(NoSuchFileException.class, () -> store.get("../secret.txt"));
+        assertThrows(NoSuchFileException.class,
+                () -> store.put("../escape.txt", new ByteArrayInputStream(new byte[1]), 1, "text/plain"));
+        assertFalse(Files.exists(dir.resolve("escape.txt")));
+
+        // dot segments that stay inside are fine
+        assertEquals(dir.resolve("blobs/b/c.jpg").toAbsolutePath(), store.resolve("a/../b/./c.jpg"));
+    }
+
+    @Test
+    void thumbnailsOfOwnUrlsAreReadFromDisk() throws Exception {
+        LocalBlobStore store = new LocalBlobStore(dir, "http://localhost:8080");
+        byte[] data = {1, 2, 3};
+        String url = store.put("t/x.bin", new ByteArrayInputStream(data), data.length, null);
+        try (InputStream in = store.openThumbnail(url, 256)) {
+            assertArrayEquals(data, in.readAllBytes());
+        }
+    }
+}
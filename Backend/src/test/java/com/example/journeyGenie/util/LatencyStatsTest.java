@@ -0,0 +1,54 @@
+package com.example.journeyGenie.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyStatsTest {
+
+    @Test
+    void empty() {
+        LatencyStats stats = new LatencyStats();
+        assertEquals(0, stats.count());
+        assertEquals(0, stats.meanMillis());
+        assertEquals(0, stats.percentileMillis(99));
+    }
+
+    @Test
+    void percentilesWithinOneBucketOfExact() {
+        Random random = new Random(37);
+        LatencyStats stats = new LatencyStats();
+        long[] samples = new long[20000];
+        for (int i = 0; i < samples.length; i++) {
+            // log-normal around 2 ms, spanning microseconds to seconds
+            samples[i] = (long) (2_000_000 * Math.exp(random.nextGaussian() * 1.5));
+            stats.record(samples[i]);
+        }
+        Arrays.sort(samples);
+
+        assertEquals(samples.length, stats.count());
+        for (double p : new double[]{1, 10, 50, 90, 99, 99.9, 100}) {
+            long exact = samples[(int) Math.ceil(samples.length * p / 100.0) - 1];
+            double reported = stats.percentileMillis(p) * 1_000_000.0;
+            // the bucket's upper bound: never below the true value, at most a quarter above it
+            assertTrue(reported >= exact - 1e-3, "p" + p + " " + reported + " < " + exact);
+            assertTrue(reported <= exact * 1.25 + 1, "p" + p + " " + reported + " > 1.25 * " + exact);
+        }
+        assertEquals(samples[samples.length - 1] / 1_000_000.0, stats.percentileMillis(100), 1e-9);
+        assertEquals(Arrays.stream(samples).average().orElse(0) / 1_000_000.0, stats.meanMillis(), 1e-6);
+    }
+
+    @Test
+    void smallAndNegativeValues() {
+        LatencyStats stats = new LatencyStats();
+        stats.record(-5);
+        stats.record(0);
+        stats.record(3);
+        assertEquals(3, stats.count());
+        assertEquals(0, stats.percentileMillis(50));
+        assertEquals(3 / 1_000_000.0, stats.percentileMillis(100), 1e-12);
+    }
+}
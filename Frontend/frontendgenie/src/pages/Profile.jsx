@@ -358,6 +358,63 @@ const TourGuideApp = () => {
 
   // ========================photo upload =========================
 
+  // Applies fn to one day's photo list in the selected tour, the tour list and the cached user
+  const updateDayPhotos = (tourId, dayId, fn) => {
+    const patchTour = (t) => {
+      if (!t || t.id !== tourId) return t;
+      return {
+        ...t,
+        days: (t.days || []).map(d => {
+          if (String(d.id) !== String(dayId)) return d;
+          return { ...d, photos: fn(Array.isArray(d.photos) ? d.photos : []) };
+        })
+      };
+    };
+    setSelectedTour(prev => patchTour(prev));
+    setTours(prevTours => (prevTours || []).map(patchTour));
+    setUserData(prev => {
+      if (!prev) return prev;
+      const nextUser = { ...prev, tours: (prev.tours || []).map(patchTour) };
+      try { localStorage.setItem('user', JSON.stringify(nextUser)); } catch { }
+      return nextUser;
+    });
+  };
+
+  // Polls a pending upload until storage has it: fills in the link, or drops the photo if it failed
+  const pollPhotoStatus = async (tourId, dayId, photoId, statusUrl, attempt = 0) => {
+    const MAX_ATTEMPTS = 60;
+    await new Promise(r => setTimeout(r, Math.min(1000 * (attempt + 1), 5000)));
+    try {
+      const res = await fetch(`${API_BASE}${statusUrl}`, { credentials: 'include' });
+      if (res.status === 404) {
+        updateDayPhotos(tourId, dayId, photos => photos.filter(p => p.id !== photoId));
+        return;
+      }
+      if (res.ok) {
+        const st = await res.json();
+        if (st?.status === 'ready' && st.photoUrl) {
+          const ready = { id: photoId, link: st.photoUrl, status: 'ready' };
+          // the placeholder may be gone if the tour was reloaded meanwhile
+          updateDayPhotos(tourId, dayId, photos => photos.some(p => p.id === photoId)
+            ? photos.map(p => (p.id === photoId ? { ...p, ...ready } : p))
+            : [...photos, ready]);
+          window.dispatchEvent(new CustomEvent('tours:updated', { detail: { reason: 'photo-ready', dayId } }));
+          return;
+        }
+        if (st?.status === 'failed') {
+          updateDayPhotos(tourId, dayId, photos => photos.filter(p => p.id !== photoId));
+          alert('A photo could not be uploaded. Please try again.');
+          return;
+        }
+      }
+    } catch (e) {
+      console.warn('[pollPhotoStatus] failed:', e);
+    }
+    if (attempt + 1 < MAX_ATTEMPTS) {
+      pollPhotoStatus(tourId, dayId, photoId, statusUrl, attempt + 1);
+    }
+  };
+
   const uploadPhotoFile = async (tourId, dayId, file) => {
     if (!file) {
       alert('Please choose an image file.');
@@ -390,55 +447,14 @@ const TourGuideApp = () => {
         try { localStorage.setItem('user', JSON.stringify(safeUser)); } catch { }
       } else {
         const photoId = payload?.photoId ?? payload?.id ?? Date.now();
-        const photoUrl = payload?.photoUrl ?? payload?.url ?? payload?.link;
-
-        setSelectedTour(prev => {
-          if (!prev || prev.id !== tourId) return prev;
-          const updated = {
-            ...prev,
-            days: (prev.days || []).map(d => {
-              if (String(d.id) !== String(dayId)) return d;
-              const photos = Array.isArray(d.photos) ? [...d.photos] : [];
-              photos.push({ id: photoId, link: photoUrl });
-              return { ...d, photos };
-            })
-          };
-          return updated;
-        });
-
-        setTours(prevTours => (prevTours || []).map(t => {
-          if (t.id !== tourId) return t;
-          return {
-            ...t,
-            days: (t.days || []).map(d => {
-              if (String(d.id) !== String(dayId)) return d;
-              const photos = Array.isArray(d.photos) ? [...d.photos] : [];
-              photos.push({ id: photoId, link: photoUrl });
-              return { ...d, photos };
-            })
-          };
-        }));
-
-        setUserData(prev => {
-          if (!prev) return prev;
-          const nextUser = {
-            ...prev,
-            tours: (prev.tours || []).map(t => {
-              if (t.id !== tourId) return t;
-              return {
-                ...t,
-                days: (t.days || []).map(d => {
-                  if (String(d.id) !== String(dayId)) return d;
-                  const photos = Array.isArray(d.photos) ? [...d.photos] : [];
-                  photos.push({ id: photoId, link: photoUrl });
-                  return { ...d, photos };
-                })
-              };
-            })
-          };
-          try { localStorage.setItem('user', JSON.stringify(nextUser)); } catch { }
-          return nextUser;
-        });
+        const photoUrl = payload?.photoUrl ?? payload?.url ?? payload?.link ?? null;
+        // 202: the file is still on its way to storage; show a placeholder until it is ready
+        const pending = !photoUrl && !!payload?.statusUrl;
+        updateDayPhotos(tourId, dayId, photos => [
+          ...photos,
+          { id: photoId, link: photoUrl, status: pending ? 'pending' : 'ready' },
+        ]);
+        if (pending) pollPhotoStatus(tourId, dayId, photoId, payload.statusUrl);
       }
 
       window.dispatchEvent(new CustomEvent('tours:updated', { detail: { reason: 'photo-uploaded', dayId } }));
@@ -624,7 +640,7 @@ const TourGuideApp = () => {
 
     // photos presence (for Generate Video button state)
     const hasAnyPhotos = useMemo(() => {
-      return !!(selectedTour?.days || []).some(d => (d.photos || []).length > 0);
+      return !!(selectedTour?.days || []).some(d => (d.photos || []).some(p => p.link));
     }, [selectedTour]);
 
     // Blog helpers
@@ -988,7 +1004,9 @@ const TourGuideApp = () => {
                             {day.photos.length > 0 && (
                               <div className="photos-grid">
                                 {day.photos.map((photo) => (
-                                  <img key={photo.id} src={photo.link} alt="Tour moment" />
+                                  photo.link
+                                    ? <img key={photo.id} src={photo.link} alt="Tour moment" />
+                                    : <div key={photo.id} className="photo-pending">Uploading…</div>
                                 ))}
                               </div>
                             )}